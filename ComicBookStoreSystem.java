@@ -1,6 +1,8 @@
 import java.util.*;
+import java.util.function.*;
 import managers.*;
 import entities.*;
+import utils.Metrics;
 //import java.io.*;
 
 /**
@@ -11,7 +13,7 @@ import entities.*;
  * 
  * Features:
  * - Admin: Manage comics and customer records (CRUD operations)
- * - Customer: Browse comics and make purchases (placeholder)
+ * - Customer: Browse comics, make purchases and view order history
  * - Data persistence using text files
  * 
  * @author Comic Book Store System
@@ -20,10 +22,19 @@ import entities.*;
 public class ComicBookStoreSystem {
     // Scanner for user input throughout the application
     private static Scanner sc = new Scanner(System.in);
+
+    // Number of records shown per page when browsing
+    private static final int PAGE_SIZE = 10;
+
+    // File the admin menu saves the metrics to
+    private static final String METRICS_FILE = "data/metrics.prom";
     
-    // Manager instances for handling comic and customer data
-    private static ComicManager comicManager = new ComicManager("data/comics.txt");
-    private static CustomerManager customerManager = new CustomerManager("data/customers.txt");
+    // Manager instances for handling comic and customer data (changes are journaled)
+    private static ComicManager comicManager = new ComicManager("data/comics.txt", StoreOptions.journaled());
+    private static CustomerManager customerManager = new CustomerManager("data/customers.txt", StoreOptions.journaled());
+
+    // Order ledger: every purchase is appended and forced to disk before it is confirmed
+    private static OrderManager orderManager = new OrderManager("data/orders.txt", comicManager, customerManager);
 
     /**
      * Main entry point of the Comic Book Store System application.
@@ -47,6 +58,9 @@ public class ComicBookStoreSystem {
                 case 2  : customerMenu(); break;     // Navigate to customer interface
                 case 3  :  { 
                     System.out.println("Exiting..."); 
+                    comicManager.close();    // Fold pending journal records into the data files
+                    customerManager.close();
+                    orderManager.close();
                     return; // Exit the application
                 }
                 default : System.out.println("Invalid option!"); break; // Handle invalid input
@@ -64,7 +78,8 @@ public class ComicBookStoreSystem {
             System.out.println("\n=== Admin Menu ===");
             System.out.println("1. Manage Comics");
             System.out.println("2. Manage Customers");
-            System.out.println("3. Back to Main Menu");
+            System.out.println("3. Save Metrics");
+            System.out.println("4. Back to Main Menu");
             System.out.print("Select option: ");
             int choice = sc.nextInt(); sc.nextLine();
 
@@ -72,25 +87,110 @@ public class ComicBookStoreSystem {
             switch (choice) {
                 case 1 : manageComics(); break;      // Navigate to comic management
                 case 2 : manageCustomers(); break;   // Navigate to customer management
-                case 3 : { return; }          // Return to main menu
+                case 3 : saveMetrics(); break;       // Dump operation timings for offline analysis
+                case 4 : { return; }          // Return to main menu
                 default : System.out.println("Invalid option!"); break;
             }
         }
     }
 
     /**
-     * Customer Interface Menu - Placeholder for customer functionality.
-     * Currently displays planned features and returns to main menu.
-     * Future implementation will include browsing, purchasing, and order history.
+     * Writes the current metrics (operation latencies, file I/O and entity
+     * counts) in the Prometheus text format to data/metrics.prom.
+     */
+    private static void saveMetrics() {
+        try {
+            Metrics.writeTo(METRICS_FILE);
+            System.out.println("Metrics saved to " + METRICS_FILE);
+        } catch (java.io.IOException e) {
+            System.out.println("Error writing file: " + METRICS_FILE + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Customer Interface Menu - Lets a customer browse the catalog, buy
+     * comics and review their orders. The customer identifies by ID.
      */
     private static void customerMenu() {
-        System.out.println("\n=== Customer Menu ===");
-        System.out.println("Customer features");
-        System.out.println("Browse available comics");
-        System.out.println("Make purchases");
-        System.out.println("View order history");
-        System.out.println("Press Enter to return to main menu...");
-        sc.nextLine(); // Wait for user input before returning
+        System.out.print("Enter your customer ID: ");
+        int customerId = sc.nextInt(); sc.nextLine();
+        Customer customer = customerManager.findById(customerId);
+        if (customer == null) {
+            System.out.println("Customer not found.");
+            return;
+        }
+        System.out.println("Welcome, " + customer.getName() + "!");
+
+        // Customer menu loop - continues until user returns to main menu
+        while (true) {
+            System.out.println("\n=== Customer Menu ===");
+            System.out.println("1. Browse Comics");
+            System.out.println("2. Search Comics");
+            System.out.println("3. Make a Purchase");
+            System.out.println("4. View Order History");
+            System.out.println("5. Back to Main Menu");
+            System.out.print("Select option: ");
+            int choice = sc.nextInt(); sc.nextLine();
+
+            switch (choice) {
+                case 1 : browse(comicManager, Comic::display, Comic::getId); break; // Page through comics by ID
+                case 2 : searchComics(); break; // Ranked title/author search
+                case 3 : purchase(customerId); break;
+                case 4 : orderHistory(customerId); break; // Page through the customer's orders
+                case 5 : { return; } // Return to main menu
+                default : System.out.println("Invalid option!"); break;
+            }
+        }
+    }
+
+    /**
+     * Order History - Shows a customer's orders one page at a time, oldest
+     * first. Each page is read through the order history index, so it costs
+     * the same however many orders the store has taken.
+     * 
+     * @param customerId The ID of the customer
+     */
+    private static void orderHistory(int customerId) {
+        int total = orderManager.countByCustomer(customerId);
+        System.out.println(total + " order(s)");
+        int offset = 0;
+        while (true) {
+            orderManager.display(orderManager.findByCustomer(customerId, offset, PAGE_SIZE), Order::display);
+            System.out.print("[n]ext page, [p]revious page, or Enter to continue: ");
+            String input = sc.nextLine().trim();
+            if (input.equalsIgnoreCase("n") && offset + PAGE_SIZE < total) {
+                offset += PAGE_SIZE;
+            } else if (input.equalsIgnoreCase("p") && offset > 0) {
+                offset -= PAGE_SIZE;
+            } else if (input.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Purchase - Prompts for a comic and quantity and places the order.
+     * 
+     * @param customerId The ID of the customer buying
+     */
+    private static void purchase(int customerId) {
+        System.out.print("Enter comic ID: ");
+        int comicId = sc.nextInt(); sc.nextLine();
+        System.out.print("Enter quantity: ");
+        int quantity = sc.nextInt(); sc.nextLine();
+        try {
+            Order order = orderManager.placeOrder(customerId, comicId, quantity);
+            if (order == null) {
+                System.out.println("Not enough copies in stock.");
+            } else {
+                System.out.println("Purchase complete!");
+                System.out.println(order.display());
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (java.io.UncheckedIOException e) {
+            System.out.println("Purchase failed: " + e.getMessage());
+        }
     }
 
     /**
@@ -104,37 +204,78 @@ public class ComicBookStoreSystem {
             System.out.println("2. Display Comics");
             System.out.println("3. Update Comic");
             System.out.println("4. Delete Comic");
-            System.out.println("5. Back");
+            System.out.println("5. Search Comics");
+            System.out.println("6. Back");
             System.out.print("Enter choice: ");
             int choice = sc.nextInt(); sc.nextLine();
 
             // Execute comic operation based on user selection
             switch (choice) {
                 case 1 : comicManager.addComic(sc); break; // Add new comic to inventory
-                case 2 : comicManager.displayAll(Comic::display); break; // Display all comics using method reference
+                case 2 : browse(comicManager, Comic::display, Comic::getId); break; // Page through comics by ID
                 case 3 : {
-                    // Update existing comic - first display all, then select by ID
-                    comicManager.displayAll(Comic::display);
+                    // Update existing comic - first browse, then select by ID
+                    browse(comicManager, Comic::display, Comic::getId);
                     System.out.print("Enter ID to update: ");
                     int id = sc.nextInt(); sc.nextLine();
-                    comicManager.update(id, sc);
+                    comicManager.updateComic(id, sc);
                     break;
                 }
                 case 4 : {
-                    // Delete comic - first display all, then select by ID
-                    comicManager.displayAll(Comic::display);
+                    // Delete comic - first browse, then select by ID
+                    browse(comicManager, Comic::display, Comic::getId);
                     System.out.print("Enter ID to delete: ");
                     int id = sc.nextInt(); sc.nextLine();
                     comicManager.delete(id);
                     System.out.println("Deleted successfully!");
                     break;
                 }
-                case 5 : { return; } // Return to admin menu
+                case 5 : searchComics(); break; // Ranked title/author search
+                case 6 : { return; } // Return to admin menu
                 default : System.out.println("Invalid option!"); break;
             }
         }
     }
 
+    /**
+     * Paged browser - Shows records one page at a time in ID order.
+     * Only the visible page is fetched (keyset pagination), so browsing costs
+     * the same however large the catalog is.
+     * 
+     * @param manager The manager whose records are shown
+     * @param displayFunc Function that converts a record to a display string
+     * @param idFunc Function that extracts a record's ID
+     * @param <T> The type of record
+     */
+    private static <T> void browse(EntityManager<T> manager, Function<T, String> displayFunc, ToIntFunction<T> idFunc) {
+        Deque<Integer> previous = new ArrayDeque<>(); // Start keys of the pages already seen
+        int after = 0;
+        while (true) {
+            List<T> page = manager.pageAfter(after, PAGE_SIZE);
+            manager.display(page, displayFunc);
+            System.out.print("[n]ext page, [p]revious page, or Enter to continue: ");
+            String input = sc.nextLine().trim();
+            if (input.equalsIgnoreCase("n") && page.size() == PAGE_SIZE) {
+                previous.push(after);
+                after = idFunc.applyAsInt(page.get(page.size() - 1));
+            } else if (input.equalsIgnoreCase("p") && !previous.isEmpty()) {
+                after = previous.pop();
+            } else if (input.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Comic Search - Prompts for a query and lists the best title/author matches.
+     */
+    private static void searchComics() {
+        System.out.print("Search title or author: ");
+        List<Comic> results = comicManager.search(sc.nextLine(), 20);
+        if (results.isEmpty()) System.out.println("No matching comics.");
+        for (Comic c : results) System.out.println(c.display());
+    }
+
     /**
      * Customer Management Module - Handles all customer-related operations.
      */
@@ -153,18 +294,18 @@ public class ComicBookStoreSystem {
             // Execute customer operation based on user selection
             switch (choice) {
                 case 1 : customerManager.addCustomer(sc); break; // Add new customer to database
-                case 2 : customerManager.displayAll(Customer::display); break; // Display all customers using method reference
+                case 2 : browse(customerManager, Customer::display, Customer::getId); break; // Page through customers by ID
                 case 3 : {
-                    // Update existing customer - first display all, then select by ID
-                    customerManager.displayAll(Customer::display);
+                    // Update existing customer - first browse, then select by ID
+                    browse(customerManager, Customer::display, Customer::getId);
                     System.out.print("Enter ID to update: ");
                     int id = sc.nextInt(); sc.nextLine();
-                    customerManager.update(id, sc);
+                    customerManager.updateCustomer(id, sc);
                     break;
                 }
                 case 4 : {
-                    // Delete customer - first display all, then select by ID
-                    customerManager.displayAll(Customer::display);
+                    // Delete customer - first browse, then select by ID
+                    browse(customerManager, Customer::display, Customer::getId);
                     System.out.print("Enter ID to delete: ");
                     int id = sc.nextInt(); sc.nextLine();
                     customerManager.delete(id);
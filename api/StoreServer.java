@@ -0,0 +1,521 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import entities.*;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import managers.*;
+import utils.Json;
+import utils.LatencyHistogram;
+import utils.Metrics;
+
+/**
+ * StoreServer class - Embedded HTTP server exposing the store as a JSON API.
+ * 
+ * Endpoints (all bodies and responses are JSON):
+ *   GET    /comics?after=ID&amp;limit=N        page of comics by ascending ID
+ *   GET    /comics/search?q=TEXT&amp;limit=N   ranked title/author search
+ *   GET    /comics/ID                      one comic
+ *   POST   /comics                         add a comic (all fields but id)
+ *   PUT    /comics/ID                      change the fields given
+ *   DELETE /comics/ID                      delete a comic
+ *   GET, POST, PUT, DELETE /customers[/ID] the same for customers (no search)
+ *   GET    /customers/ID/orders?offset=N&amp;limit=N  a customer's order history
+ *   POST   /orders                         purchase: customerId, comicId, quantity
+ *   GET    /orders/ID                      one order
+ *   GET    /metrics                        Prometheus text (not JSON) of all Metrics
+ * 
+ * Errors are returned as {"error": "..."} with status 400 (invalid input),
+ * 404 (no such record), 405 (method not allowed) or 409 (not enough stock).
+ * 
+ * Every request runs on its own virtual thread when the JVM provides them
+ * (Java 21+), so thousands of concurrent clients cost no more than their
+ * sockets; on older JVMs requests run on a cached pool of platform threads.
+ * The managers are thread-safe, so handlers call them directly.
+ * 
+ * Headers and body go out in separate writes, so without TCP_NODELAY each
+ * response waits for the client's delayed ACK (about 40 ms on Linux). The
+ * JDK reads the switch, the system property sun.net.httpserver.nodelay,
+ * only once, when the first HTTP server of the JVM is created. main() sets
+ * it before creating the server; an application that embeds the server
+ * should pass -Dsun.net.httpserver.nodelay=true at launch.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class StoreServer implements Closeable {
+    // JDK property that turns on TCP_NODELAY for the sockets of every HttpServer in the JVM
+    public static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    // Largest request body accepted, in bytes
+    private static final int MAX_BODY = 64 * 1024;
+
+    // Largest page a list endpoint returns
+    private static final int MAX_LIMIT = 1000;
+
+    // Page size when the client gives no limit
+    private static final int DEFAULT_LIMIT = 20;
+
+    // Underlying JDK HTTP server
+    private final HttpServer server;
+
+    // Runs the request handlers
+    private final ExecutorService executor;
+
+    // Managers the endpoints operate on
+    private final ComicManager comics;
+    private final CustomerManager customers;
+    private final OrderManager orders;
+
+    /**
+     * Constructor for creating a StoreServer instance. Call start() to begin serving.
+     * 
+     * @param port The TCP port to listen on (0 picks a free port)
+     * @param comics The comic catalog
+     * @param customers The customer records
+     * @param orders The order ledger
+     * @throws IOException if the port cannot be bound
+     */
+    public StoreServer(int port, ComicManager comics, CustomerManager customers, OrderManager orders) throws IOException {
+        this.comics = comics;
+        this.customers = customers;
+        this.orders = orders;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        context("/comics", this::comics);
+        context("/customers", this::customers);
+        context("/orders", this::orders);
+        server.createContext("/metrics", StoreServer::metrics);
+    }
+
+    /**
+     * Starts serving requests in the background.
+     */
+    public void start() { server.start(); }
+
+    /**
+     * Gets the port the server listens on.
+     * 
+     * @return The bound port
+     */
+    public int getPort() { return server.getAddress().getPort(); }
+
+    /**
+     * Stops accepting requests and waits up to a second for running ones.
+     * The managers are left open; they belong to the caller.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Creates the executor requests run on: one virtual thread per request
+     * if the JVM supports them, otherwise a cached pool of daemon threads.
+     * Looked up reflectively so the code still compiles and runs on Java 17.
+     * 
+     * @return The request executor
+     */
+    public static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "http-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Starts the API on the store's data files.
+     * Usage: java api.StoreServer [port]
+     * 
+     * @param args Optional port number (default 8080)
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        if (System.getProperty(NODELAY) == null) System.setProperty(NODELAY, "true"); // Before any server exists
+        ComicManager comics = new ComicManager("data/comics.txt", StoreOptions.journaled());
+        CustomerManager customers = new CustomerManager("data/customers.txt", StoreOptions.journaled());
+        OrderManager orders = new OrderManager("data/orders.txt", comics, customers);
+        StoreServer server = new StoreServer(port, comics, customers, orders);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            comics.close(); // Fold pending journal records into the data files
+            customers.close();
+            orders.close();
+        }, "store-server shutdown"));
+        server.start();
+        System.out.println("Comic Book Store API listening on http://localhost:" + server.getPort() + "/");
+    }
+
+    /**
+     * A parsed request handed to an endpoint.
+     */
+    private static class Request {
+        final String method;              // HTTP method
+        final List<String> path;          // Path segments after the context, e.g. ["12", "orders"]
+        final Map<String, String> query;  // Decoded query parameters
+        final String body;                // Request body (empty if none)
+
+        Request(String method, List<String> path, Map<String, String> query, String body) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.body = body;
+        }
+    }
+
+    /**
+     * A response produced by an endpoint.
+     */
+    private static class Response {
+        final int status;   // HTTP status code
+        final String json;  // Response body, or null for none
+
+        Response(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    /**
+     * An endpoint group (one per context).
+     */
+    private interface Endpoint {
+        Response serve(Request request) throws IOException;
+    }
+
+    /**
+     * Registers an endpoint group under a context path, with a histogram of
+     * its request latencies.
+     */
+    private void context(String path, Endpoint endpoint) {
+        LatencyHistogram time = Metrics.histogram("cbs_http_request_seconds", "Time to handle an API request",
+                "context", path);
+        server.createContext(path, exchange -> handle(exchange, endpoint, time));
+    }
+
+    /**
+     * Parses a request, runs the endpoint and writes its response, turning
+     * exceptions into JSON errors.
+     */
+    private void handle(HttpExchange exchange, Endpoint endpoint, LatencyHistogram time) throws IOException {
+        long start = Metrics.startTime();
+        Response response;
+        try {
+            response = endpoint.serve(parse(exchange));
+        } catch (IllegalArgumentException e) {
+            response = error(400, e.getMessage());
+        } catch (UnsupportedOperationException e) {
+            response = error(405, e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Error handling " + exchange.getRequestURI() + ": " + e);
+            response = error(500, "Internal error");
+        }
+        byte[] bytes = response.json == null ? new byte[0] : response.json.getBytes(StandardCharsets.UTF_8);
+        if (response.json != null) exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        time.recordSince(start);
+    }
+
+    /**
+     * Serves the metrics of this process in the Prometheus text format.
+     */
+    private static void metrics(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes(); // Drain any body so the connection can be reused
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = Metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the method, path, query and body of an exchange.
+     */
+    private static Request parse(HttpExchange exchange) throws IOException {
+        String context = exchange.getHttpContext().getPath();
+        String rest = exchange.getRequestURI().getPath().substring(context.length());
+        List<String> path = new ArrayList<>();
+        for (String segment : rest.split("/"))
+            if (!segment.isEmpty()) path.add(segment);
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                String name = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY + 1);
+        }
+        if (body.length > MAX_BODY) throw new IllegalArgumentException("Request body too large");
+        return new Request(exchange.getRequestMethod(), path, query, new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Endpoints under /comics.
+     */
+    private Response comics(Request r) {
+        if (r.path.isEmpty()) {
+            switch (r.method) {
+                case "GET" : return list(comics.pageAfter(intParam(r, "after", 0), limit(r)), Comic::toJson);
+                case "POST" : {
+                    Map<String, Object> body = Json.parseObject(r.body);
+                    Comic comic = new Comic(comics.nextId(), text(body, "title"), text(body, "author"),
+                            price(body), text(body, "genre"), integer(body, "year"), stocks(body));
+                    comics.add(comic);
+                    return new Response(201, comic.toJson());
+                }
+                default : return notAllowed(r);
+            }
+        }
+        if (r.path.size() == 1 && r.path.get(0).equals("search")) {
+            if (!r.method.equals("GET")) return notAllowed(r);
+            return list(comics.search(r.query.getOrDefault("q", ""), limit(r)), Comic::toJson);
+        }
+        if (r.path.size() != 1) return notFound();
+        int id = id(r.path.get(0));
+        switch (r.method) {
+            case "GET" : return found(comics.findById(id), Comic::toJson);
+            case "PUT" : {
+                Map<String, Object> body = Json.parseObject(r.body);
+                // Validated before the update, so the edit below cannot fail under the write lock
+                String title = body.containsKey("title") ? text(body, "title") : null;
+                String author = body.containsKey("author") ? text(body, "author") : null;
+                Double price = body.containsKey("price") ? price(body) : null;
+                String genre = body.containsKey("genre") ? text(body, "genre") : null;
+                Integer year = body.containsKey("year") ? integer(body, "year") : null;
+                Integer stocks = body.containsKey("stocks") ? stocks(body) : null;
+                return update(comics, id, c -> {
+                    if (title != null) c.setTitle(title);
+                    if (author != null) c.setAuthor(author);
+                    if (price != null) c.setPrice(price);
+                    if (genre != null) c.setGenre(genre);
+                    if (year != null) c.setYear(year);
+                    if (stocks != null) c.setStocks(stocks);
+                }, Comic::toJson);
+            }
+            case "DELETE" : return delete(comics, id);
+            default : return notAllowed(r);
+        }
+    }
+
+    /**
+     * Endpoints under /customers.
+     */
+    private Response customers(Request r) throws IOException {
+        if (r.path.isEmpty()) {
+            switch (r.method) {
+                case "GET" : return list(customers.pageAfter(intParam(r, "after", 0), limit(r)), Customer::toJson);
+                case "POST" : {
+                    Map<String, Object> body = Json.parseObject(r.body);
+                    Customer customer = new Customer(customers.nextId(), text(body, "name"), text(body, "contact"));
+                    customers.add(customer);
+                    return new Response(201, customer.toJson());
+                }
+                default : return notAllowed(r);
+            }
+        }
+        int id = id(r.path.get(0));
+        if (r.path.size() == 2 && r.path.get(1).equals("orders")) {
+            if (!r.method.equals("GET")) return notAllowed(r);
+            if (customers.findById(id) == null) return notFound();
+            return list(orders.findByCustomer(id, intParam(r, "offset", 0), limit(r)), Order::toJson);
+        }
+        if (r.path.size() != 1) return notFound();
+        switch (r.method) {
+            case "GET" : return found(customers.findById(id), Customer::toJson);
+            case "PUT" : {
+                Map<String, Object> body = Json.parseObject(r.body);
+                String name = body.containsKey("name") ? text(body, "name") : null;
+                String contact = body.containsKey("contact") ? text(body, "contact") : null;
+                return update(customers, id, c -> {
+                    if (name != null) c.setName(name);
+                    if (contact != null) c.setContact(contact);
+                }, Customer::toJson);
+            }
+            case "DELETE" : return delete(customers, id);
+            default : return notAllowed(r);
+        }
+    }
+
+    /**
+     * Endpoints under /orders.
+     */
+    private Response orders(Request r) {
+        if (r.path.isEmpty()) {
+            if (!r.method.equals("POST")) return notAllowed(r);
+            Map<String, Object> body = Json.parseObject(r.body);
+            int customerId = integer(body, "customerId");
+            int comicId = integer(body, "comicId");
+            if (customers.findById(customerId) == null) return error(404, "Customer not found: " + customerId);
+            if (comics.findById(comicId) == null) return error(404, "Comic not found: " + comicId);
+            Order order = orders.placeOrder(customerId, comicId, integer(body, "quantity"));
+            if (order == null) return error(409, "Not enough copies in stock");
+            return new Response(201, order.toJson());
+        }
+        if (r.path.size() != 1) return notFound();
+        if (!r.method.equals("GET")) return notAllowed(r);
+        return found(orders.findById(id(r.path.get(0))), Order::toJson);
+    }
+
+    /**
+     * Applies a partial update and returns the updated record. The edit
+     * should only call setters with values validated beforehand.
+     */
+    private static <T> Response update(EntityManager<T> manager, int id, Consumer<T> edit,
+                                       java.util.function.Function<T, String> toJson) {
+        return found(manager.update(id, edit), toJson);
+    }
+
+    /**
+     * Deletes a record, answering 404 if it does not exist.
+     */
+    private static <T> Response delete(EntityManager<T> manager, int id) {
+        if (manager.findById(id) == null) return notFound();
+        manager.delete(id);
+        return new Response(204, null);
+    }
+
+    /**
+     * Answers 200 with a record, or 404 if it is null.
+     */
+    private static <T> Response found(T record, java.util.function.Function<T, String> toJson) {
+        return record == null ? notFound() : new Response(200, toJson.apply(record));
+    }
+
+    /**
+     * Answers 200 with a JSON array of records.
+     */
+    private static <T> Response list(List<T> records, java.util.function.Function<T, String> toJson) {
+        List<String> items = new ArrayList<>(records.size());
+        for (T record : records) items.add(toJson.apply(record));
+        return new Response(200, Json.array(items));
+    }
+
+    private static Response notFound() { return error(404, "Not found"); }
+
+    private static Response notAllowed(Request r) { return error(405, "Method " + r.method + " not allowed"); }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    /**
+     * Parses a record ID from a path segment.
+     * 
+     * @throws IllegalArgumentException if the segment is not a number
+     */
+    private static int id(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ID: " + segment);
+        }
+    }
+
+    /**
+     * Reads an integer query parameter.
+     */
+    private static int intParam(Request r, String name, int missing) {
+        String value = r.query.get(name);
+        if (value == null || value.isEmpty()) return missing;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be an integer");
+        }
+    }
+
+    /**
+     * Reads the page size parameter, capped at MAX_LIMIT.
+     */
+    private static int limit(Request r) {
+        int limit = intParam(r, "limit", DEFAULT_LIMIT);
+        if (limit < 0) throw new IllegalArgumentException("Parameter 'limit' must not be negative");
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Reads a required text member. Commas and line breaks are rejected
+     * because records are stored as comma-separated lines.
+     */
+    private static String text(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof String)) throw new IllegalArgumentException("Field '" + name + "' must be a string");
+        String s = ((String) value).trim();
+        if (s.isEmpty()) throw new IllegalArgumentException("Field '" + name + "' must not be empty");
+        if (s.indexOf(',') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Field '" + name + "' must not contain commas or line breaks");
+        }
+        return s;
+    }
+
+    /**
+     * Reads a required numeric member.
+     */
+    private static double number(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Double)) throw new IllegalArgumentException("Field '" + name + "' must be a number");
+        return (Double) value;
+    }
+
+    /**
+     * Reads the price member, which must be greater than 0.
+     */
+    private static double price(Map<String, Object> body) {
+        double price = number(body, "price");
+        if (!(price > 0)) throw new IllegalArgumentException("Field 'price' must be greater than 0");
+        return price;
+    }
+
+    /**
+     * Reads a required integer member.
+     */
+    private static int integer(Map<String, Object> body, String name) {
+        double value = number(body, name);
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field '" + name + "' must be an integer");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the stocks member, which must not be negative.
+     */
+    private static int stocks(Map<String, Object> body) {
+        int stocks = integer(body, "stocks");
+        if (stocks < 0) throw new IllegalArgumentException("Field 'stocks' must not be negative");
+        return stocks;
+    }
+}
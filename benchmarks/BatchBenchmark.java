@@ -0,0 +1,97 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import managers.*;
+
+/**
+ * BatchBenchmark - Measures per-item restock latency as the batch size grows.
+ * 
+ * Usage: java benchmarks.BatchBenchmark [rows] [items]
+ * Restocks the given number of comics (5,000 by default) one update() at a
+ * time and in batches of 1 to 5,000 changes, in every persistence mode that
+ * allows updates, and reports the cost per restocked item. A second run has
+ * several threads committing small journaled batches at once, where group
+ * commit lets them share fsyncs.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class BatchBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 10_000)[0];
+        int items = Math.min(args.length > 1 ? Integer.parseInt(args[1]) : 5_000, rows);
+        for (PersistenceMode mode : PersistenceMode.values()) {
+            if (mode == PersistenceMode.LEDGER) continue; // Append-only: updates are rejected
+            ComicManager single = open(rows, mode);
+            // update() in SNAPSHOT mode rewrites the file per item; cap the work
+            int updates = mode == PersistenceMode.SNAPSHOT ? Math.min(items, 200) : items;
+            long begin = System.nanoTime();
+            for (int i = 1; i <= updates; i++) single.update(i, c -> c.setStocks(c.getStocks() + 10));
+            long took = System.nanoTime() - begin;
+            System.out.printf("mode=%-8s  update()    per-item=%,10.1f us  total=%,8.1f ms%n",
+                    mode, took / 1e3 / updates, took / 1e6);
+            single.close();
+            for (int batchSize : new int[] { 1, 10, 100, 1000, 5000 }) {
+                ComicManager manager = open(rows, mode);
+                // Batch size 1 in SNAPSHOT mode rewrites the file per item; cap the work
+                int total = mode == PersistenceMode.SNAPSHOT && batchSize == 1 ? Math.min(items, 200) : items;
+                long start = System.nanoTime();
+                Batch<Comic> batch = manager.batch();
+                for (int i = 1; i <= total; i++) {
+                    batch.update(i, c -> c.setStocks(c.getStocks() + 10));
+                    if (batch.size() == batchSize) batch.commit();
+                }
+                batch.commit();
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("mode=%-8s  batch=%5d  per-item=%,10.1f us  total=%,8.1f ms%n",
+                        mode, batchSize, elapsed / 1e3 / total, elapsed / 1e6);
+                manager.close();
+            }
+        }
+
+        for (int threads : new int[] { 1, 2, 4, 8, 16 }) {
+            ComicManager manager = open(rows, PersistenceMode.JOURNAL);
+            int perThread = 2000 / threads;
+            LongAdder commits = new LongAdder();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < perThread; i++) {
+                        Batch<Comic> batch = manager.batch();
+                        for (int j = 0; j < 10; j++)
+                            batch.update(random.nextInt(1, rows + 1), c -> c.setStocks(c.getStocks() + 1));
+                        batch.commit();
+                        commits.increment();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("threads=%2d  durable commits=%,.0f /s  per-commit=%,.1f us%n",
+                    threads, commits.sum() * 1e9 / elapsed, elapsed / 1e3 / commits.sum());
+            manager.close();
+        }
+    }
+
+    /**
+     * Creates a manager over a fresh dataset.
+     * 
+     * @param rows The number of comics in the dataset
+     * @param mode The persistence mode
+     * @return The loaded manager
+     * @throws Exception if the dataset cannot be written
+     */
+    private static ComicManager open(int rows, PersistenceMode mode) throws Exception {
+        Path file = Datasets.tempDir().resolve("comics.txt");
+        Datasets.writeComics(file, rows);
+        StoreOptions options = new StoreOptions();
+        options.setPersistence(mode);
+        return new ComicManager(file.toString(), options);
+    }
+}
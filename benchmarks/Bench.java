@@ -0,0 +1,113 @@
+package benchmarks;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Bench class - Minimal benchmark harness with a machine-readable report.
+ * 
+ * Each measurement runs a number of warm-up iterations (to let the JIT
+ * compile the code under test), then times a number of measured
+ * iterations. Results are kept per iteration so the report can show the
+ * mean, spread and best case. Values returned by the measured code are
+ * folded into a sink so the JIT cannot remove the work.
+ * 
+ * The report is written as JSON Lines (one JSON object per measurement),
+ * which is easy to diff, append to and load into other tools; see
+ * CompareReports for spotting regressions between two reports.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Bench {
+    /**
+     * Code under measurement. The returned value is consumed by the harness.
+     */
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Code run before each iteration and excluded from the timing (e.g. resetting files).
+     */
+    public interface Setup {
+        void run() throws Exception;
+    }
+
+    // Number of warm-up and measured iterations per benchmark
+    private final int warmups;
+    private final int iterations;
+
+    // One JSON object per finished measurement
+    private final List<String> report = new ArrayList<>();
+
+    // Receives results of measured code so it is not optimised away
+    private volatile int sink;
+
+    /**
+     * Constructor for creating a Bench instance.
+     * 
+     * @param warmups The number of untimed warm-up iterations
+     * @param iterations The number of timed iterations
+     */
+    public Bench(int warmups, int iterations) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Measures an operation and prints and records the result.
+     * 
+     * @param name The benchmark name (e.g. "EntityManager.load")
+     * @param rows The dataset size the benchmark ran against
+     * @param opsPerIteration The number of operations one call performs, used for ns/op
+     * @param setup Untimed preparation before each iteration, or null
+     * @param operation The code to time
+     * @throws Exception if the operation fails
+     */
+    public void measure(String name, int rows, long opsPerIteration, Setup setup, Operation operation) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            if (setup != null) setup.run();
+            consume(operation.run());
+        }
+        double[] nsPerOp = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            if (setup != null) setup.run();
+            long start = System.nanoTime();
+            Object result = operation.run();
+            nsPerOp[i] = (double) (System.nanoTime() - start) / opsPerIteration;
+            consume(result);
+        }
+        double mean = Arrays.stream(nsPerOp).average().orElse(0);
+        double min = Arrays.stream(nsPerOp).min().orElse(0);
+        double max = Arrays.stream(nsPerOp).max().orElse(0);
+        double variance = Arrays.stream(nsPerOp).map(v -> (v - mean) * (v - mean)).sum() / Math.max(1, iterations - 1);
+
+        System.out.printf("%-28s rows=%,11d  %,14.2f ns/op  (min %,.2f, max %,.2f)%n", name, rows, mean, min, max);
+        report.add(String.format(Locale.ROOT,
+                "{\"benchmark\":\"%s\",\"rows\":%d,\"opsPerIteration\":%d,\"iterations\":%d,"
+                + "\"unit\":\"ns/op\",\"mean\":%.3f,\"min\":%.3f,\"max\":%.3f,\"stdev\":%.3f}",
+                name, rows, opsPerIteration, iterations, mean, min, max, Math.sqrt(variance)));
+    }
+
+    /**
+     * Writes all recorded measurements as JSON Lines.
+     * 
+     * @param file The report file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeReport(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.write(file, report);
+        System.out.println("Report written to " + file);
+    }
+
+    /**
+     * Folds a result into the sink.
+     */
+    private void consume(Object result) {
+        sink ^= System.identityHashCode(result);
+    }
+}
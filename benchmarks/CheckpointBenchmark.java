@@ -0,0 +1,59 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import managers.*;
+
+/**
+ * CheckpointBenchmark - Measures how save cost grows with the catalog and with the change set.
+ * 
+ * Usage: java benchmarks.CheckpointBenchmark [rows,rows,...]
+ * For each catalog size (100,000 and 1,000,000 comics by default) commits
+ * batches that restock 1 to 10,000 random comics in SNAPSHOT and CHECKPOINT
+ * mode and reports the median commit time, which includes the save. In
+ * SNAPSHOT mode it follows the catalog size; in CHECKPOINT mode it should
+ * follow the change set. The time to reload the catalog afterwards (data
+ * file plus any deltas not merged yet) is reported as well.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class CheckpointBenchmark {
+    // Batches committed per change set size; the median is reported
+    private static final int ROUNDS = 9;
+
+    public static void main(String[] args) throws Exception {
+        for (int rows : Datasets.sizes(args, 100_000, 1_000_000)) {
+            for (PersistenceMode mode : new PersistenceMode[] { PersistenceMode.SNAPSHOT, PersistenceMode.CHECKPOINT }) {
+                Path file = Datasets.tempDir().resolve("comics.txt");
+                Datasets.writeComics(file, rows);
+                StoreOptions options = new StoreOptions();
+                options.setPersistence(mode);
+                ComicManager manager = new ComicManager(file.toString(), options);
+                for (int changes : new int[] { 1, 100, 10_000 }) {
+                    long[] times = new long[ROUNDS];
+                    for (int round = 0; round < ROUNDS; round++) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        Batch<Comic> batch = manager.batch();
+                        for (int i = 0; i < changes; i++)
+                            batch.update(random.nextInt(1, rows + 1), c -> c.setStocks(c.getStocks() + 1));
+                        long start = System.nanoTime();
+                        batch.commit();
+                        times[round] = System.nanoTime() - start;
+                    }
+                    Arrays.sort(times);
+                    System.out.printf("rows=%,10d  mode=%-10s  changes=%,6d  commit p50=%,10.2f ms%n",
+                            rows, mode, changes, times[ROUNDS / 2] / 1e6);
+                }
+                manager.close();
+                long start = System.nanoTime();
+                manager = new ComicManager(file.toString(), options);
+                long load = System.nanoTime() - start;
+                System.out.printf("rows=%,10d  mode=%-10s  reload=%,8.1f ms%n", rows, mode, load / 1e6);
+                manager.close();
+            }
+        }
+    }
+}
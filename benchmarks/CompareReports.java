@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * CompareReports - Compares two benchmark reports and flags regressions.
+ * 
+ * Usage: java benchmarks.CompareReports baseline.jsonl candidate.jsonl [thresholdPercent]
+ * Matches measurements by benchmark name and row count, prints the change
+ * in mean ns/op and exits with status 1 if any benchmark got slower by
+ * more than the threshold (10% by default), so it can gate a release build.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class CompareReports {
+    // Extracts the fields this tool needs from one report line
+    private static final Pattern LINE = Pattern.compile(
+            "\"benchmark\":\"([^\"]+)\",\"rows\":(\\d+).*\"mean\":([0-9.]+)");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: java benchmarks.CompareReports baseline.jsonl candidate.jsonl [thresholdPercent]");
+            return;
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Double> baseline = read(Paths.get(args[0]));
+        Map<String, Double> candidate = read(Paths.get(args[1]));
+
+        boolean regressed = false;
+        for (Map.Entry<String, Double> entry : candidate.entrySet()) {
+            Double before = baseline.get(entry.getKey());
+            if (before == null) continue; // New benchmark: nothing to compare with
+            double change = (entry.getValue() - before) / before * 100;
+            boolean slower = change > threshold;
+            regressed |= slower;
+            System.out.printf("%-42s %,14.2f -> %,14.2f ns/op  %+7.1f%%%s%n",
+                    entry.getKey(), before, entry.getValue(), change, slower ? "  REGRESSION" : "");
+        }
+        if (regressed) System.exit(1);
+    }
+
+    /**
+     * Reads a report into a map from "benchmark@rows" to mean ns/op.
+     */
+    private static Map<String, Double> read(Path file) throws Exception {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            Matcher m = LINE.matcher(line);
+            if (m.find()) means.put(m.group(1) + "@" + m.group(2), Double.parseDouble(m.group(3)));
+        }
+        return means;
+    }
+}
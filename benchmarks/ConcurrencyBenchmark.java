@@ -0,0 +1,60 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import managers.*;
+
+/**
+ * ConcurrencyBenchmark - Measures ComicManager throughput as the thread count grows.
+ * 
+ * Usage: java benchmarks.ConcurrencyBenchmark [rows] [readPercent]
+ * Each thread runs a mix of findById (90% by default), add and delete
+ * against one journaled manager for a few seconds. After each run the
+ * benchmark checks that every listed comic can still be found by ID.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class ConcurrencyBenchmark {
+    // Measured duration per thread count
+    private static final long DURATION_MS = 3000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 100_000)[0];
+        int readPercent = args.length > 1 ? Integer.parseInt(args[1]) : 90;
+        for (int threads : new int[] { 1, 2, 4, 8, 16 }) {
+            Path file = Datasets.tempDir().resolve("comics.txt");
+            Datasets.writeComics(file, rows);
+            ComicManager manager = new ComicManager(file.toString(), StoreOptions.journaled());
+
+            LongAdder ops = new LongAdder();
+            long deadline = System.currentTimeMillis() + DURATION_MS;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.currentTimeMillis() < deadline) {
+                        int roll = random.nextInt(100);
+                        if (roll < readPercent) {
+                            manager.findById(random.nextInt(1, rows + 1));
+                        } else if (roll % 2 == 0) {
+                            manager.add(new Comic(manager.nextId(), "New Title", "Author", 99.0, "Genre", 2024, 5));
+                        } else {
+                            manager.delete(random.nextInt(1, rows + 1));
+                        }
+                        ops.increment();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+
+            boolean consistent = manager.getAll().stream().allMatch(c -> manager.findById(c.getId()) == c);
+            System.out.printf("threads=%2d  reads=%d%%  throughput=%,.0f ops/s  consistent=%b%n",
+                    threads, readPercent, ops.sum() * 1000.0 / DURATION_MS, consistent);
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import managers.ComicManager;
+import utils.FileHandler;
+
+/**
+ * CoreBenchmarks - Benchmarks the core load, save, lookup and parse paths.
+ * 
+ * Usage: java -Xmx8g benchmarks.CoreBenchmarks [--sizes 1000,10000,...] [--out report.jsonl]
+ *                                               [--warmups n] [--iterations n]
+ * Covers FileHandler.readFile/writeFile, EntityManager.load/save/findById/nextId
+ * and Comic.fromString/toString against generated comics files. Sizes default
+ * to 1k, 10k, 100k and 1M rows; pass --sizes 1000,...,10000000 for the full
+ * 1k-10M sweep (needs a heap of several GB). The JSON Lines report defaults
+ * to bench-report.jsonl and can be compared with CompareReports.
+ * 
+ * Build and run from the project root, with Maven:
+ * mvn package and java -cp target/classes benchmarks.CoreBenchmarks
+ * or, where Maven is not available, with plain javac (the JMH benchmarks
+ * in benchmarks/jmh need JMH and are left out):
+ * javac -d out $(find . -name "*.java" -not -path "./benchmarks/jmh/*" -not -path "./target/*")
+ * and java -cp out benchmarks.CoreBenchmarks
+ * The same paths are covered by the JMH benchmarks (mvn -P jmh package,
+ * see CoreJmhBenchmarks).
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class CoreBenchmarks {
+    // Operations per iteration for the per-record micro benchmarks
+    private static final int LOOKUPS = 1_000_000;
+    private static final int PARSES = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = options(args);
+        int[] sizes = Datasets.sizes(new String[] { opts.getOrDefault("sizes", "1000,10000,100000,1000000") });
+        Bench bench = new Bench(Integer.parseInt(opts.getOrDefault("warmups", "3")),
+                                Integer.parseInt(opts.getOrDefault("iterations", "5")));
+
+        for (int rows : sizes) {
+            Path dir = Datasets.tempDir();
+            Path file = dir.resolve("comics.txt");
+            Path copy = dir.resolve("copy.txt");
+            Datasets.writeComics(file, rows);
+            String name = file.toString();
+
+            List<String> lines = FileHandler.readFile(name);
+            bench.measure("FileHandler.readFile", rows, rows, null, () -> FileHandler.readFile(name));
+            bench.measure("FileHandler.writeFile", rows, rows, null, () -> {
+                FileHandler.writeFile(copy.toString(), lines);
+                return copy;
+            });
+
+            bench.measure("EntityManager.load", rows, rows, null, () -> new ComicManager(name));
+            ComicManager manager = new ComicManager(name);
+            bench.measure("EntityManager.save", rows, rows, null, () -> {
+                manager.save();
+                return manager;
+            });
+
+            int[] ids = new Random(1).ints(LOOKUPS, 1, rows + 1).toArray();
+            bench.measure("EntityManager.findById", rows, LOOKUPS, null, () -> {
+                int found = 0;
+                for (int id : ids)
+                    if (manager.findById(id) != null) found++;
+                return found;
+            });
+            bench.measure("EntityManager.nextId", rows, LOOKUPS, null, () -> {
+                int last = 0;
+                for (int i = 0; i < LOOKUPS; i++) last = manager.nextId();
+                return last;
+            });
+
+            // Parse/format benchmarks cycle through a sample of the dataset's lines
+            String[] sample = new String[Math.min(rows, PARSES)];
+            for (int i = 0; i < sample.length; i++) sample[i] = lines.get(i);
+            Comic[] comics = new Comic[sample.length];
+            for (int i = 0; i < sample.length; i++) comics[i] = Comic.fromString(sample[i]);
+            bench.measure("Comic.fromString", rows, PARSES, null, () -> {
+                Comic c = null;
+                for (int i = 0; i < PARSES; i++) c = Comic.fromString(sample[i % sample.length]);
+                return c;
+            });
+            bench.measure("Comic.toString", rows, PARSES, null, () -> {
+                int length = 0;
+                for (int i = 0; i < PARSES; i++) length += comics[i % comics.length].toString().length();
+                return length;
+            });
+
+            for (String leftover : new String[] { name, name + ".seq", name + ".log", copy.toString() })
+                Files.deleteIfExists(Paths.get(leftover));
+        }
+        bench.writeReport(Paths.get(opts.getOrDefault("out", "bench-report.jsonl")));
+    }
+
+    /**
+     * Parses "--key value" pairs from the command line.
+     */
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --option, got " + args[i]);
+            opts.put(args[i].substring(2), args[i + 1]);
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,142 @@
+package benchmarks;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Datasets class - Generates synthetic data files for the benchmarks.
+ * 
+ * Files are written in the same comma-separated format the managers read,
+ * with sequential IDs and a deterministic mix of authors, genres and years
+ * so runs are repeatable. Also holds the helpers the benchmarks share:
+ * temp directories, size arguments and latency percentiles.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Datasets {
+    private static final String[] AUTHORS = {
+        "Stan Lee", "Jack Kirby", "Kohei Horikoshi", "Eiichiro Oda", "Alan Moore",
+        "Neil Gaiman", "Frank Miller", "Boichi", "Naoko Takeuchi", "Akira Toriyama"
+    };
+    private static final String[] GENRES = {
+        "Superhero", "Fantasy", "Romance", "Horror", "Sci-Fi", "Slice of Life", "Mystery"
+    };
+    private static final String[] WORDS = {
+        "Hero", "Academia", "Piece", "Watch", "Dark", "Knight", "Sailor", "Moon",
+        "Dragon", "Ball", "Sandman", "Returns", "Legend", "Chronicles", "Saga"
+    };
+    private static final String[] SYLLABLES = {
+        "ka", "ro", "mi", "ten", "zu", "lo", "shi", "va", "gor", "ne",
+        "ta", "bri", "el", "dan", "qui", "mo", "sar", "fen", "hu", "ix"
+    };
+
+    /**
+     * Writes a comics file with the given number of rows.
+     * 
+     * @param file The file to write
+     * @param rows The number of comics to generate
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeComics(Path file, int rows) throws IOException {
+        Random random = new Random(42);
+        try (BufferedWriter bw = Files.newBufferedWriter(file)) {
+            for (int id = 1; id <= rows; id++) {
+                bw.write(id + "," + title(random, id) + "," + AUTHORS[random.nextInt(AUTHORS.length)] + ","
+                        + (50 + random.nextInt(950)) + "." + random.nextInt(10) + ","
+                        + GENRES[random.nextInt(GENRES.length)] + "," + (1938 + random.nextInt(88)) + ","
+                        + random.nextInt(100));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes a customers file with the given number of rows.
+     * 
+     * @param file The file to write
+     * @param rows The number of customers to generate
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCustomers(Path file, int rows) throws IOException {
+        Random random = new Random(7);
+        try (BufferedWriter bw = Files.newBufferedWriter(file)) {
+            for (int id = 1; id <= rows; id++) {
+                bw.write(id + ",Customer " + id + ",09" + (100000000 + random.nextInt(900000000)));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * Appends orders to an order ledger, spread uniformly over the given
+     * number of customers (and over 10,000 comics).
+     * 
+     * @param file The ledger to append to (created if missing)
+     * @param firstId The ID of the first order written
+     * @param rows The number of orders to generate
+     * @param customers The number of customers placing them
+     * @throws IOException if the file cannot be written
+     */
+    public static void appendOrders(Path file, int firstId, int rows, int customers) throws IOException {
+        Random random = new Random(firstId);
+        long placedAt = 1_700_000_000_000L + firstId * 1000L;
+        try (BufferedWriter bw = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (int id = firstId; id < firstId + rows; id++) {
+                bw.write(id + "," + (1 + random.nextInt(customers)) + "," + (1 + random.nextInt(10_000)) + ","
+                        + (1 + random.nextInt(3)) + "," + (50 + random.nextInt(950)) + "." + random.nextInt(10) + ","
+                        + (placedAt += random.nextInt(2000)));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * Creates a fresh temporary directory for a benchmark run.
+     * 
+     * @return The directory path
+     * @throws IOException if the directory cannot be created
+     */
+    public static Path tempDir() throws IOException {
+        Path dir = Files.createTempDirectory("cbs-bench");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Parses a comma-separated list of row counts from a command-line argument.
+     * 
+     * @param args The command-line arguments
+     * @param defaults The row counts to use when no argument is given
+     * @return The row counts
+     */
+    public static int[] sizes(String[] args, int... defaults) {
+        if (args.length == 0) return defaults;
+        return Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Gets a percentile of sorted samples.
+     * 
+     * @param sorted The samples in ascending order
+     * @param p The percentile as a fraction (e.g. 0.99)
+     * @return The sample at that percentile, or 0 if there are none
+     */
+    public static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+    }
+
+    /**
+     * Builds a title from a made-up series name (8,000 possibilities), two
+     * common words and sometimes an issue number.
+     */
+    private static String title(Random random, int id) {
+        String series = SYLLABLES[random.nextInt(SYLLABLES.length)] + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                + SYLLABLES[random.nextInt(SYLLABLES.length)];
+        String t = Character.toUpperCase(series.charAt(0)) + series.substring(1) + " "
+                + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        return random.nextBoolean() ? t + " " + (id % 500 + 1) : t;
+    }
+}
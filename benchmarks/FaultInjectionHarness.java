@@ -0,0 +1,198 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import managers.*;
+
+/**
+ * FaultInjectionHarness - Kills a process in the middle of a snapshot and checks that the catalog survives.
+ * 
+ * Usage: java benchmarks.FaultInjectionHarness [rows] [iterations]
+ * Generates a catalog (200,000 comics by default) and sets every stock to
+ * the same version number. Each iteration forks a child JVM (same java
+ * binary and classpath) that loads the catalog, sets every stock to the
+ * next version in one batch and saves it, which goes through
+ * AtomicFile.write. As soon as the child's temp file (&lt;file&gt;.&lt;hex&gt;.tmp)
+ * appears, the harness waits a random time and kills the child with
+ * SIGKILL. The delay is drawn from up to 1.2 times the write time of an
+ * undisturbed first save, so most kills land before the rename and some
+ * after it. It then reloads the catalog and asserts that: every comic is
+ * present and carries the old version or every comic carries the new one;
+ * a kill that left the temp file behind (before the rename) kept the old
+ * version; a kill that left the snapshot staged (&lt;file&gt;.new) got the new
+ * one, since the reload finishes the save; and no temp or staged file
+ * remains after the reload. Exits with status 1 if any iteration fails.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class FaultInjectionHarness {
+    // First argument that makes main() run as the forked child
+    private static final String CHILD = "child";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD)) {
+            setStocks(Paths.get(args[1]), Integer.parseInt(args[2]));
+            System.exit(0);
+        }
+        int rows = Datasets.sizes(args, 200_000)[0];
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Path file = Datasets.tempDir().resolve("comics.txt");
+        Path staged = file.resolveSibling(file.getFileName() + ".new");
+        Datasets.writeComics(file, rows);
+        setStocks(file, 0);
+        long window = writeTime(startChild(file, 1), file); // One undisturbed save: version 1
+        System.out.printf("snapshot write of %,d rows: %,d ms%n", rows, window / 1_000_000);
+        Random random = new Random(42);
+
+        int version = 1;
+        int duringWrite = 0;
+        int whileStaged = 0;
+        int afterRename = 0;
+        int completed = 0;
+        int failures = 0;
+        for (int i = 1; i <= iterations; i++) {
+            Process child = startChild(file, version + 1);
+            boolean killed = killDuringWrite(child, file, (long) (random.nextDouble() * window * 1.2)); // Mostly before the rename
+            child.waitFor();
+            boolean tempLeft = hasTemp(file);
+            boolean stagedLeft = Files.exists(staged);
+
+            ComicManager reloaded = new ComicManager(file.toString());
+            int found = checkVersion(reloaded, rows);
+            reloaded.close();
+            String failure = null;
+            if (found < 0) {
+                failure = "catalog is damaged or mixes versions";
+            } else if (found != version && found != version + 1) {
+                failure = "unexpected version " + found;
+            } else if (tempLeft && !stagedLeft && found != version) {
+                failure = "new version visible although the rename never happened";
+            } else if (stagedLeft && found != version + 1) {
+                failure = "staged snapshot was not finished";
+            } else if (hasTemp(file) || Files.exists(staged)) {
+                failure = "temp or staged file left after reload";
+            } else if (!killed && found != version + 1) {
+                failure = "completed save was lost";
+            }
+            String outcome = !killed ? "completed" : stagedLeft ? "killed while staged" : tempLeft ? "killed during write"
+                    : "killed after rename";
+            if (failure != null) {
+                failures++;
+                System.out.printf("iteration %3d: %-19s FAILED: %s%n", i, outcome, failure);
+            } else {
+                System.out.printf("iteration %3d: %-19s version %d intact%n", i, outcome, found);
+            }
+            if (!killed) completed++;
+            else if (stagedLeft) whileStaged++;
+            else if (tempLeft) duringWrite++;
+            else afterRename++;
+            if (found == version + 1) version++;
+        }
+        System.out.printf("rows=%,d  iterations=%d  killed during write=%d  killed while staged=%d  killed after rename=%d"
+                + "  completed=%d  failures=%d%n", rows, iterations, duringWrite, whileStaged, afterRename, completed, failures);
+        Files.walk(file.getParent()).sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * Loads a catalog, sets every comic's stock to a version number in one
+     * batch and saves it (one snapshot through AtomicFile.write).
+     * 
+     * @param file The comics file
+     * @param version The stock to set
+     */
+    private static void setStocks(Path file, int version) {
+        ComicManager manager = new ComicManager(file.toString());
+        Batch<Comic> batch = manager.batch();
+        for (Comic c : manager.getAll()) batch.update(c.getId(), comic -> comic.setStocks(version));
+        batch.commit();
+        manager.close();
+    }
+
+    /**
+     * Forks a child JVM with the same java binary and classpath that sets
+     * every stock to a version and saves.
+     * 
+     * @param file The comics file
+     * @param version The stock the child sets
+     * @return The child process
+     */
+    private static Process startChild(Path file, int version) throws java.io.IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), FaultInjectionHarness.class.getName(),
+                CHILD, file.toString(), String.valueOf(version)).inheritIO().start();
+    }
+
+    /**
+     * Measures how long a child's temp file exists, which is the window
+     * between AtomicFile.write creating it and renaming it into place.
+     * 
+     * @param child The child process, left to finish
+     * @param file The comics file
+     * @return The window in nanoseconds
+     */
+    private static long writeTime(Process child, Path file) throws Exception {
+        while (!hasTemp(file) && child.isAlive()) LockSupport.parkNanos(50_000);
+        long start = System.nanoTime();
+        while (hasTemp(file)) LockSupport.parkNanos(50_000);
+        long window = System.nanoTime() - start;
+        if (child.waitFor() != 0) throw new IllegalStateException("Child failed with status " + child.exitValue());
+        return window;
+    }
+
+    /**
+     * Waits until the child starts writing its temp file, then kills it
+     * after a delay. Returns without killing if the child exits first.
+     * 
+     * @param child The child process
+     * @param file The comics file
+     * @param delayNanos How long to wait after the temp file appears
+     * @return true if the child was killed
+     */
+    private static boolean killDuringWrite(Process child, Path file, long delayNanos) throws Exception {
+        while (!hasTemp(file)) {
+            if (!child.isAlive()) return false;
+            LockSupport.parkNanos(50_000); // Polls without starving the child of CPU
+        }
+        LockSupport.parkNanos(delayNanos);
+        if (!child.isAlive()) return false;
+        child.destroyForcibly(); // SIGKILL: no shutdown hooks, no finally blocks
+        return true;
+    }
+
+    /**
+     * Checks whether a temp file of the comics file exists: the name
+     * AtomicFile.write draws for it (&lt;file&gt;.&lt;hex&gt;.tmp), not that of another
+     * file named after it such as the .seq file.
+     * 
+     * @param file The comics file
+     * @return true if AtomicFile.write is writing the file, or was killed doing so
+     */
+    private static boolean hasTemp(Path file) throws java.io.IOException {
+        Pattern temp = Pattern.compile(Pattern.quote(file.getFileName().toString()) + "\\.[0-9a-f]+\\.tmp");
+        try (DirectoryStream<Path> names = Files.newDirectoryStream(file.getParent(),
+                p -> temp.matcher(p.getFileName().toString()).matches())) {
+            return names.iterator().hasNext();
+        }
+    }
+
+    /**
+     * Checks that a reloaded catalog is complete and that every comic
+     * carries the same stock.
+     * 
+     * @param manager The reloaded catalog
+     * @param rows The number of comics expected
+     * @return The stock all comics share, or -1 if comics are missing or the stocks differ
+     */
+    private static int checkVersion(ComicManager manager, int rows) {
+        List<Comic> all = manager.getAll();
+        if (all.size() != rows) return -1;
+        int version = all.get(0).getStocks();
+        for (Comic c : all) if (c.getStocks() != version) return -1;
+        return version;
+    }
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import managers.ComicManager;
+import managers.StorageEngine;
+import managers.StoreOptions;
+
+/**
+ * FootprintReport - Compares the memory a ComicManager retains with each storage engine.
+ * 
+ * Usage: java -Xmx4g benchmarks.FootprintReport [rows,...]
+ * For each size (1M and 5M rows by default), loads the same generated
+ * catalog into a ComicManager with each storage engine and reports the live
+ * heap it retains after a full GC, plus the direct memory it allocates
+ * (the OFF_HEAP pages). The figures cover everything the manager keeps:
+ * the store, the ID index, the secondary indexes and the search index.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class FootprintReport {
+    public static void main(String[] args) throws Exception {
+        for (int rows : Datasets.sizes(args, 1_000_000, 5_000_000)) {
+            Path file = Datasets.tempDir().resolve("comics.txt");
+            Datasets.writeComics(file, rows);
+            for (StorageEngine engine : StorageEngine.values()) {
+                long heapBefore = usedHeap();
+                long directBefore = directMemory();
+                ComicManager manager = load(file, engine);
+                long heap = usedHeap() - heapBefore;
+                long direct = directMemory() - directBefore;
+                if (manager.size() != rows) throw new IllegalStateException("Loaded " + manager.size()); // Keeps it reachable
+                System.out.printf("rows=%,11d  engine=%-9s heap=%,8.1f MB (%,6.1f B/row)  direct=%,8.1f MB  total=%,8.1f MB%n",
+                        rows, engine, heap / 1e6, (double) heap / rows, direct / 1e6, (heap + direct) / 1e6);
+            }
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Loads a comics file into a new ComicManager.
+     * 
+     * @param file The comics file
+     * @param engine The storage engine to use
+     * @return The loaded manager
+     */
+    private static ComicManager load(Path file, StorageEngine engine) {
+        StoreOptions options = new StoreOptions();
+        options.setEngine(engine);
+        return new ComicManager(file.toString(), options);
+    }
+
+    /**
+     * Gets the heap in use after collecting all garbage.
+     * 
+     * @return The used heap in bytes
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // Repeat until the collector has nothing left to free
+            System.gc();
+            Thread.sleep(100);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+
+    /**
+     * Gets the direct buffer memory in use, which is freed once the
+     * buffers of a dropped manager have been collected.
+     * 
+     * @return The used direct memory in bytes
+     */
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        return 0;
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.nio.file.*;
+import managers.*;
+
+/**
+ * FormatBenchmark - Compares the TEXT and BINARY storage formats.
+ * 
+ * Usage: java -Xmx4g benchmarks.FormatBenchmark [rows,rows,...]
+ * Reports load and save throughput (records per second) and file size
+ * for each format. Defaults to 100k and 1M comics.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class FormatBenchmark {
+    public static void main(String[] args) throws Exception {
+        for (int rows : Datasets.sizes(args, 100_000, 1_000_000)) {
+            Path dir = Datasets.tempDir();
+            Path text = dir.resolve("comics.txt");
+            Path binary = dir.resolve("comics.bin");
+            Datasets.writeComics(text, rows);
+            new ComicManager(text.toString()).exportTo(binary.toString(), StorageFormat.BINARY);
+
+            for (StorageFormat format : StorageFormat.values()) {
+                Path file = format == StorageFormat.TEXT ? text : binary;
+                StoreOptions options = new StoreOptions();
+                options.setFormat(format);
+                long load = Long.MAX_VALUE;
+                long save = Long.MAX_VALUE;
+                for (int round = 0; round < 3; round++) {    // Best of three
+                    long start = System.nanoTime();
+                    ComicManager manager = new ComicManager(file.toString(), options);
+                    load = Math.min(load, System.nanoTime() - start);
+                    start = System.nanoTime();
+                    manager.save();
+                    save = Math.min(save, System.nanoTime() - start);
+                }
+                System.out.printf("rows=%,d  format=%-6s  load=%,.0f rec/s  save=%,.0f rec/s  size=%,d bytes%n",
+                        rows, format, rows * 1e9 / load, rows * 1e9 / save, Files.size(file));
+            }
+            for (Path p : new Path[] { text, binary }) {
+                Files.deleteIfExists(p);
+                Files.deleteIfExists(Paths.get(p + ".seq"));
+                Files.deleteIfExists(Paths.get(p + ".log"));
+            }
+        }
+    }
+}
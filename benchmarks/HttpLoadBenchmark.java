@@ -0,0 +1,162 @@
+package benchmarks;
+
+import api.StoreServer;
+import java.net.URI;
+import java.net.http.*;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import managers.*;
+
+/**
+ * HttpLoadBenchmark - wrk-style load test for the HTTP API.
+ * 
+ * Usage: java benchmarks.HttpLoadBenchmark [connections,...] [seconds] [url]
+ * Without a URL an in-process StoreServer is started on a generated store
+ * (10k comics, 10k customers). For each connection count, every connection
+ * sends requests back to back for the given time: 80% GET /comics/ID, 10%
+ * title searches and 10% one-copy purchases (POST /orders). Reports
+ * requests per second, latency percentiles and the number of error responses
+ * (409 sold-out answers are expected and not counted as errors). A first
+ * unreported round at the lowest connection count warms up the JIT.
+ * The in-process server runs with TCP_NODELAY, as StoreServer.main sets it.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class HttpLoadBenchmark {
+    // Size of the generated store
+    private static final int COMICS = 10_000;
+    private static final int CUSTOMERS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] connectionCounts = Datasets.sizes(args, 16, 64, 256);
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String url = args.length > 2 ? args[2] : null;
+        if (System.getProperty(StoreServer.NODELAY) == null) System.setProperty(StoreServer.NODELAY, "true"); // Before any server exists
+
+        StoreServer server = null;
+        ComicManager comics = null;
+        CustomerManager customers = null;
+        OrderManager orders = null;
+        if (url == null) {
+            Path dir = Datasets.tempDir();
+            Datasets.writeComics(dir.resolve("comics.txt"), COMICS);
+            Datasets.writeCustomers(dir.resolve("customers.txt"), CUSTOMERS);
+            comics = new ComicManager(dir.resolve("comics.txt").toString(), StoreOptions.journaled());
+            customers = new CustomerManager(dir.resolve("customers.txt").toString(), StoreOptions.journaled());
+            orders = new OrderManager(dir.resolve("orders.txt").toString(), comics, customers);
+            server = new StoreServer(0, comics, customers, orders);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        System.out.println("target=" + url + "  request executor=" + executorKind());
+
+        run(url, connectionCounts[0], seconds, false); // Warm-up: lets the JIT compile client and server
+        for (int connections : connectionCounts) run(url, connections, seconds, true);
+
+        if (server != null) {
+            server.close();
+            orders.close();
+            comics.close();
+            customers.close();
+        }
+    }
+
+    /**
+     * Runs one load level and prints its results.
+     * 
+     * @param url The base URL of the API
+     * @param connections The number of concurrent connections
+     * @param seconds How long to send requests for
+     * @param report Whether to print the results
+     */
+    private static void run(String url, int connections, int seconds, boolean report) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        LongAdder errors = new LongAdder();
+        LongAdder soldOut = new LongAdder();
+        long[][] latencies = new long[connections][];
+        int[] counts = new int[connections];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(connections);
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            pool.execute(() -> {
+                Random random = new Random(connection);
+                long[] nanos = new long[1024];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = nextRequest(url, random);
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long t1 = System.nanoTime();
+                    if (status == 409) soldOut.increment();
+                    else if (status < 200 || status >= 300) errors.increment();
+                    if (n == nanos.length) nanos = Arrays.copyOf(nanos, n * 2);
+                    nanos[n++] = t1 - t0;
+                }
+                latencies[connection] = nanos;
+                counts[connection] = n;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[Arrays.stream(counts).sum()];
+        int filled = 0;
+        for (int c = 0; c < connections; c++) {
+            System.arraycopy(latencies[c], 0, all, filled, counts[c]);
+            filled += counts[c];
+        }
+        Arrays.sort(all);
+        if (!report) return;
+        System.out.printf("connections=%4d  requests=%,9d  %,8.0f req/s  p50=%,7.2f ms  p90=%,7.2f ms  p99=%,7.2f ms"
+                + "  max=%,8.2f ms  errors=%,d  sold-out=%,d%n",
+                connections, all.length, all.length * 1e9 / elapsed, Datasets.percentile(all, 0.50) / 1e6,
+                Datasets.percentile(all, 0.90) / 1e6, Datasets.percentile(all, 0.99) / 1e6,
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors.sum(), soldOut.sum());
+    }
+
+    /**
+     * Picks the next request of the mix.
+     */
+    private static HttpRequest nextRequest(String url, Random random) {
+        int kind = random.nextInt(10);
+        if (kind < 8) {
+            return HttpRequest.newBuilder(URI.create(url + "/comics/" + (1 + random.nextInt(COMICS)))).GET().build();
+        }
+        if (kind == 8) {
+            String[] words = { "hero", "dragon", "moon", "knight", "saga", "legend" };
+            return HttpRequest.newBuilder(URI.create(url + "/comics/search?q=" + words[random.nextInt(words.length)]
+                    + "&limit=10")).GET().build();
+        }
+        String body = "{\"customerId\":" + (1 + random.nextInt(CUSTOMERS)) + ",\"comicId\":"
+                + (1 + random.nextInt(COMICS)) + ",\"quantity\":1}";
+        return HttpRequest.newBuilder(URI.create(url + "/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    /**
+     * Describes the executor StoreServer runs requests on in this JVM.
+     */
+    private static String executorKind() {
+        ExecutorService executor = StoreServer.newRequestExecutor();
+        String kind = executor.getClass().getSimpleName();
+        executor.shutdown();
+        return kind;
+    }
+}
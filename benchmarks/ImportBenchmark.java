@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import managers.CatalogTool;
+
+/**
+ * ImportBenchmark - Measures the bulk catalog import and export.
+ * 
+ * Usage: java -Xmx512m benchmarks.ImportBenchmark [feed rows] [catalog rows] [threads]
+ * Writes a catalog of 100k comics and a CSV feed of 10M rows by default, in
+ * which 1% of the rows have an invalid price and 1% repeat the title and
+ * author of an earlier row, and imports the feed. Reports rows per second,
+ * the reject counts and the peak heap use, which stays far below the size
+ * of the feed. Then exports the grown catalog as CSV and as JSON lines.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class ImportBenchmark {
+    private static final String[] AUTHORS = {
+        "Stan Lee", "Jack Kirby", "Kohei Horikoshi", "Eiichiro Oda", "Alan Moore",
+        "Neil Gaiman", "Frank Miller", "Boichi", "Naoko Takeuchi", "Akira Toriyama"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 10_000_000)[0];
+        int catalog = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Path dir = Datasets.tempDir();
+        Path dataFile = dir.resolve("comics.txt");
+        Path feed = dir.resolve("feed.csv");
+        Datasets.writeComics(dataFile, catalog);
+        long start = System.nanoTime();
+        writeFeed(feed, rows);
+        System.out.printf("feed: %,d rows, %,.0f MB written in %,d ms; catalog: %,d comics, threads=%d%n", rows,
+                Files.size(feed) / 1e6, (System.nanoTime() - start) / 1_000_000, catalog, threads);
+
+        resetPeakHeap();
+        CatalogTool.Report report = CatalogTool.importFeed(feed.toString(), dataFile.toString(), threads);
+        System.out.printf("import:  %s%n         peak heap %,.0f MB, catalog file %,.0f MB%n", report,
+                peakHeap() / 1e6, Files.size(dataFile) / 1e6);
+
+        for (String name : new String[] { "export.csv", "export.jsonl" }) {
+            Path target = dir.resolve(name);
+            resetPeakHeap();
+            start = System.nanoTime();
+            long exported = CatalogTool.export(dataFile.toString(), target.toString());
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%-8s %,d comics in %,d ms (%,.0f rows/s), %,.0f MB, peak heap %,.0f MB%n",
+                    name.substring(name.indexOf('.') + 1) + ":", exported, nanos / 1_000_000, exported * 1e9 / nanos,
+                    Files.size(target) / 1e6, peakHeap() / 1e6);
+            Files.delete(target);
+        }
+        for (Path file : Files.list(dir).toArray(Path[]::new)) Files.delete(file);
+    }
+
+    /**
+     * Writes a CSV feed with a header. Every 100th row repeats the title and
+     * author of the row 10 before it; every 100th row from the 50th on has
+     * a price of 0.
+     */
+    private static void writeFeed(Path file, int rows) throws IOException {
+        Random random = new Random(7);
+        try (BufferedWriter bw = Files.newBufferedWriter(file)) {
+            bw.write("title,author,price,genre,year,stocks");
+            bw.newLine();
+            for (int i = 1; i <= rows; i++) {
+                int source = i % 100 == 0 ? i - 10 : i;
+                String price = i % 100 == 50 ? "0" : (1 + random.nextInt(999)) + "." + random.nextInt(10);
+                bw.write("Feed Volume " + source + "," + AUTHORS[source % AUTHORS.length] + "," + price + ",Manga,"
+                        + (1950 + random.nextInt(76)) + "," + random.nextInt(50));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * Resets the recorded peak use of every heap memory pool.
+     */
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * Gets the sum of the peak use of the heap memory pools since the last reset.
+     * 
+     * @return The peak heap use in bytes
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+import managers.ComicManager;
+
+/**
+ * IndexBenchmark - Compares indexed ComicManager queries with a full scan.
+ * 
+ * Usage: java -Xmx4g benchmarks.IndexBenchmark [rows]
+ * Defaults to 1M comics. Each query is run against the secondary indexes
+ * and as a stream filter over the whole catalog, and both must agree.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class IndexBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 1_000_000)[0];
+        Path file = Datasets.tempDir().resolve("comics.txt");
+        Datasets.writeComics(file, rows);
+        ComicManager manager = new ComicManager(file.toString());
+        List<Comic> all = manager.getAll();
+
+        run("genre=Horror", () -> manager.findByGenre("horror"),
+                () -> scan(all, c -> c.getGenre().equalsIgnoreCase("horror")));
+        run("author=Alan Moore", () -> manager.findByAuthor("Alan Moore"),
+                () -> scan(all, c -> c.getAuthor().equalsIgnoreCase("Alan Moore")));
+        run("year 1986-1987", () -> manager.findByYearRange(1986, 1987),
+                () -> scan(all, c -> c.getYear() >= 1986 && c.getYear() <= 1987));
+        run("price 100-101", () -> manager.findByPriceRange(100, 101),
+                () -> scan(all, c -> c.getPrice() >= 100 && c.getPrice() <= 101));
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Times an indexed query against the equivalent full scan.
+     */
+    private static void run(String name, Supplier<List<Comic>> indexed, Supplier<List<Comic>> scan) {
+        long indexedNs = time(indexed);
+        long scanNs = time(scan);
+        Set<Comic> a = new HashSet<>(indexed.get());
+        boolean same = a.equals(new HashSet<>(scan.get()));
+        System.out.printf("%-18s matches=%,8d  indexed=%,10.1f us  scan=%,10.1f us  agree=%b%n",
+                name, a.size(), indexedNs / 1e3, scanNs / 1e3, same);
+    }
+
+    /**
+     * Returns the best time of several runs of a query, in nanoseconds.
+     */
+    private static long time(Supplier<List<Comic>> query) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            long start = System.nanoTime();
+            query.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Filters the whole catalog, as the code had to before the indexes existed.
+     */
+    private static List<Comic> scan(List<Comic> all, Predicate<Comic> filter) {
+        return all.stream().filter(filter).collect(Collectors.toList());
+    }
+}
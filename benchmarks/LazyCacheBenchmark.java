@@ -0,0 +1,105 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import managers.*;
+
+/**
+ * LazyCacheBenchmark - Compares the HEAP and LAZY storage engines on heap use and lookup cost.
+ * 
+ * Usage: java -Xmx2g benchmarks.LazyCacheBenchmark [rows] [lookups]
+ * Loads the same catalog (1M rows by default) through a ComicManager with
+ * the HEAP engine and with the LAZY engine at several cache sizes, and
+ * reports the live heap each manager retains after a full GC, the load time
+ * and the cost of findById over a skewed workload: nine lookups in ten go
+ * to a hot set of 1% of the catalog, the rest anywhere. For LAZY the cache
+ * counters show how much of the workload the cache absorbs.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LazyCacheBenchmark {
+    // Cache sizes tried with the LAZY engine
+    private static final int[] CACHE_SIZES = { 1_000, 10_000, 100_000 };
+
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 1_000_000)[0];
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        Path dir = Datasets.tempDir();
+        Path file = dir.resolve("comics.txt");
+        Datasets.writeComics(file, rows);
+
+        run(file, rows, lookups, new StoreOptions());
+        for (int cacheSize : CACHE_SIZES) {
+            StoreOptions options = new StoreOptions();
+            options.setEngine(StorageEngine.LAZY);
+            options.setCacheSize(cacheSize);
+            run(file, rows, lookups, options);
+        }
+    }
+
+    /**
+     * Loads the catalog with the given options and measures it.
+     * 
+     * @param file The comics file
+     * @param rows The number of comics in the file
+     * @param lookups The number of lookups to time
+     * @param options The storage options to load with
+     */
+    private static void run(Path file, int rows, int lookups, StoreOptions options) throws Exception {
+        long start = System.nanoTime();
+        ComicManager manager = new ComicManager(file.toString(), options);
+        long loadNanos = System.nanoTime() - start;
+        long loaded = usedHeap();
+
+        Random random = new Random(42);
+        int hot = Math.max(1, rows / 100);
+        long checksum = 0;
+        for (int i = 0; i < lookups / 10; i++) checksum += find(manager, random, rows, hot); // Warm-up
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) checksum += find(manager, random, rows, hot);
+        long lookupNanos = System.nanoTime() - start;
+        CacheStats stats = manager.getCacheStats();
+        manager.close();
+        manager = null;
+        long retained = loaded - usedHeap(); // Measured against the heap once the manager is gone
+
+        String engine = options.getEngine() == StorageEngine.LAZY
+                ? "LAZY/" + options.getCacheSize() : options.getEngine().toString();
+        System.out.printf("engine=%-12s  rows=%,d  heap=%,7.1f MB (%,5.1f B/row)  load=%,6d ms  findById=%,7.0f ns%n",
+                engine, rows, retained / 1e6, (double) retained / rows, loadNanos / 1_000_000,
+                (double) lookupNanos / lookups);
+        if (stats != null) System.out.println("              " + stats);
+        if (checksum == 42) System.out.println(); // Keeps the lookups from being optimized away
+    }
+
+    /**
+     * Looks up one comic: from the hot set nine times in ten, otherwise from anywhere.
+     * 
+     * @return The comic's stock, for the checksum
+     */
+    private static int find(ComicManager manager, Random random, int rows, int hot) {
+        int id = 1 + (random.nextInt(10) < 9 ? random.nextInt(hot) : random.nextInt(rows));
+        Comic comic = manager.findById(id);
+        return comic.getStocks();
+    }
+
+    /**
+     * Gets the heap in use after collecting all garbage.
+     * 
+     * @return The used heap in bytes
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // Repeat until the collector has nothing left to free
+            System.gc();
+            Thread.sleep(100);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+}
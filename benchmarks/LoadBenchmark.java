@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.lang.management.*;
+import java.nio.file.*;
+import managers.ComicManager;
+import managers.StoreOptions;
+
+/**
+ * LoadBenchmark - Measures cold-start time and peak heap of loading a comics file.
+ * 
+ * Usage: java -Xmx6g benchmarks.LoadBenchmark [rows] [parallel]
+ * Defaults to a generated 5M-row file; pass "parallel" as the second argument
+ * to use the memory-mapped parallel loader. Run each measurement in a fresh JVM
+ * so the peak heap figure only reflects the load.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LoadBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 5_000_000)[0];
+        StoreOptions options = new StoreOptions();
+        options.setParallelLoad(args.length > 1 && args[1].equals("parallel"));
+        Path file = Datasets.tempDir().resolve("comics.txt");
+        Datasets.writeComics(file, rows);
+        System.gc();
+        resetPeaks();
+
+        long start = System.nanoTime();
+        ComicManager manager = new ComicManager(file.toString(), options);
+        long elapsed = System.nanoTime() - start;
+
+        long peak = peakHeap();
+        System.gc();
+        long retained = usedHeap();
+        System.out.printf("rows=%,d  parallel=%b  load=%,d ms  peakHeap=%,d MB  retainedHeap=%,d MB%n",
+                manager.getAll().size(), options.isParallelLoad(), elapsed / 1_000_000, peak >> 20, retained >> 20);
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Resets the peak usage counters of all heap memory pools.
+     */
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+    }
+
+    /**
+     * Sums the peak usage of all heap memory pools since the last reset.
+     */
+    private static long peakHeap() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP) total += pool.getPeakUsage().getUsed();
+        return total;
+    }
+
+    /**
+     * Gets the heap currently in use.
+     */
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.nio.file.*;
+import java.util.*;
+import managers.ComicManager;
+
+/**
+ * LookupBenchmark - Measures ComicManager.findById latency at several catalog sizes.
+ * 
+ * Usage: java benchmarks.LookupBenchmark [rows,rows,...]
+ * Defaults to 10k, 1M and 10M comics; the largest size needs a heap of a few GB (-Xmx4g).
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LookupBenchmark {
+    // Number of random lookups timed per catalog size
+    private static final int LOOKUPS = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        for (int rows : Datasets.sizes(args, 10_000, 1_000_000, 10_000_000)) {
+            Path file = Datasets.tempDir().resolve("comics.txt");
+            Datasets.writeComics(file, rows);
+            ComicManager manager = new ComicManager(file.toString());
+
+            // Pre-generate IDs so the random generator is not part of the measurement
+            int[] ids = new Random(1).ints(LOOKUPS, 1, rows + 1).toArray();
+            long found = 0;
+            for (int round = 0; round < 3; round++) {      // Rounds 0-1 warm up the JIT
+                long start = System.nanoTime();
+                for (int id : ids)
+                    if (manager.findById(id) != null) found++;
+                long elapsed = System.nanoTime() - start;
+                if (round == 2)
+                    System.out.printf("rows=%,d  findById=%.1f ns/op%n", rows, (double) elapsed / LOOKUPS);
+            }
+            if (found == 0) System.out.println("No comics found"); // Keeps the loop from being optimised away
+            Files.deleteIfExists(file);
+        }
+    }
+}
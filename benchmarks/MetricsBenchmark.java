@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import managers.*;
+import utils.LatencyHistogram;
+import utils.Metrics;
+
+/**
+ * MetricsBenchmark - Measures what recording metrics costs on the hot path.
+ * 
+ * Usage: java benchmarks.MetricsBenchmark [rows] [lookups]
+ * Times the raw instruments (a histogram record, a counter increment, and
+ * a start time plus recordSince, timing every call or one in 16) from one
+ * thread and from several threads at once, then runs the same findById()
+ * lookups over a catalog of the given size (100,000 comics by default) with timing switched on and off in
+ * alternating rounds and reports the difference per lookup.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class MetricsBenchmark {
+    // Rounds of each instrument and lookup measurement; the best round is reported
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 100_000)[0];
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram sampled = new LatencyHistogram(16);
+        Metrics.Counter counter = Metrics.counter("bench_events_total", "Benchmark events");
+        int ops = 10_000_000;
+        for (int threads : new int[] { 1, 4 }) {
+            report("histogram.record()", threads, ops, () -> {
+                for (int i = 0; i < ops; i++) histogram.record(i & 0xFFFFF);
+            });
+            report("counter.increment()", threads, ops, () -> {
+                for (int i = 0; i < ops; i++) counter.increment();
+            });
+            report("startTime()+recordSince()", threads, ops, () -> {
+                for (int i = 0; i < ops; i++) histogram.recordSince(Metrics.startTime());
+            });
+            report("sampled 1/16 timing", threads, ops, () -> {
+                for (int i = 0; i < ops; i++) sampled.recordSince(sampled.startTime());
+            });
+        }
+
+        Path file = Datasets.tempDir().resolve("comics.txt");
+        Datasets.writeComics(file, rows);
+        ComicManager manager = new ComicManager(file.toString(), new StoreOptions());
+        long[] best = { Long.MAX_VALUE, Long.MAX_VALUE };
+        long sink = 0;
+        for (int round = 0; round < ROUNDS * 2; round++) {
+            boolean on = round % 2 == 0;
+            Metrics.setEnabled(on);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) sink += manager.findById(random.nextInt(1, rows + 1)).getId();
+            long elapsed = System.nanoTime() - start;
+            int slot = on ? 1 : 0;
+            best[slot] = Math.min(best[slot], elapsed);
+        }
+        Metrics.setEnabled(true);
+        manager.close();
+        double off = (double) best[0] / lookups, on = (double) best[1] / lookups;
+        System.out.printf("findById()  metrics off=%,7.1f ns/op  on=%,7.1f ns/op  overhead=%,5.1f ns/op (%.1f%%)  [%d]%n",
+                off, on, on - off, (on - off) * 100 / off, sink & 1);
+    }
+
+    /**
+     * Runs a loop on several threads at once and prints the best time per operation.
+     * 
+     * @param name The name of the operation
+     * @param threads The number of threads running the loop
+     * @param ops The number of operations each loop performs
+     * @param loop The loop
+     * @throws Exception if a thread is interrupted
+     */
+    private static void report(String name, int threads, int ops, Runnable loop) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            CountDownLatch done = new CountDownLatch(threads);
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    loop.run();
+                    done.countDown();
+                });
+            }
+            done.await();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        pool.shutdown();
+        System.out.printf("%-28s threads=%d  %,6.1f ns/op (wall time per op on each thread)%n",
+                name, threads, (double) best / ops);
+    }
+}
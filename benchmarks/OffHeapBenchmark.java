@@ -0,0 +1,124 @@
+package benchmarks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import entities.Comic;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import managers.*;
+
+/**
+ * OffHeapBenchmark - Compares GC pauses and sale latency of the storage engines under a sales workload.
+ * 
+ * Usage: java -Xmx4g benchmarks.OffHeapBenchmark [rows] [seconds]
+ * Loads the same catalog (2M rows by default) into a journaled ComicManager
+ * with each storage engine, so the secondary and search indexes are live as
+ * in the application, then runs a synthetic sales loop for a fixed time:
+ * reserve one copy of a random comic and commit the sale (one journal
+ * record), build a receipt string (short-lived garbage, as real checkouts
+ * produce), and add a new title for one sale in a hundred. Sold-out comics
+ * are restocked through update(). Reports the p50, p99 and p99.9 latency
+ * of reserve plus commit, the GC pauses during the run and the time of one
+ * full collection with the catalog live. Compaction is held off during the
+ * run, so no snapshot is written.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class OffHeapBenchmark {
+    // Longest GC pause seen since the last reset, in milliseconds
+    private static final AtomicLong MAX_PAUSE = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 2_000_000)[0];
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        Path catalog = Datasets.tempDir().resolve("comics.txt");
+        Datasets.writeComics(catalog, rows);
+        watchPauses();
+
+        for (StorageEngine engine : StorageEngine.values()) {
+            Path file = Datasets.tempDir().resolve("comics.txt");
+            Files.copy(catalog, file);
+            StoreOptions options = StoreOptions.journaled();
+            options.setEngine(engine);
+            options.setCompactionThreshold(Integer.MAX_VALUE); // No snapshot during the run
+            options.setCompactionIntervalSeconds(24 * 3600);
+            ComicManager manager = new ComicManager(file.toString(), options);
+            System.gc();
+
+            long fullStart = System.nanoTime();
+            System.gc(); // One full collection with the whole catalog live
+            long fullGc = System.nanoTime() - fullStart;
+            Thread.sleep(500); // Let the notification for that collection arrive before the reset
+
+            long[] gcBefore = gcTotals();
+            MAX_PAUSE.set(0);
+            long[] samples = new long[1 << 22];
+            int sampled = 0;
+            long sales = 0;
+            long receiptBytes = 0;
+            Random random = new Random(7);
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                int id = 1 + random.nextInt(rows);
+                long start = System.nanoTime();
+                Reservation reservation = manager.reserve(id, 1);
+                if (reservation != null) manager.commit(reservation);
+                long elapsed = System.nanoTime() - start;
+                if (sampled < samples.length) samples[sampled++] = elapsed;
+                if (reservation == null) {
+                    manager.update(id, c -> c.setStocks(c.getStocks() + 10)); // Sold out: restock
+                    continue;
+                }
+                receiptBytes += ("Receipt " + id + " x" + reservation.getQuantity() + " #" + sales).length();
+                if (++sales % 100 == 0) {
+                    manager.add(new Comic(manager.nextId(), "New Release " + sales, "Author", 99.0, "Genre", 2026, 10));
+                }
+            }
+            long[] gcAfter = gcTotals();
+
+            Arrays.sort(samples, 0, sampled);
+            System.out.printf("engine=%-8s  rows=%,d  sales=%,d  sale p50=%,6.2f us  p99=%,7.2f us  p99.9=%,8.2f us"
+                    + "  GCs=%,d  GC time=%,d ms  max pause=%,d ms  full GC=%,.0f ms%n",
+                    engine, rows, sales, samples[sampled / 2] / 1e3, samples[(int) (sampled * 0.99)] / 1e3,
+                    samples[(int) (sampled * 0.999)] / 1e3, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1],
+                    MAX_PAUSE.get(), fullGc / 1e6);
+            if (receiptBytes == 0) System.out.println(); // Keeps the receipts from being optimized away
+            for (String name : new String[] { "comics.txt", "comics.txt.log", "comics.txt.seq" })
+                Files.deleteIfExists(file.resolveSibling(name));
+        }
+        Files.delete(catalog);
+    }
+
+    /**
+     * Gets the total collection count and time of all collectors.
+     * 
+     * @return The count and the time in milliseconds
+     */
+    private static long[] gcTotals() {
+        long count = 0, time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+            time += gc.getCollectionTime();
+        }
+        return new long[] { count, time };
+    }
+
+    /**
+     * Records the duration of every collection so the longest pause can be reported.
+     */
+    private static void watchPauses() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                if (info.getGcAction().contains("minor") || info.getGcAction().contains("major"))
+                    MAX_PAUSE.accumulateAndGet(info.getGcInfo().getDuration(), Math::max);
+            }, null, null);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import entities.Comic;
+import entities.Order;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import managers.*;
+
+/**
+ * OrderBenchmark - Load generator for the order ledger.
+ * 
+ * Usage: java benchmarks.OrderBenchmark [seconds] [comics] [customers]
+ * For each session count, every session places one-copy orders for random
+ * customers and comics as fast as it can for the given time. Each order is
+ * durable when placeOrder returns. The benchmark reports orders per second,
+ * the p50/p99 latency of placeOrder, and checks after reloading that the
+ * ledger holds every confirmed order and that no comic was oversold.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class OrderBenchmark {
+    public static void main(String[] args) throws Exception {
+        int seconds = Datasets.sizes(args, 5)[0];
+        int comicCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int customerCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        for (int sessions : new int[] { 1, 4, 16, 64 }) {
+            Path dir = Datasets.tempDir();
+            Path comicsFile = dir.resolve("comics.txt");
+            Path customersFile = dir.resolve("customers.txt");
+            Path ordersFile = dir.resolve("orders.txt");
+            Datasets.writeComics(comicsFile, comicCount);
+            Datasets.writeCustomers(customersFile, customerCount);
+            ComicManager comics = new ComicManager(comicsFile.toString(), StoreOptions.journaled());
+            CustomerManager customers = new CustomerManager(customersFile.toString());
+            OrderManager orders = new OrderManager(ordersFile.toString(), comics, customers);
+            long stockBefore = totalStock(comics);
+
+            LongAdder rejected = new LongAdder();
+            long[][] latencies = new long[sessions][];
+            int[] counts = new int[sessions];
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            ExecutorService pool = Executors.newFixedThreadPool(sessions);
+            long start = System.nanoTime();
+            for (int s = 0; s < sessions; s++) {
+                int session = s;
+                pool.execute(() -> {
+                    Random random = new Random(session);
+                    long[] nanos = new long[1024];
+                    int n = 0;
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        Order order = orders.placeOrder(1 + random.nextInt(customerCount), 1 + random.nextInt(comicCount), 1);
+                        long t1 = System.nanoTime();
+                        if (order == null) {
+                            rejected.increment(); // Sold out
+                            continue;
+                        }
+                        if (n == nanos.length) nanos = Arrays.copyOf(nanos, n * 2);
+                        nanos[n++] = t1 - t0;
+                    }
+                    latencies[session] = nanos;
+                    counts[session] = n;
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+
+            long[] all = new long[Arrays.stream(counts).sum()];
+            int filled = 0;
+            for (int s = 0; s < sessions; s++) {
+                System.arraycopy(latencies[s], 0, all, filled, counts[s]);
+                filled += counts[s];
+            }
+            Arrays.sort(all);
+            long stockAfter = totalStock(comics);
+            orders.close();
+            comics.close();
+            customers.close();
+
+            // Reload both files and check that stock and ledger agree
+            ComicManager reloadedComics = new ComicManager(comicsFile.toString(), StoreOptions.journaled());
+            OrderManager reloaded = new OrderManager(ordersFile.toString(), reloadedComics, customers);
+            boolean consistent = reloaded.getAll().size() == all.length
+                    && stockBefore - totalStock(reloadedComics) == all.length && stockBefore - stockAfter == all.length;
+            reloaded.close();
+            reloadedComics.close();
+
+            System.out.printf("sessions=%2d  orders=%,8.0f /s  p50=%,7.1f us  p99=%,8.1f us  placed=%,d  sold-out=%,d  consistent=%b%n",
+                    sessions, all.length * 1e9 / elapsed, Datasets.percentile(all, 0.50) / 1e3,
+                    Datasets.percentile(all, 0.99) / 1e3, all.length, rejected.sum(), consistent);
+        }
+    }
+
+    /**
+     * Sums the stock of every comic in the catalog.
+     * 
+     * @param comics The catalog
+     * @return The number of copies in stock
+     */
+    private static long totalStock(ComicManager comics) {
+        long total = 0;
+        for (Comic c : comics.getAll()) total += c.getStocks();
+        return total;
+    }
+}
@@ -0,0 +1,128 @@
+package benchmarks;
+
+import entities.Order;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import managers.ComicManager;
+import managers.CustomerManager;
+import managers.OrderManager;
+import managers.StoreOptions;
+
+/**
+ * OrderHistoryBenchmark - Measures an OrderManager in LEDGER mode on a large ledger.
+ * 
+ * Usage: java -Xmx6g benchmarks.OrderHistoryBenchmark [orders] [customers] [lookups]
+ * Writes a ledger of 100M orders spread over 1M customers by default and
+ * opens it with an OrderManager, which keeps only each order's offset in
+ * memory and builds the history index. Reports: the first open (offsets
+ * plus a full index build) and the heap it retains, closing (which saves
+ * the index), reopening after 1% more orders were appended (the history
+ * index reads only the tail), the latency of findById for random orders,
+ * of reading a 20-order history page for random customers (first and last
+ * page), and for comparison one full ledger scan for a single customer.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class OrderHistoryBenchmark {
+    // Orders per history page
+    private static final int PAGE = 20;
+
+    public static void main(String[] args) throws Exception {
+        int orders = Datasets.sizes(args, 100_000_000)[0];
+        int customerCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int lookups = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        Path dir = Datasets.tempDir();
+        Path comicsFile = dir.resolve("comics.txt");
+        Path customersFile = dir.resolve("customers.txt");
+        Path ledger = dir.resolve("orders.txt");
+        Datasets.writeComics(comicsFile, 10_000);
+        Datasets.writeCustomers(customersFile, customerCount);
+        ComicManager comics = new ComicManager(comicsFile.toString(), StoreOptions.journaled());
+        CustomerManager customers = new CustomerManager(customersFile.toString());
+        int tail = Math.max(1, orders / 100);
+        long start = System.nanoTime();
+        Datasets.appendOrders(ledger, 1, orders - tail, customerCount);
+        System.out.printf("ledger: %,d orders, %,d customers, %,.0f MB written in %,d ms%n", orders - tail, customerCount,
+                Files.size(ledger) / 1e6, (System.nanoTime() - start) / 1_000_000);
+
+        long heapBefore = usedHeap();
+        start = System.nanoTime();
+        OrderManager manager = new OrderManager(ledger.toString(), comics, customers);
+        long openNanos = System.nanoTime() - start;
+        long retained = usedHeap() - heapBefore;
+        int size = manager.size();
+        System.out.printf("first open:  %,d orders in %,d ms (%,.0f orders/s), heap %,.1f MB (%,.1f B/order)%n",
+                size, openNanos / 1_000_000, size * 1e9 / openNanos, retained / 1e6, (double) retained / size);
+        start = System.nanoTime();
+        manager.close();
+        System.out.printf("close:       %,d ms, history index file %,.0f MB%n", (System.nanoTime() - start) / 1_000_000,
+                Files.size(Paths.get(ledger + ".idx")) / 1e6);
+        manager = null;
+
+        Datasets.appendOrders(ledger, orders - tail + 1, tail, customerCount);
+        start = System.nanoTime();
+        manager = new OrderManager(ledger.toString(), comics, customers);
+        System.out.printf("reopen:      %,d ms, %,d orders (offsets read from the whole ledger, history from the tail)%n",
+                (System.nanoTime() - start) / 1_000_000, manager.size());
+
+        Random random = new Random(42);
+        long checksum = 0;
+        long[] nanos = new long[lookups];
+        for (int i = 0; i < lookups; i++) {
+            int id = 1 + random.nextInt(orders);
+            long t0 = System.nanoTime();
+            checksum += manager.findById(id).getCustomerId();
+            nanos[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("findById:    p50=%,7.1f us  p99=%,7.1f us%n", nanos[lookups / 2] / 1e3, nanos[(int) (lookups * 0.99)] / 1e3);
+        for (boolean last : new boolean[] { false, true }) {
+            for (int i = 0; i < lookups; i++) {
+                int customerId = 1 + random.nextInt(customerCount);
+                long t0 = System.nanoTime();
+                int from = last ? Math.max(0, manager.countByCustomer(customerId) - PAGE) : 0;
+                for (Order o : manager.findByCustomer(customerId, from, PAGE)) checksum += o.getId();
+                nanos[i] = System.nanoTime() - t0;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%s page: p50=%,7.1f us  p99=%,7.1f us  (%d orders per page)%n", last ? "last " : "first",
+                    nanos[lookups / 2] / 1e3, nanos[(int) (lookups * 0.99)] / 1e3, PAGE);
+        }
+
+        int customerId = 1 + random.nextInt(customerCount);
+        start = System.nanoTime();
+        int found = 0;
+        try (BufferedReader reader = Files.newBufferedReader(ledger)) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                Order o = Order.fromString(line);
+                if (o != null && o.getCustomerId() == customerId) found++;
+            }
+        }
+        System.out.printf("full scan:   %,d ms to find the %d orders of one customer (index: %d)%n",
+                (System.nanoTime() - start) / 1_000_000, found, manager.countByCustomer(customerId));
+        manager.close();
+        comics.close();
+        customers.close();
+        if (checksum == 42) System.out.println(); // Keeps the lookups from being optimized away
+    }
+
+    /**
+     * Gets the heap in use after collecting all garbage.
+     * 
+     * @return The used heap in bytes
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // Repeat until the collector has nothing left to free
+            System.gc();
+            Thread.sleep(100);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import managers.*;
+
+/**
+ * PersistenceBenchmark - Measures the latency a caller sees for one mutation in each persistence mode.
+ *
+ * Usage: java benchmarks.PersistenceBenchmark [rows] [mutations]
+ * Runs the given number of adds (200 by default) against a catalog of the
+ * given size, one at a time like the interactive menu does, and reports the
+ * median and 99th percentile time until add() returns. For WRITE_BEHIND the
+ * time of the final flush() is reported as well, since that is when the
+ * changes become durable.
+ *
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class PersistenceBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 100_000)[0];
+        int mutations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        for (PersistenceMode mode : PersistenceMode.values()) {
+            Path file = Datasets.tempDir().resolve("comics.txt");
+            Datasets.writeComics(file, rows);
+            StoreOptions options = new StoreOptions();
+            options.setPersistence(mode);
+            ComicManager manager = new ComicManager(file.toString(), options);
+
+            long[] latencies = new long[mutations];
+            for (int i = 0; i < mutations; i++) {
+                long start = System.nanoTime();
+                manager.add(new Comic(manager.nextId(), "New Title", "Author", 99.0, "Genre", 2024, 5));
+                latencies[i] = System.nanoTime() - start;
+            }
+            long flushStart = System.nanoTime();
+            manager.flush();
+            long flush = System.nanoTime() - flushStart;
+
+            Arrays.sort(latencies);
+            System.out.printf("mode=%-12s  rows=%,d  p50=%,10.1f us  p99=%,10.1f us  flush=%,8.1f ms%n",
+                    mode, rows, latencies[mutations / 2] / 1e3, latencies[mutations * 99 / 100] / 1e3, flush / 1e6);
+            manager.close();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import managers.ComicManager;
+
+/**
+ * SearchBenchmark - Measures ComicManager.search latency on a large catalog.
+ * 
+ * Usage: java -Xmx4g benchmarks.SearchBenchmark [rows]
+ * Defaults to 1M comics. Reports the mean latency of each query (top 20
+ * results) and, for comparison, a String.contains scan over every title.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class SearchBenchmark {
+    // Queries from very selective to very broad
+    private static final String[] QUERIES = {
+        "karoten hero", "mizulo sand", "gorne 42", "kamita", "hero acad", "boichi", "dragon", "d"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int rows = Datasets.sizes(args, 1_000_000)[0];
+        Path file = Datasets.tempDir().resolve("comics.txt");
+        Datasets.writeComics(file, rows);
+        ComicManager manager = new ComicManager(file.toString());
+        List<Comic> all = manager.getAll();
+
+        for (String query : QUERIES) {
+            run(manager, query, 500_000_000L);                 // Warm-up for half a second
+            double indexedUs = run(manager, query, 1_000_000_000L) / 1e3;
+
+            String needle = query.toLowerCase(Locale.ROOT);
+            long start = System.nanoTime();
+            int scanned = 0;
+            for (Comic c : all)
+                if (c.getTitle().toLowerCase(Locale.ROOT).contains(needle)) scanned++;
+            double scanUs = (System.nanoTime() - start) / 1e3;
+
+            System.out.printf("query=%-14s results=%2d  search=%,10.1f us  contains-scan=%,10.1f us (%,d hits)%n",
+                    '"' + query + '"', manager.search(query, 20).size(), indexedUs, scanUs, scanned);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Repeats a query for roughly the given time.
+     * 
+     * @return The mean latency in nanoseconds
+     */
+    private static double run(ComicManager manager, String query, long budgetNs) {
+        long start = System.nanoTime();
+        long count = 0;
+        long elapsed;
+        do {
+            manager.search(query, 20);
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budgetNs);
+        return (double) elapsed / count;
+    }
+}
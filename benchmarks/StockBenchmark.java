@@ -0,0 +1,56 @@
+package benchmarks;
+
+import entities.Comic;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import managers.*;
+
+/**
+ * StockBenchmark - Measures sales throughput on a single hot title under contention.
+ * 
+ * Usage: java benchmarks.StockBenchmark [stock]
+ * For each thread count, every thread repeatedly reserves and commits one
+ * copy of the same comic until the stock runs out. The benchmark reports
+ * sales per second and checks that exactly the available stock was sold.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class StockBenchmark {
+    public static void main(String[] args) throws Exception {
+        int stock = Datasets.sizes(args, 200_000)[0];
+        for (int threads : new int[] { 1, 2, 4, 8, 16, 32 }) {
+            Path file = Datasets.tempDir().resolve("comics.txt");
+            ComicManager manager = new ComicManager(file.toString());
+            int id = manager.nextId();
+            manager.add(new Comic(id, "Release Day Special", "Author", 199.0, "Superhero", 2026, stock));
+
+            LongAdder sold = new LongAdder();
+            LongAdder rejected = new LongAdder();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    while (true) {
+                        Reservation reservation = manager.reserve(id, 1);
+                        if (reservation == null) {
+                            rejected.increment();
+                            return; // Sold out
+                        }
+                        manager.commit(reservation);
+                        sold.increment();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+
+            boolean exact = sold.sum() == stock && manager.findById(id).getStocks() == 0;
+            System.out.printf("threads=%2d  sales=%,.0f /s  sold=%,d  oversold=%b%n",
+                    threads, sold.sum() * 1e9 / elapsed, sold.sum(), !exact);
+            manager.close();
+        }
+    }
+}
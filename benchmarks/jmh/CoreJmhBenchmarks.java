@@ -0,0 +1,144 @@
+package benchmarks.jmh;
+
+import benchmarks.Datasets;
+import entities.Comic;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import managers.ComicManager;
+import org.openjdk.jmh.annotations.*;
+import utils.FileHandler;
+
+/**
+ * CoreJmhBenchmarks - JMH benchmarks of the core load, save, lookup and parse paths.
+ * 
+ * Covers the same paths as CoreBenchmarks: FileHandler.readFile/writeFile,
+ * EntityManager.load/save/findById/nextId and Comic.fromString/toString,
+ * against a generated comics file of each size (1k to 1M rows by default;
+ * add 10M with -p rows=1000,...,10000000 and a larger heap through
+ * -jvmArgs -Xmx8g). Build with the jmh Maven profile and run:
+ * 
+ * mvn -P jmh package
+ * java -jar target/benchmarks.jar -rf json -rff jmh-report.json
+ * 
+ * The JSON report is JMH's machine-readable format; CoreBenchmarks with
+ * the Bench harness remains the fallback where Maven is not available.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CoreJmhBenchmarks {
+    // Number of lines parsed and formatted in rotation by the per-record benchmarks
+    private static final int SAMPLE = 200_000;
+
+    // Size of the generated dataset, in rows
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int rows;
+
+    // Generated comics file, and the file writeFile writes to
+    private Path file;
+    private Path copy;
+
+    // Lines of the generated file
+    private List<String> lines;
+
+    // Manager loaded from the generated file
+    private ComicManager manager;
+
+    // IDs looked up in rotation (a power-of-two count, so rotating is a mask)
+    private int[] ids;
+
+    // Lines and comics parsed and formatted in rotation
+    private String[] sample;
+    private Comic[] comics;
+
+    // Position in the rotations
+    private int next;
+
+    /**
+     * Writes the dataset and loads it once per trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path dir = Datasets.tempDir();
+        file = dir.resolve("comics.txt");
+        copy = dir.resolve("copy.txt");
+        Datasets.writeComics(file, rows);
+        lines = FileHandler.readFile(file.toString());
+        manager = new ComicManager(file.toString());
+        ids = new Random(1).ints(1 << 20, 1, rows + 1).toArray();
+        sample = lines.subList(0, Math.min(rows, SAMPLE)).toArray(new String[0]);
+        comics = new Comic[sample.length];
+        for (int i = 0; i < sample.length; i++) comics[i] = Comic.fromString(sample[i]);
+    }
+
+    /**
+     * Closes the manager and deletes the dataset.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        manager.close();
+        String name = file.toString();
+        for (String leftover : new String[] { name, name + ".seq", name + ".log", copy.toString() })
+            Files.deleteIfExists(Paths.get(leftover));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> readFile() {
+        return FileHandler.readFile(file.toString());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Path writeFile() {
+        FileHandler.writeFile(copy.toString(), lines);
+        return copy;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ComicManager load() {
+        ComicManager loaded = new ComicManager(file.toString());
+        loaded.close(); // Nothing to save: releases the journal only
+        return loaded;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ComicManager save() {
+        manager.save();
+        return manager;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Comic findById() {
+        return manager.findById(ids[next++ & (ids.length - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int nextId() {
+        return manager.nextId();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Comic comicFromString() {
+        if (next >= sample.length) next = 0;
+        return Comic.fromString(sample[next++]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String comicToString() {
+        if (next >= comics.length) next = 0;
+        return comics[next++].toString();
+    }
+}
@@ -1,5 +1,11 @@
 package entities;
 
+import java.io.*;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import utils.BinaryFile;
+import utils.FieldReader;
+import utils.Json;
+
 /**
  * Comic entity class representing a comic book in the Comic Book Store System.
  * 
@@ -29,8 +35,12 @@ public class Comic {
     // Publication year of the comic book
     private int year;
     
-    // Number of copies available in stock
-    private int stocks;
+    // Number of copies available in stock (volatile: changed by compare-and-set on sales)
+    private volatile int stocks;
+
+    // Lock-free access to the stocks field for concurrent sales
+    private static final AtomicIntegerFieldUpdater<Comic> STOCKS =
+            AtomicIntegerFieldUpdater.newUpdater(Comic.class, "stocks");
 
     /**
      * Constructor for creating a Comic instance.
@@ -53,6 +63,12 @@ public class Comic {
         this.stocks = stocks;
     }
 
+    /**
+     * Constructor for subclasses that keep the field values elsewhere
+     * (e.g. views over a columnar store) and override every accessor.
+     */
+    protected Comic() { }
+
     /**
      * Gets the unique identifier of the comic.
      * 
@@ -150,50 +166,127 @@ public class Comic {
      */
     public void setStocks(int stocks) { this.stocks = stocks; }
 
+    /**
+     * Atomically takes copies out of stock if enough are available.
+     * Uses compare-and-set, so concurrent sales never oversell and never block.
+     * 
+     * @param quantity The number of copies to take
+     * @return true if the copies were taken, false if stock was insufficient
+     */
+    public boolean tryTakeStocks(int quantity) {
+        while (true) {
+            int current = stocks;
+            if (current < quantity) return false;
+            if (STOCKS.compareAndSet(this, current, current - quantity)) return true;
+        }
+    }
+
+    /**
+     * Atomically puts copies back into stock (e.g. a cancelled reservation).
+     * 
+     * @param quantity The number of copies to return
+     */
+    public void returnStocks(int quantity) { STOCKS.addAndGet(this, quantity); }
+
+    /**
+     * Creates a detached copy of the comic holding the same values.
+     * Fields are read through the getters, so a view over a compact store
+     * is copied into a plain Comic.
+     * 
+     * @return A new Comic with the same field values
+     */
+    public Comic copy() {
+        return new Comic(getId(), getTitle(), getAuthor(), getPrice(), getGenre(), getYear(), getStocks());
+    }
+
     /**
      * Converts the comic to a string representation for file storage.
      * Uses comma-separated format: id,title,author,price,genre,year,stocks
+     * Fields are read through the getters so subclasses are serialized correctly.
      * 
      * @return String representation suitable for file storage
      */
     @Override
     public String toString() {
-        return id + "," + title + "," + author + "," + price + "," + genre + "," + year + "," + stocks;
+        return getId() + "," + getTitle() + "," + getAuthor() + "," + getPrice() + "," + getGenre() + ","
+                + getYear() + "," + getStocks();
     }
 
     /**
      * Static factory method to create a Comic instance from a string.
      * This method parses a comma-separated string to reconstruct a Comic object.
-     * Used for loading comic data from text files.
+     * Used for loading comic data from text files. Fields are tokenized and
+     * the numeric ones parsed in place, without String.split.
      * 
      * @param line A comma-separated string in the format: id,title,author,price,genre,year,stocks
      * @return Comic object if parsing is successful, null otherwise
      */
-    public static Comic fromString(String line) {
-        String[] parts = line.split(",");
+    public static Comic fromString(CharSequence line) {
+        FieldReader fields = new FieldReader(line);
+        int count = fields.fieldCount();
         // Handle both old format (4 fields) and new format (7 fields)
-        if (parts.length == 4) {
+        if (count == 4) {
             // Old format - set default values for new fields
-            return new Comic(Integer.parseInt(parts[0]), parts[1], parts[2], 
-                           Double.parseDouble(parts[3]), "Unknown", 2000, 1);
-        } else if (parts.length == 7) {
+            return new Comic(fields.nextInt(), fields.nextString(), fields.nextString(), 
+                           fields.nextDouble(), "Unknown", 2000, 1);
+        } else if (count == 7) {
             // New format
-            return new Comic(Integer.parseInt(parts[0]), parts[1], parts[2], 
-                           Double.parseDouble(parts[3]), parts[4], 
-                           Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+            return new Comic(fields.nextInt(), fields.nextString(), fields.nextString(), 
+                           fields.nextDouble(), fields.nextString(), 
+                           fields.nextInt(), fields.nextInt());
         } else {
             return null; // Invalid format
         }
     }
 
+    /**
+     * Writes the comic in the binary record format.
+     * Layout: id (int), title, author (strings), price (double), genre (string), year, stocks (int)
+     * 
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(getId());
+        BinaryFile.writeString(out, getTitle());
+        BinaryFile.writeString(out, getAuthor());
+        out.writeDouble(getPrice());
+        BinaryFile.writeString(out, getGenre());
+        out.writeInt(getYear());
+        out.writeInt(getStocks());
+    }
+
+    /**
+     * Static factory method to read a Comic written by writeTo.
+     * 
+     * @param in The stream to read from
+     * @return The Comic read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    public static Comic readFrom(DataInput in) throws IOException {
+        return new Comic(in.readInt(), BinaryFile.readString(in), BinaryFile.readString(in),
+                       in.readDouble(), BinaryFile.readString(in), in.readInt(), in.readInt());
+    }
+
+    /**
+     * Converts the comic to a JSON object for the HTTP API.
+     * 
+     * @return The comic as JSON
+     */
+    public String toJson() {
+        return "{\"id\":" + getId() + ",\"title\":" + Json.quote(getTitle()) + ",\"author\":" + Json.quote(getAuthor())
+                + ",\"price\":" + getPrice() + ",\"genre\":" + Json.quote(getGenre()) + ",\"year\":" + getYear()
+                + ",\"stocks\":" + getStocks() + "}";
+    }
+
     /**
      * Formats the comic details in a readable string for console output.
      * 
      * @return Formatted string for display purposes
      */
     public String display() {
-        return "ID: " + id + " | Title: " + title + " | Author: " + author + 
-               " | Price: P" + price + " | Genre: " + genre + 
-               " | Year: " + year + " | Stocks: " + stocks;
+        return "ID: " + getId() + " | Title: " + getTitle() + " | Author: " + getAuthor() + 
+               " | Price: P" + getPrice() + " | Genre: " + getGenre() + 
+               " | Year: " + getYear() + " | Stocks: " + getStocks();
     }
 }
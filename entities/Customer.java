@@ -1,5 +1,10 @@
 package entities;
 
+import java.io.*;
+import utils.BinaryFile;
+import utils.FieldReader;
+import utils.Json;
+
 /**
  * Customer entity class representing a customer in the Comic Book Store System.
  * 
@@ -38,6 +43,13 @@ public class Customer extends Person {
      */
     public void setContact(String contact) { this.contact = contact; }
 
+    /**
+     * Creates a detached copy of the customer holding the same values.
+     * 
+     * @return A new Customer with the same field values
+     */
+    public Customer copy() { return new Customer(id, name, contact); }
+
     /**
      * Converts the customer to a string representation for file storage.
      * Uses comma-separated format: id,name,contact
@@ -57,10 +69,43 @@ public class Customer extends Person {
      * @param line A comma-separated string in the format: id,name,contact
      * @return Customer object if parsing is successful, null otherwise
      */
-    public static Customer fromString(String line) {
-        String[] parts = line.split(",");
-        if (parts.length != 3) return null; // Invalid format
-        return new Customer(Integer.parseInt(parts[0]), parts[1], parts[2]);
+    public static Customer fromString(CharSequence line) {
+        FieldReader fields = new FieldReader(line);
+        if (fields.fieldCount() != 3) return null; // Invalid format
+        return new Customer(fields.nextInt(), fields.nextString(), fields.nextString());
+    }
+
+    /**
+     * Writes the customer in the binary record format.
+     * Layout: id (int), name, contact (strings)
+     * 
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(id);
+        BinaryFile.writeString(out, name);
+        BinaryFile.writeString(out, contact);
+    }
+
+    /**
+     * Static factory method to read a Customer written by writeTo.
+     * 
+     * @param in The stream to read from
+     * @return The Customer read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    public static Customer readFrom(DataInput in) throws IOException {
+        return new Customer(in.readInt(), BinaryFile.readString(in), BinaryFile.readString(in));
+    }
+
+    /**
+     * Converts the customer to a JSON object for the HTTP API.
+     * 
+     * @return The customer as JSON
+     */
+    public String toJson() {
+        return "{\"id\":" + id + ",\"name\":" + Json.quote(name) + ",\"contact\":" + Json.quote(contact) + "}";
     }
 
     /**
@@ -0,0 +1,192 @@
+package entities;
+
+import java.io.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import utils.FieldReader;
+
+/**
+ * Order entity class representing a purchase in the Comic Book Store System.
+ * 
+ * An order records that a customer bought a number of copies of one comic
+ * at the price the comic had at that moment. Orders are immutable: once
+ * placed they are only ever appended to the order ledger, never changed.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Order {
+    // Formats the order time for console output
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // Unique identifier for the order
+    private final int id;
+
+    // ID of the customer who placed the order
+    private final int customerId;
+
+    // ID of the comic bought
+    private final int comicId;
+
+    // Number of copies bought
+    private final int quantity;
+
+    // Price of one copy when the order was placed, in pesos
+    private final double unitPrice;
+
+    // When the order was placed (milliseconds since the epoch)
+    private final long placedAt;
+
+    /**
+     * Constructor for creating an Order instance.
+     * 
+     * @param id The unique identifier for the order
+     * @param customerId The ID of the customer who placed the order
+     * @param comicId The ID of the comic bought
+     * @param quantity The number of copies bought
+     * @param unitPrice The price of one copy in pesos
+     * @param placedAt When the order was placed, in milliseconds since the epoch
+     * @throws IllegalArgumentException if quantity or unit price is not positive
+     */
+    public Order(int id, int customerId, int comicId, int quantity, double unitPrice, long placedAt) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+        if (unitPrice <= 0) {
+            throw new IllegalArgumentException("Price must be greater than 0");
+        }
+        this.id = id;
+        this.customerId = customerId;
+        this.comicId = comicId;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.placedAt = placedAt;
+    }
+
+    /**
+     * Gets the unique identifier of the order.
+     * 
+     * @return The order's ID
+     */
+    public int getId() { return id; }
+
+    /**
+     * Gets the ID of the customer who placed the order.
+     * 
+     * @return The customer's ID
+     */
+    public int getCustomerId() { return customerId; }
+
+    /**
+     * Gets the ID of the comic bought.
+     * 
+     * @return The comic's ID
+     */
+    public int getComicId() { return comicId; }
+
+    /**
+     * Gets the number of copies bought.
+     * 
+     * @return The quantity
+     */
+    public int getQuantity() { return quantity; }
+
+    /**
+     * Gets the price of one copy when the order was placed.
+     * 
+     * @return The unit price in pesos
+     */
+    public double getUnitPrice() { return unitPrice; }
+
+    /**
+     * Gets when the order was placed.
+     * 
+     * @return Milliseconds since the epoch
+     */
+    public long getPlacedAt() { return placedAt; }
+
+    /**
+     * Gets the amount paid for the order.
+     * 
+     * @return The unit price times the quantity, in pesos
+     */
+    public double getTotal() { return unitPrice * quantity; }
+
+    /**
+     * Converts the order to a string representation for file storage.
+     * Uses comma-separated format: id,customerId,comicId,quantity,unitPrice,placedAt
+     * 
+     * @return String representation suitable for file storage
+     */
+    @Override
+    public String toString() {
+        return id + "," + customerId + "," + comicId + "," + quantity + "," + unitPrice + "," + placedAt;
+    }
+
+    /**
+     * Static factory method to create an Order instance from a string.
+     * Used for loading orders from the ledger file.
+     * 
+     * @param line A comma-separated string in the format: id,customerId,comicId,quantity,unitPrice,placedAt
+     * @return Order object if parsing is successful, null otherwise
+     */
+    public static Order fromString(CharSequence line) {
+        FieldReader fields = new FieldReader(line);
+        if (fields.fieldCount() != 6) return null; // Invalid format
+        try {
+            return new Order(fields.nextInt(), fields.nextInt(), fields.nextInt(), fields.nextInt(),
+                             fields.nextDouble(), fields.nextLong());
+        } catch (IllegalArgumentException e) {
+            return null; // Torn or corrupt record
+        }
+    }
+
+    /**
+     * Writes the order in the binary record format.
+     * Layout: id, customerId, comicId, quantity (int), unitPrice (double), placedAt (long)
+     * 
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(customerId);
+        out.writeInt(comicId);
+        out.writeInt(quantity);
+        out.writeDouble(unitPrice);
+        out.writeLong(placedAt);
+    }
+
+    /**
+     * Static factory method to read an Order written by writeTo.
+     * 
+     * @param in The stream to read from
+     * @return The Order read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    public static Order readFrom(DataInput in) throws IOException {
+        return new Order(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readDouble(), in.readLong());
+    }
+
+    /**
+     * Converts the order to a JSON object for the HTTP API.
+     * 
+     * @return The order as JSON
+     */
+    public String toJson() {
+        return "{\"id\":" + id + ",\"customerId\":" + customerId + ",\"comicId\":" + comicId + ",\"quantity\":"
+                + quantity + ",\"unitPrice\":" + unitPrice + ",\"total\":" + getTotal() + ",\"placedAt\":" + placedAt + "}";
+    }
+
+    /**
+     * Formats the order details in a readable string for console output.
+     * 
+     * @return Formatted string for display purposes
+     */
+    public String display() {
+        return "Order #" + id + " | " + TIME_FORMAT.format(Instant.ofEpochMilli(placedAt)) + " | Comic ID: " + comicId
+                + " | Qty: " + quantity + " | Unit price: P" + unitPrice + " | Total: P" + getTotal();
+    }
+}
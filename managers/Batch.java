@@ -0,0 +1,109 @@
+package managers;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Batch class - A group of adds, updates and deletes applied as one unit.
+ * 
+ * Created by EntityManager.batch(). Changes are only recorded until commit(),
+ * which applies all of them under a single write lock and persists them
+ * once: one snapshot in SNAPSHOT mode, or one journal group and one fsync
+ * in JOURNAL mode. If any change fails, the changes already applied are
+ * undone and nothing is persisted.
+ * 
+ * @param <T> The type of entity being changed
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Batch<T> {
+    // Kinds of recorded change
+    enum Kind { ADD, UPDATE, DELETE }
+
+    /**
+     * One recorded change. Only the fields used by its kind are set.
+     */
+    static final class Change<T> {
+        final Kind kind;                    // What the change does
+        final int id;                       // Target ID (update and delete)
+        final T entity;                     // Entity to add
+        final Consumer<? super T> edit;     // Edit applied to the entity (update)
+
+        Change(Kind kind, int id, T entity, Consumer<? super T> edit) {
+            this.kind = kind;
+            this.id = id;
+            this.entity = entity;
+            this.edit = edit;
+        }
+    }
+
+    // Manager the batch is committed to
+    private final EntityManager<T> manager;
+
+    // Changes recorded so far, in order
+    private final List<Change<T>> changes = new ArrayList<>();
+
+    /**
+     * Constructor for creating a Batch instance.
+     * 
+     * @param manager The manager the batch is committed to
+     */
+    Batch(EntityManager<T> manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Records the addition of a new entity.
+     * 
+     * @param entity The entity to add
+     */
+    public void add(T entity) {
+        changes.add(new Change<>(Kind.ADD, 0, entity, null));
+    }
+
+    /**
+     * Records an update to an existing entity. The edit runs during commit(),
+     * on the stored entity, while the manager is locked for writing.
+     * 
+     * @param id The ID of the entity to update
+     * @param edit Applies the new values to the entity
+     */
+    public void update(int id, Consumer<? super T> edit) {
+        changes.add(new Change<>(Kind.UPDATE, id, null, edit));
+    }
+
+    /**
+     * Records the deletion of an entity. Deleting a missing ID does nothing.
+     * 
+     * @param id The ID of the entity to delete
+     */
+    public void delete(int id) {
+        changes.add(new Change<>(Kind.DELETE, id, null, null));
+    }
+
+    /**
+     * Gets the number of changes recorded and not yet committed.
+     * 
+     * @return The number of pending changes
+     */
+    public int size() { return changes.size(); }
+
+    /**
+     * Applies and persists all recorded changes, then empties the batch.
+     * 
+     * @throws IllegalArgumentException if an add has a duplicate ID or an
+     *         update names a missing ID; no change is applied in that case
+     */
+    public void commit() {
+        try {
+            manager.commit(changes);
+        } finally {
+            changes.clear();
+        }
+    }
+
+    /**
+     * Discards all recorded changes.
+     */
+    public void clear() { changes.clear(); }
+}
@@ -0,0 +1,110 @@
+package managers;
+
+/**
+ * CacheStats class - Snapshot of the entity cache counters of the LAZY storage engine.
+ * 
+ * Counters run from the end of the last load. A hit is a lookup answered
+ * from memory (cached or pinned entities), a miss one that had to read the
+ * record from the data file, and an eviction a clean entity dropped to keep
+ * the cache within its size.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class CacheStats {
+    // Maximum number of clean entities cached
+    private final int capacity;
+
+    // Clean entities currently cached
+    private final int cached;
+
+    // Changed or new entities pinned in memory until the next snapshot
+    private final int dirty;
+
+    // Lookup and eviction counters
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    /**
+     * Constructor for creating a CacheStats instance.
+     * 
+     * @param capacity The maximum number of clean entities cached
+     * @param cached The number of clean entities cached
+     * @param dirty The number of entities pinned until the next snapshot
+     * @param hits The number of lookups answered from memory
+     * @param misses The number of lookups read from the data file
+     * @param evictions The number of entities evicted
+     */
+    public CacheStats(int capacity, int cached, int dirty, long hits, long misses, long evictions) {
+        this.capacity = capacity;
+        this.cached = cached;
+        this.dirty = dirty;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Gets the maximum number of clean entities cached.
+     * 
+     * @return The cache size in entities
+     */
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Gets the number of clean entities currently cached.
+     * 
+     * @return The cached entity count
+     */
+    public int getCached() { return cached; }
+
+    /**
+     * Gets the number of entities pinned until the next snapshot.
+     * 
+     * @return The dirty entity count
+     */
+    public int getDirty() { return dirty; }
+
+    /**
+     * Gets the number of lookups answered from memory.
+     * 
+     * @return The hit count
+     */
+    public long getHits() { return hits; }
+
+    /**
+     * Gets the number of lookups read from the data file.
+     * 
+     * @return The miss count
+     */
+    public long getMisses() { return misses; }
+
+    /**
+     * Gets the number of entities evicted from the cache.
+     * 
+     * @return The eviction count
+     */
+    public long getEvictions() { return evictions; }
+
+    /**
+     * Gets the share of lookups answered from memory.
+     * 
+     * @return The hit rate between 0 and 1 (0 before the first lookup)
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Converts the counters to a one-line summary.
+     * 
+     * @return The summary
+     */
+    @Override
+    public String toString() {
+        return String.format("cached=%d/%d dirty=%d hits=%d misses=%d evictions=%d hit rate=%.1f%%",
+                cached, capacity, dirty, hits, misses, evictions, getHitRate() * 100);
+    }
+}
@@ -0,0 +1,657 @@
+package managers;
+
+import entities.Comic;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import utils.AtomicFile;
+import utils.BinaryFile;
+import utils.FileHandler;
+import utils.JournalWriter;
+import utils.Json;
+import utils.LongHashSet;
+
+/**
+ * CatalogTool class - Command-line bulk import and export of the comic catalog.
+ * 
+ * Usage: java managers.CatalogTool import &lt;feed&gt; [data file] [threads]
+ *        java managers.CatalogTool export &lt;output&gt; [data file]
+ * The data file defaults to data/comics.txt. Files ending in .jsonl, .ndjson
+ * or .json hold one flat JSON object per line; anything else is CSV.
+ * 
+ * Import streams a distributor feed into the catalog without loading either
+ * into memory. Feed rows have the fields title, author, price, genre, year
+ * and stocks. A CSV feed may start with a header naming its columns (in any
+ * order; other columns such as id are ignored); without one, rows are
+ * title,author,price,genre,year,stocks, or the data file layout with a
+ * leading id. Rows are validated in parallel by the same rules as the rest
+ * of the store (Comic.setPrice for prices, no commas or line breaks in text,
+ * stocks not negative), and rows whose title and author match a comic
+ * already in the catalog or earlier in the feed are dropped as duplicates.
+ * The accepted rows get consecutive new IDs and are appended to a copy of
+ * the catalog, which then replaces the data file in one atomic rename; the
+ * previous catalog is kept as &lt;data file&gt;.bak.1. Rejected rows are
+ * listed with their line number and reason in &lt;feed&gt;.rejects.
+ * 
+ * Memory stays bounded by a fixed number of row chunks in flight plus a
+ * 64-bit fingerprint per distinct title and author (11 to 21 bytes each).
+ * Two different comics share a fingerprint with a probability of about one
+ * in 370,000 for a 10M-row catalog; the later one is then reported as a
+ * duplicate.
+ * 
+ * Both commands first fold a pending journal and any checkpoint delta files
+ * into the data file. The store must not be running while the tool works
+ * on its files.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class CatalogTool {
+    // Feed rows handed to one validation task
+    private static final int CHUNK_SIZE = 4096;
+
+    // Validation chunks in flight per worker thread; bounds the feed rows held in memory
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Fields of a feed row, in the order used by a CSV feed without a header
+    private static final String[] COLUMNS = { "title", "author", "price", "genre", "year", "stocks" };
+
+    // Header written by a CSV export (the data file layout)
+    private static final String EXPORT_HEADER = "id,title,author,price,genre,year,stocks";
+
+    // Number of previous catalog versions kept by an import
+    private static final int BACKUPS = 1;
+
+    /**
+     * Entry point of the tool.
+     * 
+     * @param args Command, feed or output file, optional data file and optional thread count
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java managers.CatalogTool import <feed> [data file] [threads]");
+            System.out.println("       java managers.CatalogTool export <output> [data file]");
+            return;
+        }
+        String dataFile = args.length > 2 ? args[2] : "data/comics.txt";
+        try {
+            switch (args[0]) {
+                case "import" : {
+                    int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+                    Report report = importFeed(args[1], dataFile, threads);
+                    System.out.println(report);
+                    if (report.getRejected() > 0) System.out.println("Rejected rows are listed in " + rejectsFile(args[1]));
+                    break;
+                }
+                case "export" : {
+                    long start = System.nanoTime();
+                    long rows = export(dataFile, args[1]);
+                    System.out.printf("Exported %,d comics to %s in %,d ms%n", rows, args[1],
+                            (System.nanoTime() - start) / 1_000_000);
+                    break;
+                }
+                default : System.out.println("Unknown command: " + args[0]);
+            }
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Imports a feed into a catalog data file.
+     * 
+     * @param feed The path to the CSV or JSON-lines feed
+     * @param dataFile The path to the catalog data file (text format)
+     * @param threads The number of threads validating rows
+     * @return The counts of the import
+     * @throws IOException if a file cannot be read or written; the catalog is then left unchanged
+     */
+    public static Report importFeed(String feed, String dataFile, int threads) throws IOException {
+        long start = System.nanoTime();
+        prepare(dataFile);
+        Import run = new Import(feed, dataFile, Math.max(1, threads));
+        AtomicFile.write(dataFile, BACKUPS, run::writeCatalog);
+        FileHandler.writeLines(dataFile + ".seq", List.of(String.valueOf(run.lastId)), 0);
+        if (run.report.getRejected() == 0) new File(rejectsFile(feed)).delete();
+        run.report.nanos = System.nanoTime() - start;
+        return run.report;
+    }
+
+    /**
+     * Exports a catalog data file as CSV (with a header) or JSON lines.
+     * 
+     * @param dataFile The path to the catalog data file (text format)
+     * @param target The path of the file to write
+     * @return The number of comics exported
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long export(String dataFile, String target) throws IOException {
+        prepare(dataFile);
+        boolean json = isJsonLines(target);
+        long[] rows = { 0 };
+        AtomicFile.write(target, 0, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, FileHandler.CHARSET), 1 << 16);
+            if (!json) writer.write(EXPORT_HEADER + System.lineSeparator());
+            if (new File(dataFile).exists()) {
+                try (BufferedReader in = new BufferedReader(new FileReader(dataFile, FileHandler.CHARSET), 1 << 16)) {
+                    for (String line; (line = in.readLine()) != null; ) {
+                        Comic comic = parseStored(line);
+                        if (comic == null) continue;
+                        writer.write(json ? comic.toJson() : comic.toString());
+                        writer.write(System.lineSeparator());
+                        rows[0]++;
+                    }
+                }
+            }
+            writer.flush();
+        });
+        return rows[0];
+    }
+
+    /**
+     * Gets the file an import lists its rejected rows in.
+     * 
+     * @param feed The path to the feed
+     * @return The rejects file path
+     */
+    public static String rejectsFile(String feed) { return feed + ".rejects"; }
+
+    /**
+     * Checks that a data file is in the text format and folds its journal
+     * and delta files into it, so the file alone holds the whole catalog.
+     * They are replayed through a LAZY ComicManager, which keeps only
+     * record offsets and the replayed comics in memory.
+     */
+    private static void prepare(String dataFile) throws IOException {
+        File file = new File(dataFile);
+        if (file.length() >= 4) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                if (in.readInt() == BinaryFile.MAGIC) {
+                    throw new IOException(dataFile + " is a binary data file; convert it to text with FormatConverter first");
+                }
+            }
+        }
+        String log = dataFile + ".log";
+        if (new File(log).length() > 0 || new File(JournalWriter.rotatedFile(log)).exists()
+                || !CheckpointStore.deltaFiles(dataFile).isEmpty()) {
+            StoreOptions options = StoreOptions.journaled();
+            options.setEngine(StorageEngine.LAZY);
+            new ComicManager(dataFile, options).close(); // Replays them and writes a snapshot
+        }
+    }
+
+    /**
+     * Parses a data file line, skipping lines the store would not load.
+     */
+    private static Comic parseStored(String line) {
+        try {
+            return Comic.fromString(line.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tells from a file name whether it holds JSON lines rather than CSV.
+     */
+    private static boolean isJsonLines(String filename) {
+        String name = filename.toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+    }
+
+    /**
+     * State of one import: the catalog copy, the duplicate check and the counts.
+     */
+    private static final class Import {
+        // Path to the feed
+        private final String feed;
+
+        // Path to the catalog data file
+        private final String dataFile;
+
+        // Number of validation threads
+        private final int threads;
+
+        // Whether the feed holds JSON lines
+        private final boolean json;
+
+        // Fingerprints of the title and author of every comic in the catalog so far
+        private final LongHashSet seen = new LongHashSet();
+
+        // Largest comic ID issued so far
+        private int lastId;
+
+        // Counts reported at the end
+        private final Report report = new Report();
+
+        Import(String feed, String dataFile, int threads) {
+            this.feed = feed;
+            this.dataFile = dataFile;
+            this.threads = threads;
+            this.json = isJsonLines(feed);
+        }
+
+        /**
+         * Writes the new catalog: the current one followed by the accepted feed rows.
+         */
+        void writeCatalog(OutputStream out) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, FileHandler.CHARSET), 1 << 16);
+            copyCatalog(writer);
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            try (BufferedReader in = new BufferedReader(new FileReader(feed, FileHandler.CHARSET), 1 << 16);
+                 Writer rejects = new BufferedWriter(new FileWriter(rejectsFile(feed), FileHandler.CHARSET), 1 << 16)) {
+                importRows(in, writer, rejects, workers);
+            } finally {
+                workers.shutdownNow();
+            }
+            writer.flush();
+        }
+
+        /**
+         * Copies the current catalog and records its IDs and title and author fingerprints.
+         * The ID high-water mark also honours the sequence file, so IDs of
+         * deleted comics are never handed out again.
+         */
+        private void copyCatalog(Writer writer) throws IOException {
+            File sequence = new File(dataFile + ".seq");
+            if (sequence.exists()) {
+                for (String line : FileHandler.readFile(sequence.getPath())) {
+                    try {
+                        if (!line.isEmpty()) lastId = Math.max(lastId, Integer.parseInt(line));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Ignoring invalid ID sequence file: " + sequence);
+                    }
+                }
+            }
+            if (!new File(dataFile).exists()) return;
+            try (BufferedReader in = new BufferedReader(new FileReader(dataFile, FileHandler.CHARSET), 1 << 16)) {
+                for (String line; (line = in.readLine()) != null; ) {
+                    writer.write(line); // Kept as is, even lines the store skips on load
+                    writer.write(System.lineSeparator());
+                    Comic comic = parseStored(line);
+                    if (comic == null) continue;
+                    seen.add(key(comic.getTitle(), comic.getAuthor()));
+                    lastId = Math.max(lastId, comic.getId());
+                }
+            }
+        }
+
+        /**
+         * Reads the feed in chunks, validates them on the workers and writes
+         * the results in feed order. At most CHUNKS_PER_THREAD chunks per
+         * worker are read ahead of the writer.
+         */
+        private void importRows(BufferedReader in, Writer writer, Writer rejects, ExecutorService workers)
+                throws IOException {
+            String first = in.readLine();
+            int[] columns = json || first == null ? null : header(first);
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            Chunk chunk = new Chunk();
+            long lineNumber = 1;
+            if (first != null && columns == null) chunk.add(lineNumber, first);
+            while (true) {
+                String line = in.readLine();
+                lineNumber++;
+                if (line != null) chunk.add(lineNumber, line);
+                if (chunk.size == CHUNK_SIZE || (line == null && chunk.size > 0)) {
+                    Chunk full = chunk;
+                    pending.add(workers.submit(() -> full.validate(json, columns)));
+                    chunk = new Chunk();
+                    if (pending.size() >= threads * CHUNKS_PER_THREAD) write(await(pending.poll()), writer, rejects);
+                }
+                if (line == null) break;
+            }
+            while (!pending.isEmpty()) write(await(pending.poll()), writer, rejects);
+        }
+
+        /**
+         * Writes the accepted rows of a validated chunk with new IDs and lists
+         * the others as rejects. Runs on the importing thread only.
+         */
+        private void write(Chunk chunk, Writer writer, Writer rejects) throws IOException {
+            for (int i = 0; i < chunk.size; i++) {
+                report.rows++;
+                String reason = chunk.errors[i];
+                if (reason == null && !seen.add(chunk.keys[i])) {
+                    reason = "Duplicate title and author";
+                    report.duplicates++;
+                } else if (reason != null) {
+                    report.invalid++;
+                }
+                if (reason != null) {
+                    rejects.write(chunk.lineNumbers[i] + ": " + reason + ": " + chunk.lines[i] + System.lineSeparator());
+                    continue;
+                }
+                if (lastId == Integer.MAX_VALUE) throw new IOException("No comic IDs left to assign");
+                writer.write(Integer.toString(++lastId));
+                writer.write(chunk.records[i]);
+                writer.write(System.lineSeparator());
+                report.imported++;
+            }
+        }
+
+        /**
+         * Waits for a validation task.
+         */
+        private static Chunk await(Future<Chunk> task) throws IOException {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import interrupted");
+            } catch (ExecutionException e) {
+                throw new IOException("Validation failed: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reads a CSV header line.
+     * 
+     * @param line The first line of the feed
+     * @return The position of each of COLUMNS in a row, or null if the line is not a header
+     * @throws IOException if the header lacks one of the fields
+     */
+    private static int[] header(String line) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String name : csvFields(line)) names.add(name.trim().toLowerCase(Locale.ROOT));
+        if (!names.contains("title")) return null;
+        int[] columns = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columns[c] = names.indexOf(COLUMNS[c]);
+            if (columns[c] < 0) throw new IOException("Feed header has no '" + COLUMNS[c] + "' column");
+        }
+        return columns;
+    }
+
+    /**
+     * A run of feed rows and, once validated, their records or reject reasons.
+     */
+    private static final class Chunk {
+        // Feed line number of each row
+        final long[] lineNumbers = new long[CHUNK_SIZE];
+
+        // Raw feed rows
+        final String[] lines = new String[CHUNK_SIZE];
+
+        // Title and author fingerprint of each valid row
+        final long[] keys = new long[CHUNK_SIZE];
+
+        // Record of each valid row without its ID (",title,author,...")
+        final String[] records = new String[CHUNK_SIZE];
+
+        // Reject reason of each invalid row, null for valid rows
+        final String[] errors = new String[CHUNK_SIZE];
+
+        // Number of rows in the chunk
+        int size;
+
+        /**
+         * Adds a feed row; blank lines are skipped.
+         */
+        void add(long lineNumber, String line) {
+            if (line.isBlank()) return;
+            lineNumbers[size] = lineNumber;
+            lines[size++] = line;
+        }
+
+        /**
+         * Validates every row of the chunk.
+         * 
+         * @param json Whether the rows are JSON objects rather than CSV
+         * @param columns The CSV header mapping, or null for the default layout
+         * @return This chunk
+         */
+        Chunk validate(boolean json, int[] columns) {
+            for (int i = 0; i < size; i++) {
+                try {
+                    Comic comic = json ? fromJson(lines[i]) : fromCsv(lines[i], columns);
+                    keys[i] = key(comic.getTitle(), comic.getAuthor());
+                    records[i] = comic.toString().substring(1); // Drop the placeholder ID 0
+                } catch (IllegalArgumentException e) {
+                    errors[i] = e.getMessage();
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Builds a comic from a CSV feed row.
+     * 
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Comic fromCsv(String line, int[] columns) {
+        List<String> fields = csvFields(line);
+        Object[] values = new Object[COLUMNS.length];
+        if (columns != null) {
+            for (int c = 0; c < COLUMNS.length; c++) values[c] = columns[c] < fields.size() ? fields.get(columns[c]) : null;
+        } else if (fields.size() == COLUMNS.length || fields.size() == COLUMNS.length + 1) {
+            int skip = fields.size() - COLUMNS.length; // A leading id column is ignored
+            for (int c = 0; c < COLUMNS.length; c++) values[c] = fields.get(skip + c);
+        } else {
+            throw new IllegalArgumentException("Expected " + COLUMNS.length + " fields but found " + fields.size());
+        }
+        return comic(values);
+    }
+
+    /**
+     * Builds a comic from a JSON-lines feed row.
+     * 
+     * @throws IllegalArgumentException if the row is invalid
+     */
+    private static Comic fromJson(String line) {
+        Map<String, Object> members = Json.parseObject(line);
+        Object[] values = new Object[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) values[c] = members.get(COLUMNS[c]);
+        return comic(values);
+    }
+
+    /**
+     * Validates the field values of a row and builds the comic, with the placeholder ID 0.
+     * 
+     * @param values The values in COLUMNS order (Strings, or Doubles from JSON)
+     * @throws IllegalArgumentException if a value is missing or invalid
+     */
+    private static Comic comic(Object[] values) {
+        String title = text("title", values[0]);
+        String author = text("author", values[1]);
+        double price = number("price", values[2]);
+        String genre = text("genre", values[3]);
+        int year = integer("year", values[4]);
+        int stocks = integer("stocks", values[5]);
+        if (stocks < 0) throw new IllegalArgumentException("Field 'stocks' must not be negative");
+        return new Comic(0, title, author, price, genre, year, stocks); // Comic.setPrice checks the price
+    }
+
+    /**
+     * Reads a text value. Commas and line breaks are rejected because
+     * records are stored as comma-separated lines.
+     */
+    private static String text(String name, Object value) {
+        if (!(value instanceof String)) throw missingOr(name, value, "a string");
+        String s = ((String) value).trim();
+        if (s.isEmpty()) throw new IllegalArgumentException("Field '" + name + "' must not be empty");
+        if (s.indexOf(',') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Field '" + name + "' must not contain commas or line breaks");
+        }
+        return s;
+    }
+
+    /**
+     * Reads a numeric value, given as a JSON number or as text.
+     */
+    private static double number(String name, Object value) {
+        double d;
+        if (value instanceof Double) {
+            d = (Double) value;
+        } else if (value instanceof String) {
+            try {
+                d = Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Field '" + name + "' must be a number");
+            }
+        } else {
+            throw missingOr(name, value, "a number");
+        }
+        if (!Double.isFinite(d)) throw new IllegalArgumentException("Field '" + name + "' must be a number");
+        return d;
+    }
+
+    /**
+     * Reads an integer value, given as a JSON number or as text.
+     */
+    private static int integer(String name, Object value) {
+        double d = number(name, value);
+        if (d != Math.rint(d) || d < Integer.MIN_VALUE || d > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field '" + name + "' must be an integer");
+        }
+        return (int) d;
+    }
+
+    /**
+     * Builds the error for a value that is absent or of the wrong type.
+     */
+    private static IllegalArgumentException missingOr(String name, Object value, String expected) {
+        if (value == null) return new IllegalArgumentException("Field '" + name + "' is missing");
+        return new IllegalArgumentException("Field '" + name + "' must be " + expected);
+    }
+
+    /**
+     * Splits a CSV line into fields. Fields may be enclosed in double quotes,
+     * with "" standing for a quote inside them.
+     * 
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>(8);
+        if (line.indexOf('"') < 0) { // Common case: plain fields are cut out without copying char by char
+            int start = 0;
+            for (int comma; (comma = line.indexOf(',', start)) >= 0; start = comma + 1) {
+                fields.add(line.substring(start, comma));
+            }
+            fields.add(line.substring(start));
+            return fields;
+        }
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Computes the duplicate-check fingerprint of a title and author:
+     * a 64-bit FNV-1a hash that ignores case and surrounding whitespace.
+     */
+    private static long key(String title, String author) {
+        long h = 0xcbf29ce484222325L;
+        h = hash(h, title.trim());
+        h = (h ^ 0xFFFF) * 0x100000001b3L; // Separator, so "ab"+"c" differs from "a"+"bc"
+        return hash(h, author.trim());
+    }
+
+    /**
+     * Folds the lower-cased characters of a string into an FNV-1a hash.
+     */
+    private static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ Character.toLowerCase(s.charAt(i))) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Counts of one import.
+     */
+    public static final class Report {
+        // Feed rows read (blank lines and a header excluded)
+        private long rows;
+
+        // Rows added to the catalog
+        private long imported;
+
+        // Rows rejected by validation
+        private long invalid;
+
+        // Rows rejected as duplicates of a comic with the same title and author
+        private long duplicates;
+
+        // Duration of the whole import in nanoseconds
+        private long nanos;
+
+        /**
+         * Gets the number of feed rows read.
+         * 
+         * @return The row count
+         */
+        public long getRows() { return rows; }
+
+        /**
+         * Gets the number of rows added to the catalog.
+         * 
+         * @return The imported count
+         */
+        public long getImported() { return imported; }
+
+        /**
+         * Gets the number of rows that failed validation.
+         * 
+         * @return The invalid count
+         */
+        public long getInvalid() { return invalid; }
+
+        /**
+         * Gets the number of rows dropped as duplicates.
+         * 
+         * @return The duplicate count
+         */
+        public long getDuplicates() { return duplicates; }
+
+        /**
+         * Gets the number of rows not imported.
+         * 
+         * @return The rejected count
+         */
+        public long getRejected() { return invalid + duplicates; }
+
+        /**
+         * Gets the import throughput.
+         * 
+         * @return Feed rows processed per second
+         */
+        public double getRowsPerSecond() { return nanos == 0 ? 0 : rows * 1e9 / nanos; }
+
+        /**
+         * Gets a one-line summary of the import.
+         * 
+         * @return The summary
+         */
+        @Override
+        public String toString() {
+            return String.format("Read %,d rows in %,d ms (%,.0f rows/s): %,d imported, %,d rejected"
+                    + " (%,d invalid, %,d duplicates)", rows, nanos / 1_000_000, getRowsPerSecond(), imported,
+                    getRejected(), invalid, duplicates);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package managers;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import utils.AtomicFile;
+import utils.FileHandler;
+import utils.LatencyHistogram;
+import utils.Metrics;
+
+/**
+ * CheckpointStore class - Numbered delta files of a manager in CHECKPOINT mode.
+ * 
+ * A checkpoint holds only the entities changed since the previous one. It
+ * is written as the next delta file next to the data file (e.g.
+ * data/comics.txt.delta.12), with one journal-style record per changed ID:
+ * "U,&lt;entity&gt;" with its current state, or "D,&lt;id&gt;" if it was deleted.
+ * Each delta is written atomically, so the data file (the base) followed
+ * by every delta in number order always gives the latest checkpoint. The
+ * journal rotated away by the save is dropped together with the write: the
+ * delta is staged first (see AtomicFile.write), and a staged delta found on
+ * open is finished, so the journal's older records never replay after it.
+ * 
+ * A background merger keeps the deltas in check, LSM-style. Once they add
+ * up to the configured fraction of the base's size, the base and all
+ * deltas are merged into a new base in one streaming pass; before that,
+ * once there are more deltas than the configured maximum, the deltas are
+ * merged into one. A merge works from the files alone: it never locks the
+ * manager and holds only the latest record of each changed ID in memory.
+ * It writes its result atomically before deleting its inputs, and a crash
+ * in between is harmless, since the inputs replay to the same state.
+ * 
+ * @param <T> The type of entity stored
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+final class CheckpointStore<T> {
+    // Infix between the data file name and a delta's number
+    private static final String DELTA = ".delta.";
+
+    // Suffix of a delta staged by AtomicFile.write, waiting to be renamed into place
+    private static final String STAGED = ".new";
+
+    // Path of the base snapshot (the data file)
+    private final String filename;
+
+    // Parses a stored entity line, returning null if it is invalid
+    private final Function<String, T> parser;
+
+    // Gets the ID of an entity
+    private final ToIntFunction<T> ids;
+
+    // Combined delta size, as a fraction of the base size, that triggers a merge into the base
+    private final double mergeRatio;
+
+    // Number of deltas that triggers merging them into one
+    private final int maxDeltas;
+
+    // Number of previous base versions kept by a merge into the base
+    private final int backups;
+
+    // Latency of merges
+    private final LatencyHistogram mergeTime;
+
+    // Deletes the manager's rotated journal, which a new delta supersedes
+    private final Runnable discardJournal;
+
+    // Number of the next delta to write (callers never write two at once)
+    private long nextDelta;
+
+    // Background thread that merges deltas
+    private final ExecutorService merger;
+
+    // Set while a merge check is waiting to run
+    private final AtomicBoolean mergeQueued = new AtomicBoolean();
+
+    /**
+     * Constructor for creating the delta store of a data file. Removes temp
+     * files left by a delta write or merge that crashed, and finishes a
+     * delta write that crashed once the delta was staged.
+     * 
+     * @param filename The path to the data file
+     * @param parser Parses a stored entity line
+     * @param ids Gets the ID of an entity
+     * @param options The manager's storage options
+     * @param mergeTime The histogram merges are timed in
+     * @param discardJournal Deletes the rotated journal, before a new delta takes its place
+     */
+    CheckpointStore(String filename, Function<String, T> parser, ToIntFunction<T> ids,
+                    StoreOptions options, LatencyHistogram mergeTime, Runnable discardJournal) {
+        this.filename = filename;
+        this.parser = parser;
+        this.ids = ids;
+        this.mergeRatio = options.getCheckpointMergeRatio();
+        this.maxDeltas = options.getMaxCheckpointDeltas();
+        this.backups = options.getBackupCount();
+        this.mergeTime = mergeTime;
+        this.discardJournal = discardJournal;
+        for (long n : deltaNumbers(filename, STAGED)) AtomicFile.recover(deltaFile(filename, n), 0, discardJournal);
+        long[] numbers = deltaNumbers(filename, "");
+        for (long n : numbers) AtomicFile.recover(deltaFile(filename, n)); // Merged into n
+        nextDelta = numbers.length == 0 ? 1 : numbers[numbers.length - 1] + 1;
+        AtomicFile.recover(deltaFile(filename, nextDelta)); // Never renamed into place
+        merger = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-merger: " + filename);
+            t.setDaemon(true); // Never keep the application alive; merges are crash-safe
+            return t;
+        });
+    }
+
+    /**
+     * Writes a checkpoint as the next delta and schedules a merge check.
+     * The rotated journal is deleted once the delta is staged, just before
+     * it takes its place. Callers must not write two checkpoints at once.
+     * 
+     * @param records The records of the changed entities
+     * @throws IOException if the delta cannot be written; nothing is then left behind
+     */
+    void write(List<String> records) throws IOException {
+        FileHandler.writeLines(deltaFile(filename, nextDelta), records, 0, discardJournal);
+        nextDelta++;
+        if (!merger.isShutdown() && mergeQueued.compareAndSet(false, true)) {
+            merger.execute(() -> {
+                mergeQueued.set(false); // Deltas written from now on need another check
+                merge();
+            });
+        }
+    }
+
+    /**
+     * Merges the deltas written so far if they have outgrown either limit.
+     * Runs on the merger thread. If a merge fails, its inputs are kept and
+     * the next checkpoint tries again.
+     */
+    void merge() {
+        long[] numbers = deltaNumbers(filename, "");
+        if (numbers.length == 0) return;
+        long deltaBytes = 0;
+        for (long n : numbers) deltaBytes += new File(deltaFile(filename, n)).length();
+        long start = Metrics.startTime();
+        try {
+            if (deltaBytes >= mergeRatio * new File(filename).length()) {
+                mergeIntoBase(numbers);
+            } else if (numbers.length > maxDeltas) {
+                mergeDeltas(numbers);
+            } else {
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Error merging checkpoints of: " + filename + " (" + e.getMessage() + ")");
+            return;
+        }
+        mergeTime.recordSince(start);
+    }
+
+    /**
+     * Waits for a running merge to finish and stops the merger thread.
+     */
+    void close() {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lists the delta files of a data file, oldest first. Deltas are replayed
+     * in this order on top of the data file.
+     * 
+     * @param filename The path to the data file
+     * @return The paths of its delta files
+     */
+    static List<String> deltaFiles(String filename) {
+        List<String> files = new ArrayList<>();
+        for (long n : deltaNumbers(filename, "")) files.add(deltaFile(filename, n));
+        return files;
+    }
+
+    /**
+     * Deletes delta files whose changes a full snapshot now contains.
+     * 
+     * @param files The paths of the delta files
+     */
+    static void delete(List<String> files) {
+        for (String file : files) {
+            try {
+                Files.deleteIfExists(Paths.get(file));
+            } catch (IOException e) {
+                System.out.println("Error deleting file: " + file);
+            }
+        }
+    }
+
+    /**
+     * Merges the base and the given deltas into a new base, streaming the
+     * base through: each stored entity is copied, replaced by its latest
+     * delta record or dropped if deleted, and entities added since the base
+     * was written are appended.
+     */
+    private void mergeIntoBase(long[] numbers) throws IOException {
+        Map<Integer, String> latest = latestRecords(numbers);
+        File base = new File(filename);
+        AtomicFile.write(filename, backups, out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, FileHandler.CHARSET), 1 << 16);
+            if (base.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(base, FileHandler.CHARSET), 1 << 16)) {
+                    for (String line; (line = reader.readLine()) != null; ) {
+                        line = line.trim();
+                        T entity = parser.apply(line);
+                        if (entity == null) continue; // Not loaded either
+                        String record = latest.remove(ids.applyAsInt(entity));
+                        if (record != null && record.charAt(0) == 'D') continue; // Deleted
+                        writer.write(record == null ? line : record.substring(2));
+                        writer.write(System.lineSeparator());
+                    }
+                }
+            }
+            for (String record : latest.values()) {
+                if (record.charAt(0) == 'D') continue;
+                writer.write(record.substring(2)); // Added since the base was written
+                writer.write(System.lineSeparator());
+            }
+            writer.flush();
+        });
+        delete(paths(numbers, numbers.length));
+    }
+
+    /**
+     * Merges the given deltas into one, which takes the number of the
+     * newest, so it still replays after the older ones it replaces.
+     */
+    private void mergeDeltas(long[] numbers) throws IOException {
+        Map<Integer, String> latest = latestRecords(numbers);
+        FileHandler.writeLines(deltaFile(filename, numbers[numbers.length - 1]), latest.values(), 0);
+        delete(paths(numbers, numbers.length - 1));
+    }
+
+    /**
+     * Reads deltas in order, keeping the latest record of each ID.
+     * Unlike FileHandler.readLines, a read error is thrown, so a merge
+     * never writes a result from a delta it only partly read.
+     */
+    private Map<Integer, String> latestRecords(long[] numbers) throws IOException {
+        Map<Integer, String> latest = new LinkedHashMap<>(); // First-seen order: added IDs stay ascending
+        for (long n : numbers) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(deltaFile(filename, n), FileHandler.CHARSET), 1 << 16)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    line = line.trim();
+                    if (line.length() < 2) continue;
+                    if (line.charAt(0) == 'D') {
+                        latest.put(Integer.parseInt(line.substring(2)), line);
+                    } else {
+                        T entity = parser.apply(line.substring(2));
+                        if (entity != null) latest.put(ids.applyAsInt(entity), line);
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Gets the paths of the first count deltas in a list of numbers.
+     */
+    private List<String> paths(long[] numbers, int count) {
+        List<String> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) files.add(deltaFile(filename, numbers[i]));
+        return files;
+    }
+
+    /**
+     * Finds the numbers of the existing deltas of a data file, in ascending
+     * order: the deltas themselves, or the staged ones with suffix STAGED.
+     */
+    private static long[] deltaNumbers(String filename, String fileSuffix) {
+        File data = new File(filename).getAbsoluteFile();
+        String prefix = data.getName() + DELTA;
+        String[] names = data.getParentFile().list((dir, name) -> name.startsWith(prefix) && name.endsWith(fileSuffix)
+                && name.length() > prefix.length() + fileSuffix.length());
+        if (names == null) return new long[0];
+        long[] numbers = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            String suffix = name.substring(prefix.length(), name.length() - fileSuffix.length());
+            if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) continue; // e.g. a .tmp file
+            numbers[count++] = Long.parseLong(suffix);
+        }
+        numbers = Arrays.copyOf(numbers, count);
+        Arrays.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Gets the path of a numbered delta.
+     */
+    private static String deltaFile(String filename, long number) { return filename + DELTA + number; }
+}
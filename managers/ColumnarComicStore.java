@@ -0,0 +1,160 @@
+package managers;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * ColumnarComicStore class - Compact in-memory storage for very large comic catalogs.
+ * 
+ * Used by ComicManager in place of an ArrayList when the COLUMNAR storage
+ * engine is selected. Instead of one Comic object (plus three String objects)
+ * per title, every field lives in a primitive column: IDs, years, stocks and
+ * prices in int/double arrays, genres and authors as int codes into a
+ * StringDictionary, and titles as UTF-8 bytes in a shared arena of 1 MiB
+ * pages. A row costs about 40 bytes plus its title, against roughly 200 for
+ * the object layout. get() returns flyweight views (see ComicRowStore).
+ * 
+ * Columns are split into fixed chunks of 65,536 rows that are never copied
+ * or moved, so a view stays valid however much the store grows. Changing a
+ * title appends the new bytes to the arena.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class ColumnarComicStore extends ComicRowStore {
+    // Rows per column chunk (as a power of two)
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Bytes per title arena page (as a power of two) and the page limit (2 GiB of titles)
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_PAGES = 1 << (31 - PAGE_BITS);
+
+    // Volatile and compare-and-set access to int column elements (the stock column)
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // Column chunks, indexed by row >>> CHUNK_BITS
+    private int[][] ids = new int[0][];
+    private int[][] years = new int[0][];
+    private int[][] stocks = new int[0][];
+    private int[][] genres = new int[0][];
+    private int[][] authors = new int[0][];
+    private double[][] prices = new double[0][];
+    private long[][] titles = new long[0][];   // Arena position (high 32 bits) and byte length (low 32 bits)
+
+    // Title bytes, and the next free position in the last page
+    private byte[][] arena = new byte[0][];
+    private int arenaOffset = PAGE_SIZE;
+
+    // Number of rows allocated so far (live or not)
+    private int rows;
+
+    // Storage hooks and row accessors required by ComicRowStore
+
+    @Override
+    protected int allocateRow() {
+        if ((rows >>> CHUNK_BITS) == ids.length) addChunk();
+        return rows++;
+    }
+
+    @Override
+    protected void releaseRows() {
+        ids = new int[0][];
+        years = new int[0][];
+        stocks = new int[0][];
+        genres = new int[0][];
+        authors = new int[0][];
+        prices = new double[0][];
+        titles = new long[0][];
+        arena = new byte[0][];
+        arenaOffset = PAGE_SIZE;
+        rows = 0;
+    }
+
+    @Override protected int id(int row) { return ids[row >>> CHUNK_BITS][row & CHUNK_MASK]; }
+    @Override protected void setId(int row, int id) { ids[row >>> CHUNK_BITS][row & CHUNK_MASK] = id; }
+    @Override protected String title(int row) { return loadTitle(titles[row >>> CHUNK_BITS][row & CHUNK_MASK]); }
+    @Override protected void setTitle(int row, String title) { titles[row >>> CHUNK_BITS][row & CHUNK_MASK] = storeTitle(title); }
+    @Override protected int authorCode(int row) { return authors[row >>> CHUNK_BITS][row & CHUNK_MASK]; }
+    @Override protected void setAuthorCode(int row, int code) { authors[row >>> CHUNK_BITS][row & CHUNK_MASK] = code; }
+    @Override protected int genreCode(int row) { return genres[row >>> CHUNK_BITS][row & CHUNK_MASK]; }
+    @Override protected void setGenreCode(int row, int code) { genres[row >>> CHUNK_BITS][row & CHUNK_MASK] = code; }
+    @Override protected double price(int row) { return prices[row >>> CHUNK_BITS][row & CHUNK_MASK]; }
+    @Override protected void setPrice(int row, double price) { prices[row >>> CHUNK_BITS][row & CHUNK_MASK] = price; }
+    @Override protected int year(int row) { return years[row >>> CHUNK_BITS][row & CHUNK_MASK]; }
+    @Override protected void setYear(int row, int year) { years[row >>> CHUNK_BITS][row & CHUNK_MASK] = year; }
+
+    @Override
+    protected int stocks(int row) {
+        return (int) INTS.getVolatile(stocks[row >>> CHUNK_BITS], row & CHUNK_MASK);
+    }
+
+    @Override
+    protected void setStocks(int row, int value) {
+        INTS.setVolatile(stocks[row >>> CHUNK_BITS], row & CHUNK_MASK, value);
+    }
+
+    @Override
+    protected boolean compareAndSetStocks(int row, int expected, int value) {
+        return INTS.compareAndSet(stocks[row >>> CHUNK_BITS], row & CHUNK_MASK, expected, value);
+    }
+
+    /**
+     * Adds one chunk to every column.
+     */
+    private void addChunk() {
+        int n = ids.length + 1;
+        ids = Arrays.copyOf(ids, n);
+        years = Arrays.copyOf(years, n);
+        stocks = Arrays.copyOf(stocks, n);
+        genres = Arrays.copyOf(genres, n);
+        authors = Arrays.copyOf(authors, n);
+        prices = Arrays.copyOf(prices, n);
+        titles = Arrays.copyOf(titles, n);
+        ids[n - 1] = new int[CHUNK_SIZE];
+        years[n - 1] = new int[CHUNK_SIZE];
+        stocks[n - 1] = new int[CHUNK_SIZE];
+        genres[n - 1] = new int[CHUNK_SIZE];
+        authors[n - 1] = new int[CHUNK_SIZE];
+        prices[n - 1] = new double[CHUNK_SIZE];
+        titles[n - 1] = new long[CHUNK_SIZE];
+    }
+
+    /**
+     * Appends a title's bytes to the arena.
+     * 
+     * @param title The title to store (null is stored as a negative length)
+     * @return The packed arena position and length
+     * @throws IllegalArgumentException if the title is longer than an arena page
+     * @throws IllegalStateException if the arena is full
+     */
+    private long storeTitle(String title) {
+        if (title == null) return -1L & 0xFFFFFFFFL;
+        byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > PAGE_SIZE) throw new IllegalArgumentException("Title too long: " + bytes.length + " bytes");
+        if (arenaOffset + bytes.length > PAGE_SIZE) {
+            if (arena.length == MAX_PAGES) throw new IllegalStateException("Title arena is full");
+            arena = Arrays.copyOf(arena, arena.length + 1);
+            arena[arena.length - 1] = new byte[PAGE_SIZE];
+            arenaOffset = 0;
+        }
+        int position = ((arena.length - 1) << PAGE_BITS) | arenaOffset;
+        System.arraycopy(bytes, 0, arena[arena.length - 1], arenaOffset, bytes.length);
+        arenaOffset += bytes.length;
+        return ((long) position << 32) | bytes.length;
+    }
+
+    /**
+     * Decodes a title stored by storeTitle.
+     */
+    private String loadTitle(long packed) {
+        int length = (int) packed;
+        if (length < 0) return null;
+        int position = (int) (packed >>> 32);
+        return new String(arena[position >>> PAGE_BITS], position & (PAGE_SIZE - 1), length, StandardCharsets.UTF_8);
+    }
+}
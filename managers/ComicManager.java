@@ -1,7 +1,11 @@
 package managers;
 
 import entities.Comic;
+import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import utils.SortedIntSet;
 
 /**
  * ComicManager class - Specialized manager for Comic entities.
@@ -11,11 +15,44 @@ import java.util.*;
  * logic specific to comic management including user interaction for adding
  * and updating comics.
  * 
+ * Sales go through reserve/commit/release: reserving takes copies out of
+ * stock with a compare-and-set on the comic's counter (no lock, never
+ * oversells), and committing appends the new stock level to the journal
+ * instead of rewriting the data file.
+ * 
+ * Secondary indexes on genre and author (hash maps, case-insensitive) and on
+ * year and price (sorted maps) answer the find methods without scanning the
+ * catalog. Each key maps to a sorted array of comic IDs rather than to the
+ * Comic objects, so the compact engines need no object per comic to back
+ * them; results are looked up by ID. They are kept in step with every add,
+ * update and delete; fields changed directly on a Comic returned by
+ * findById are not re-indexed.
+ * A ComicSearchIndex over titles and authors, maintained the same way,
+ * backs the ranked prefix search used for customer queries.
+ * 
+ * With the COLUMNAR or OFF_HEAP storage engine the catalog is held in a
+ * ColumnarComicStore or OffHeapComicStore, and the Comic objects returned
+ * are views of it.
+ * 
+ * With the LAZY storage engine the comics stay in the data file and no
+ * secondary or search index is built (it would hold every comic in memory
+ * again): the find methods and search() scan the catalog instead.
+ * 
  * @author Comic Book Store System
  * @version 1.0
  */
 public class ComicManager extends EntityManager<Comic> {
 
+    // Orders scanned comics the way the secondary index buckets are ordered
+    private static final Comparator<Comic> BY_ID = Comparator.comparingInt(Comic::getId);
+
+    // Secondary indexes: key -> IDs of the comics (built after the parent constructor has loaded the data)
+    private Map<String, SortedIntSet> byGenre;
+    private Map<String, SortedIntSet> byAuthor;
+    private NavigableMap<Integer, SortedIntSet> byYear;
+    private NavigableMap<Double, SortedIntSet> byPrice;
+    private ComicSearchIndex searchIndex;
+
     /**
      * Constructor for creating a ComicManager instance.
      * 
@@ -23,6 +60,56 @@ public class ComicManager extends EntityManager<Comic> {
      */
     public ComicManager(String filename) {
         super(filename); // Call parent constructor to initialize with data file
+        buildIndexes();
+    }
+
+    /**
+     * Constructor for creating a ComicManager instance with storage options.
+     * 
+     * @param filename The path to the comics data file
+     * @param options Storage configuration (e.g. journaled persistence)
+     */
+    public ComicManager(String filename, StoreOptions options) {
+        super(filename, options); // Call parent constructor to initialize with data file
+        buildIndexes();
+    }
+
+    /**
+     * Creates the in-memory store, adding support for the COLUMNAR and
+     * OFF_HEAP engines.
+     * 
+     * @return An empty list for the comics
+     */
+    @Override
+    protected List<Comic> createStore() {
+        switch (options.getEngine()) {
+            case COLUMNAR : return new ColumnarComicStore();
+            case OFF_HEAP : return new OffHeapComicStore();
+            default : return super.createStore();
+        }
+    }
+
+    /**
+     * Copies the list of comics for a snapshot. The compact engines copy
+     * only their row order instead of creating a view per comic.
+     * 
+     * @return A copy of the list
+     */
+    @Override
+    protected List<Comic> copyEntities() {
+        return entities instanceof ComicRowStore ? ((ComicRowStore) entities).copy() : super.copyEntities();
+    }
+
+    /**
+     * Serializes the comic at a list position for the journal. The compact
+     * engines build the record from the row instead of creating a view.
+     * 
+     * @param pos The list position
+     * @return The comic's stored representation
+     */
+    @Override
+    protected String recordAt(int pos) {
+        return entities instanceof ComicRowStore ? ((ComicRowStore) entities).recordAt(pos) : super.recordAt(pos);
     }
 
     /**
@@ -45,6 +132,26 @@ public class ComicManager extends EntityManager<Comic> {
     @Override
     protected String serialize(Comic entity) { return entity.toString(); }
 
+    /**
+     * Writes a Comic in the binary record format.
+     * 
+     * @param entity The Comic entity to write
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    protected void writeRecord(Comic entity, DataOutput out) throws IOException { entity.writeTo(out); }
+
+    /**
+     * Reads a Comic from the binary record format.
+     * 
+     * @param in The stream to read from
+     * @return The Comic read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    @Override
+    protected Comic readRecord(DataInput in) throws IOException { return Comic.readFrom(in); }
+
     /**
      * Gets the ID from a Comic entity.
      * 
@@ -55,18 +162,91 @@ public class ComicManager extends EntityManager<Comic> {
     protected int getId(Comic entity) { return entity.getId(); }
 
     /**
-     * Updates the fields of a Comic entity based on user input.
-     * Provides specific options for which field to update.
+     * Adds a comic to the secondary indexes.
      * 
-     * @param c The Comic entity to update
-     * @param sc Scanner for reading user input
+     * @param c The comic to index
      */
     @Override
-    protected void updateEntity(Comic c, Scanner sc) {
+    protected void indexEntity(Comic c) {
+        if (byGenre == null) return; // Still loading: buildIndexes() will cover it
+        addTo(byGenre, key(c.getGenre()), c);
+        addTo(byAuthor, key(c.getAuthor()), c);
+        addTo(byYear, c.getYear(), c);
+        addTo(byPrice, c.getPrice(), c);
+        searchIndex.add(c);
+    }
+
+    /**
+     * Removes a comic from the secondary indexes using its current field values.
+     * 
+     * @param c The comic to remove
+     */
+    @Override
+    protected void unindexEntity(Comic c) {
+        if (byGenre == null) return;
+        removeFrom(byGenre, key(c.getGenre()), c);
+        removeFrom(byAuthor, key(c.getAuthor()), c);
+        removeFrom(byYear, c.getYear(), c);
+        removeFrom(byPrice, c.getPrice(), c);
+        searchIndex.remove(c);
+    }
+
+    /**
+     * Copies a comic through Comic.copy(), which keeps any title or author
+     * the text format cannot hold.
+     * 
+     * @param comic The comic to copy
+     * @return A detached copy
+     */
+    @Override
+    protected Comic copy(Comic comic) { return comic.copy(); }
+
+    /**
+     * Carries an update over to the stored comic in place, so a reservation
+     * holding it (or its row) keeps seeing the same object. Stock is never
+     * overwritten: the edit's change to it is applied as an atomic delta on
+     * top of the copies reserve() and release() took meanwhile, and a
+     * lowered stock level stops at zero if they took the copies first.
+     * 
+     * @param stored The comic stored in the catalog
+     * @param from A copy of the comic taken before the edit
+     * @param to The edited copy
+     * @return The stored comic
+     */
+    @Override
+    protected Comic carryOver(Comic stored, Comic from, Comic to) {
+        int delta = to.getStocks() - from.getStocks();
+        if (delta > 0) stored.returnStocks(delta);
+        while (delta < 0 && !stored.tryTakeStocks(Math.min(-delta, stored.getStocks()))) { } // Raced a sale: retry
+        stored.setTitle(to.getTitle());
+        stored.setAuthor(to.getAuthor());
+        stored.setPrice(to.getPrice());
+        stored.setGenre(to.getGenre());
+        stored.setYear(to.getYear());
+        return stored;
+    }
+
+    /**
+     * Interactive method to update a comic's fields.
+     * Provides specific options for which field to update. The new values
+     * are collected first and then applied in one update(), so the manager
+     * is never locked while the user is typing.
+     * 
+     * @param id The ID of the comic to update
+     * @param sc Scanner for reading user input
+     */
+    public void updateComic(int id, Scanner sc) {
+        Comic current = findById(id);
+        if (current == null) {
+            System.out.println("Entity not found.");
+            return;
+        }
+        String title = current.getTitle();
+        Consumer<Comic> edits = c -> { };
         boolean updating = true;
         
         while (updating) {
-            System.out.println("\n--- Update Comic: " + c.getTitle() + " ---");
+            System.out.println("\n--- Update Comic: " + title + " ---");
             System.out.println("Select field to update:");
             System.out.println("1. Title");
             System.out.println("2. Author");
@@ -81,59 +261,73 @@ public class ComicManager extends EntityManager<Comic> {
             sc.nextLine(); // Consume newline
             
             switch (choice) {
-                case 1:
+                case 1: {
                     System.out.print("Enter new title: ");
-                    c.setTitle(sc.nextLine());
+                    String newTitle = sc.nextLine();
+                    edits = edits.andThen(c -> c.setTitle(newTitle));
+                    title = newTitle;
                     System.out.println("Title updated!");
                     break;
+                }
                     
-                case 2:
+                case 2: {
                     System.out.print("Enter new author: ");
-                    c.setAuthor(sc.nextLine());
+                    String newAuthor = sc.nextLine();
+                    edits = edits.andThen(c -> c.setAuthor(newAuthor));
                     System.out.println("Author updated!");
                     break;
+                }
                     
-                case 3:
+                case 3: {
+                    double newPrice = 0;
                     boolean validPrice = false;
                     while (!validPrice) {
                         try {
                             System.out.print("Enter new price: ");
-                            double newPrice = sc.nextDouble();
+                            newPrice = sc.nextDouble();
                             sc.nextLine(); // Consume newline
-                            c.setPrice(newPrice);
-                            System.out.println("Price updated!");
+                            if (newPrice <= 0) {
+                                throw new IllegalArgumentException("Price must be greater than 0");
+                            }
                             validPrice = true;
                         } catch (IllegalArgumentException e) {
                             System.out.println("Error: " + e.getMessage());
                         }
                     }
+                    double price = newPrice;
+                    edits = edits.andThen(c -> c.setPrice(price));
+                    System.out.println("Price updated!");
                     break;
+                }
                     
-                case 4:
+                case 4: {
                     System.out.print("Enter new genre: ");
-                    c.setGenre(sc.nextLine());
+                    String newGenre = sc.nextLine();
+                    edits = edits.andThen(c -> c.setGenre(newGenre));
                     System.out.println("Genre updated!");
                     break;
+                }
                     
-                case 5:
+                case 5: {
                     System.out.print("Enter new publication year: ");
                     int newYear = sc.nextInt();
                     sc.nextLine(); // Consume newline
-                    c.setYear(newYear);
+                    edits = edits.andThen(c -> c.setYear(newYear));
                     System.out.println("Year updated!");
                     break;
+                }
                     
-                case 6:
+                case 6: {
                     System.out.print("Enter new stock quantity: ");
                     int newStocks = sc.nextInt();
                     sc.nextLine(); // Consume newline
-                    c.setStocks(newStocks);
+                    edits = edits.andThen(c -> c.setStocks(newStocks));
                     System.out.println("Stocks updated!");
                     break;
+                }
                     
                 case 7:
                     updating = false;
-                    System.out.println("Update completed!");
                     break;
                     
                 default:
@@ -141,6 +335,12 @@ public class ComicManager extends EntityManager<Comic> {
                     break;
             }
         }
+        
+        if (update(id, edits) == null) {
+            System.out.println("Entity not found."); // Deleted while the user was editing
+        } else {
+            System.out.println("Update completed!");
+        }
     }
 
     /**
@@ -188,4 +388,312 @@ public class ComicManager extends EntityManager<Comic> {
         add(new Comic(nextId(), title, author, price, genre, year, stocks));
         System.out.println("Comic added!");
     }
+
+    /**
+     * Reserves copies of a comic for a sale.
+     * The copies leave stock immediately, so concurrent buyers can never
+     * reserve more than is available. Must be followed by commit or release.
+     * With the COLUMNAR and OFF_HEAP engines the stock is taken through the
+     * store's row accessors, so a sale creates no view of the comic.
+     * 
+     * @param comicId The ID of the comic to reserve
+     * @param quantity The number of copies to reserve
+     * @return The reservation, or null if the comic does not exist or stock is insufficient
+     * @throws IllegalArgumentException if quantity is not positive
+     */
+    public Reservation reserve(int comicId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+        ComicRowStore rows = rowStore();
+        if (rows != null) {
+            lock.readLock().lock(); // Keeps the position valid
+            try {
+                int pos = positionOf(comicId);
+                if (pos < 0 || !rows.tryTakeStocksAt(pos, quantity)) return null;
+            } finally {
+                lock.readLock().unlock();
+            }
+            return new Reservation(comicId, quantity);
+        }
+        Comic comic = findForChange(comicId); // Held in memory until commit or release
+        if (comic == null) return null;
+        if (!comic.tryTakeStocks(quantity)) {
+            endChange(comic);
+            return null;
+        }
+        return new Reservation(comicId, quantity);
+    }
+
+    /**
+     * Completes a sale by persisting the reduced stock level.
+     * Appends one journal record; the data file is not rewritten.
+     * 
+     * @param reservation The reservation to commit
+     */
+    public void commit(Reservation reservation) {
+        commit(reservation, false);
+    }
+
+    /**
+     * Completes a sale by persisting the reduced stock level, optionally
+     * waiting until the journal record is on disk (group-committed with
+     * other durable commits), so it survives a power failure.
+     * 
+     * @param reservation The reservation to commit
+     * @param durable Whether to return only once the record is on disk
+     * @throws UncheckedIOException if the record cannot be written (the
+     *         copies are then put back into stock) or forced to disk (the
+     *         sale then stands but may not survive a power failure)
+     */
+    public void commit(Reservation reservation, boolean durable) {
+        if (!reservation.settle()) return; // Already committed or released
+        if (rowStore() != null) {
+            long sequence;
+            try {
+                sequence = logStateOf(reservation.getComicId()); // Built from the row
+            } catch (UncheckedIOException e) {
+                returnRowStocks(reservation); // Not logged: not sold
+                throw e;
+            }
+            if (durable) syncState(sequence);
+            return;
+        }
+        Comic comic = findById(reservation.getComicId());
+        if (comic == null) return;
+        long sequence;
+        try {
+            sequence = logState(comic);
+        } catch (UncheckedIOException e) {
+            comic.returnStocks(reservation.getQuantity()); // Not logged: not sold
+            throw e;
+        } finally {
+            endChange(comic);
+        }
+        if (durable) syncState(sequence);
+    }
+
+    /**
+     * Cancels a sale and puts the reserved copies back into stock.
+     * The restored stock level is persisted as commit persists a sale:
+     * one journal record, so a snapshot taken while the copies were
+     * reserved does not keep them out of stock after a restart.
+     * 
+     * @param reservation The reservation to release
+     * @throws UncheckedIOException if the record cannot be written (the
+     *         copies are back in stock but may not be after a restart)
+     */
+    public void release(Reservation reservation) {
+        if (!reservation.settle()) return; // Already committed or released
+        if (rowStore() != null) {
+            returnRowStocks(reservation);
+            logStateOf(reservation.getComicId()); // Built from the row
+            return;
+        }
+        Comic comic = findById(reservation.getComicId());
+        if (comic == null) return;
+        comic.returnStocks(reservation.getQuantity());
+        try {
+            logState(comic);
+        } finally {
+            endChange(comic);
+        }
+    }
+
+    /**
+     * Puts the copies of a reservation back into stock through the row
+     * accessors (COLUMNAR and OFF_HEAP engines).
+     * 
+     * @param reservation The reservation whose copies are returned
+     */
+    private void returnRowStocks(Reservation reservation) {
+        lock.readLock().lock(); // Keeps the position valid
+        try {
+            int pos = positionOf(reservation.getComicId());
+            if (pos >= 0) rowStore().returnStocksAt(pos, reservation.getQuantity());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the list as a ComicRowStore.
+     * 
+     * @return The store, or null unless the COLUMNAR or OFF_HEAP engine is in use
+     */
+    private ComicRowStore rowStore() {
+        return entities instanceof ComicRowStore ? (ComicRowStore) entities : null;
+    }
+
+    /**
+     * Finds all comics of a genre (case-insensitive).
+     * 
+     * @param genre The genre to look for
+     * @return Matching comics ordered by ID
+     */
+    public List<Comic> findByGenre(String genre) {
+        lock.readLock().lock();
+        try {
+            if (byGenre == null) return scan(c -> key(c.getGenre()).equals(key(genre)), BY_ID);
+            return resolve(byGenre.get(key(genre)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all comics by an author (case-insensitive).
+     * 
+     * @param author The author to look for
+     * @return Matching comics ordered by ID
+     */
+    public List<Comic> findByAuthor(String author) {
+        lock.readLock().lock();
+        try {
+            if (byAuthor == null) return scan(c -> key(c.getAuthor()).equals(key(author)), BY_ID);
+            return resolve(byAuthor.get(key(author)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all comics published within a range of years (inclusive).
+     * 
+     * @param from The first year of the range
+     * @param to The last year of the range
+     * @return Matching comics ordered by year
+     */
+    public List<Comic> findByYearRange(int from, int to) {
+        lock.readLock().lock();
+        try {
+            if (byYear == null) {
+                return scan(c -> c.getYear() >= from && c.getYear() <= to,
+                        Comparator.comparingInt(Comic::getYear).thenComparing(BY_ID));
+            }
+            return flatten(from > to ? Collections.emptyMap() : byYear.subMap(from, true, to, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all comics priced within a range (inclusive).
+     * 
+     * @param min The lowest price
+     * @param max The highest price
+     * @return Matching comics ordered by price
+     */
+    public List<Comic> findByPriceRange(double min, double max) {
+        lock.readLock().lock();
+        try {
+            if (byPrice == null) {
+                return scan(c -> c.getPrice() >= min && c.getPrice() <= max,
+                        Comparator.comparingDouble(Comic::getPrice).thenComparing(BY_ID));
+            }
+            return flatten(min > max ? Collections.emptyMap() : byPrice.subMap(min, true, max, true));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches titles and authors for comics matching every word of a query.
+     * Each word matches as a prefix, case-insensitively, so "hero acad"
+     * finds "My Hero Academia". Exact word matches and title matches rank first.
+     * 
+     * @param query The words to search for
+     * @param limit The maximum number of results
+     * @return Matching comics, best match first
+     */
+    public List<Comic> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            if (searchIndex == null) return ComicSearchIndex.scan(entities, query, limit);
+            return searchIndex.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the secondary indexes from the loaded comics. The LAZY engine
+     * gets none, so the hooks stay no-ops and queries scan.
+     */
+    private void buildIndexes() {
+        if (options.getEngine() == StorageEngine.LAZY) return;
+        lock.writeLock().lock();
+        try {
+            byGenre = new HashMap<>();
+            byAuthor = new HashMap<>();
+            byYear = new TreeMap<>();
+            byPrice = new TreeMap<>();
+            searchIndex = new ComicSearchIndex(this::entityOf);
+            for (Comic c : entities) indexEntity(c);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds comics by scanning the whole catalog, for the LAZY engine.
+     * Caller must hold the read lock.
+     * 
+     * @param filter Selects the comics to return
+     * @param order The order of the result, matching the index it stands in for
+     * @return The matching comics
+     */
+    private List<Comic> scan(Predicate<Comic> filter, Comparator<Comic> order) {
+        List<Comic> result = new ArrayList<>();
+        for (Comic c : entities)
+            if (filter.test(c)) result.add(c);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * Normalizes a genre or author for case-insensitive lookup.
+     */
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a comic's ID to the bucket for a key, creating the bucket if needed.
+     * Buckets are kept sorted by ID so queries never sort.
+     */
+    private static <K> void addTo(Map<K, SortedIntSet> index, K key, Comic c) {
+        index.computeIfAbsent(key, k -> new SortedIntSet()).add(c.getId());
+    }
+
+    /**
+     * Removes a comic's ID from the bucket for a key, dropping the bucket once empty.
+     */
+    private static <K> void removeFrom(Map<K, SortedIntSet> index, K key, Comic c) {
+        SortedIntSet bucket = index.get(key);
+        if (bucket == null) return;
+        bucket.remove(c.getId());
+        if (bucket.isEmpty()) index.remove(key);
+    }
+
+    /**
+     * Looks up the comics of a bucket, in ID order. Caller must hold the read lock.
+     */
+    private List<Comic> resolve(SortedIntSet bucket) {
+        if (bucket == null) return new ArrayList<>();
+        List<Comic> result = new ArrayList<>(bucket.size());
+        for (int i = 0; i < bucket.size(); i++) result.add(entityOf(bucket.get(i)));
+        return result;
+    }
+
+    /**
+     * Concatenates the comics of the buckets of a sorted range, each ordered
+     * by ID. Caller must hold the read lock.
+     */
+    private List<Comic> flatten(Map<?, SortedIntSet> range) {
+        List<Comic> result = new ArrayList<>();
+        for (SortedIntSet bucket : range.values())
+            for (int i = 0; i < bucket.size(); i++) result.add(entityOf(bucket.get(i)));
+        return result;
+    }
 }
@@ -0,0 +1,350 @@
+package managers;
+
+import entities.Comic;
+import java.util.*;
+import utils.StringDictionary;
+
+/**
+ * ComicRowStore class - Base for compact comic stores that hand out flyweight views.
+ * 
+ * Subclasses keep comics as numbered rows in some compact layout (primitive
+ * columns, off-heap slots) and implement the per-field row accessors. This
+ * class turns those rows into a List of Comic: get() returns a view whose
+ * getters and setters go straight to the row, views compare equal when they
+ * show the same row, and the list order is a plain int array of row numbers,
+ * so moving an entity within the list never copies its fields.
+ * 
+ * Genres and authors are dictionary-encoded here for every subclass.
+ * Rows are never reused: a removed row stays allocated (and its views keep
+ * working) until the catalog is next loaded. Like ArrayList, a store is not
+ * thread-safe by itself; EntityManager's lock guards it, and only the stock
+ * accessors must also be safe for concurrent use.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+abstract class ComicRowStore extends AbstractList<Comic> implements RandomAccess {
+    /** Dictionary for genre codes */
+    protected final StringDictionary genreCodes = new StringDictionary();
+
+    /** Dictionary for author codes */
+    protected final StringDictionary authorCodes = new StringDictionary();
+
+    // Rows in list order: order[i] is the row shown by get(i)
+    private int[] order = new int[16];
+    private int size;
+
+    /**
+     * Appends an empty row to the storage.
+     * 
+     * @return The new row number
+     */
+    protected abstract int allocateRow();
+
+    /**
+     * Releases all rows and resets the storage to empty.
+     */
+    protected abstract void releaseRows();
+
+    // Per-field row accessors implemented by the storage layout
+    protected abstract int id(int row);
+    protected abstract void setId(int row, int id);
+    protected abstract String title(int row);
+    protected abstract void setTitle(int row, String title);
+    protected abstract int authorCode(int row);
+    protected abstract void setAuthorCode(int row, int code);
+    protected abstract int genreCode(int row);
+    protected abstract void setGenreCode(int row, int code);
+    protected abstract double price(int row);
+    protected abstract void setPrice(int row, double price);
+    protected abstract int year(int row);
+    protected abstract void setYear(int row, int year);
+
+    /**
+     * Reads a row's stock with volatile semantics.
+     * 
+     * @param row The row number
+     * @return The stock quantity
+     */
+    protected abstract int stocks(int row);
+
+    /**
+     * Writes a row's stock with volatile semantics.
+     * 
+     * @param row The row number
+     * @param stocks The new stock quantity
+     */
+    protected abstract void setStocks(int row, int stocks);
+
+    /**
+     * Atomically replaces a row's stock if it still holds the expected value.
+     * 
+     * @param row The row number
+     * @param expected The value the stock must hold
+     * @param stocks The new stock quantity
+     * @return true if the stock was replaced
+     */
+    protected abstract boolean compareAndSetStocks(int row, int expected, int stocks);
+
+    /**
+     * Gets a view of the comic at a list position.
+     * 
+     * @param index The list position
+     * @return A view of the stored comic
+     */
+    @Override
+    public Comic get(int index) {
+        Objects.checkIndex(index, size);
+        return new View(order[index]);
+    }
+
+    /**
+     * Stores a comic at a list position. A view of this store is placed
+     * without copying (moving its row); any other Comic is copied over the
+     * row already at the position, so existing views of that row show the
+     * new values.
+     * 
+     * @param index The list position
+     * @param comic The comic to store
+     * @return A view of the row previously at the position
+     */
+    @Override
+    public Comic set(int index, Comic comic) {
+        Objects.checkIndex(index, size);
+        Comic previous = new View(order[index]);
+        if (isView(comic)) {
+            order[index] = ((View) comic).row;
+        } else {
+            write(order[index], comic);
+        }
+        return previous;
+    }
+
+    /**
+     * Inserts a comic at a list position (appending is constant-time).
+     * 
+     * @param index The list position
+     * @param comic The comic to store
+     */
+    @Override
+    public void add(int index, Comic comic) {
+        Objects.checkIndex(index, size + 1);
+        int row;
+        if (isView(comic)) {
+            row = ((View) comic).row;
+        } else {
+            row = allocateRow();
+            write(row, comic);
+        }
+        if (size == order.length) order = Arrays.copyOf(order, size * 2);
+        System.arraycopy(order, index, order, index + 1, size - index);
+        order[index] = row;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the comic at a list position. Its row stays allocated, so views
+     * of it keep working.
+     * 
+     * @param index The list position
+     * @return A view of the removed comic
+     */
+    @Override
+    public Comic remove(int index) {
+        Objects.checkIndex(index, size);
+        Comic removed = new View(order[index]);
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Gets the number of comics in the list.
+     * 
+     * @return The list size
+     */
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Removes all comics and releases the storage. Views obtained before
+     * the call must not be used afterwards.
+     */
+    @Override
+    public void clear() {
+        releaseRows();
+        genreCodes.clear();
+        authorCodes.clear();
+        order = new int[16];
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Copies the list order. Only row numbers are copied, and rows are never
+     * reused, so the copy keeps showing the same comics (with their latest
+     * values) however the list changes afterwards.
+     * 
+     * @return An unmodifiable list of the comics currently in the list
+     */
+    public List<Comic> copy() {
+        int[] rows = Arrays.copyOf(order, size);
+        return new AbstractList<Comic>() {
+            @Override public Comic get(int index) { return new View(rows[index]); }
+            @Override public int size() { return rows.length; }
+        };
+    }
+
+    /**
+     * Gets the ID of the comic at a list position without creating a view.
+     * 
+     * @param index The list position
+     * @return The comic's ID
+     */
+    public int idAt(int index) {
+        Objects.checkIndex(index, size);
+        return id(order[index]);
+    }
+
+    /**
+     * Gets the stock of the comic at a list position without creating a view.
+     * 
+     * @param index The list position
+     * @return The comic's stock quantity
+     */
+    public int stocksAt(int index) {
+        Objects.checkIndex(index, size);
+        return stocks(order[index]);
+    }
+
+    /**
+     * Atomically takes copies out of stock for the comic at a list position,
+     * without creating a view. Same semantics as Comic.tryTakeStocks.
+     * 
+     * @param index The list position
+     * @param quantity The number of copies to take
+     * @return true if the copies were taken, false if stock was insufficient
+     */
+    public boolean tryTakeStocksAt(int index, int quantity) {
+        Objects.checkIndex(index, size);
+        return takeStocks(order[index], quantity);
+    }
+
+    /**
+     * Atomically puts copies back into stock for the comic at a list
+     * position, without creating a view. Same semantics as Comic.returnStocks.
+     * 
+     * @param index The list position
+     * @param quantity The number of copies to return
+     */
+    public void returnStocksAt(int index, int quantity) {
+        Objects.checkIndex(index, size);
+        returnStocks(order[index], quantity);
+    }
+
+    /**
+     * Serializes the comic at a list position in the same format as
+     * Comic.toString, without creating a view.
+     * 
+     * @param index The list position
+     * @return The comic's stored representation
+     */
+    public String recordAt(int index) {
+        Objects.checkIndex(index, size);
+        int row = order[index];
+        return new StringBuilder(96).append(id(row)).append(',').append(title(row)).append(',')
+                .append(authorCodes.decode(authorCode(row))).append(',').append(price(row)).append(',')
+                .append(genreCodes.decode(genreCode(row))).append(',').append(year(row)).append(',')
+                .append(stocks(row)).toString();
+    }
+
+    /**
+     * Compare-and-set loop behind returnStocks.
+     */
+    private void returnStocks(int row, int quantity) {
+        while (true) {
+            int current = stocks(row);
+            if (compareAndSetStocks(row, current, current + quantity)) return;
+        }
+    }
+
+    /**
+     * Compare-and-set loop behind tryTakeStocks.
+     */
+    private boolean takeStocks(int row, int quantity) {
+        while (true) {
+            int current = stocks(row);
+            if (current < quantity) return false;
+            if (compareAndSetStocks(row, current, current - quantity)) return true;
+        }
+    }
+
+    /**
+     * Checks whether a comic is a view of this store.
+     */
+    private boolean isView(Comic comic) {
+        return comic instanceof View && ((View) comic).store() == this;
+    }
+
+    /**
+     * Copies every field of a comic into a row.
+     */
+    private void write(int row, Comic comic) {
+        setId(row, comic.getId());
+        setTitle(row, comic.getTitle());
+        setAuthorCode(row, authorCodes.encode(comic.getAuthor()));
+        setGenreCode(row, genreCodes.encode(comic.getGenre()));
+        setPrice(row, comic.getPrice());
+        setYear(row, comic.getYear());
+        setStocks(row, comic.getStocks());
+    }
+
+    /**
+     * Flyweight Comic backed by one row. Holds nothing but the row number;
+     * every getter and setter goes to the store.
+     */
+    private final class View extends Comic {
+        // Row shown by this view
+        private final int row;
+
+        View(int row) { this.row = row; }
+
+        ComicRowStore store() { return ComicRowStore.this; }
+
+        @Override public int getId() { return id(row); }
+        @Override public String getTitle() { return title(row); }
+        @Override public String getAuthor() { return authorCodes.decode(authorCode(row)); }
+        @Override public double getPrice() { return price(row); }
+        @Override public String getGenre() { return genreCodes.decode(genreCode(row)); }
+        @Override public int getYear() { return year(row); }
+        @Override public int getStocks() { return stocks(row); }
+
+        @Override public void setTitle(String title) { ComicRowStore.this.setTitle(row, title); }
+        @Override public void setAuthor(String author) { setAuthorCode(row, authorCodes.encode(author)); }
+        @Override public void setGenre(String genre) { setGenreCode(row, genreCodes.encode(genre)); }
+        @Override public void setYear(int year) { ComicRowStore.this.setYear(row, year); }
+        @Override public void setStocks(int stocks) { ComicRowStore.this.setStocks(row, stocks); }
+
+        @Override
+        public void setPrice(double price) {
+            super.setPrice(price); // Validation
+            ComicRowStore.this.setPrice(row, price);
+        }
+
+        @Override
+        public boolean tryTakeStocks(int quantity) { return takeStocks(row, quantity); }
+
+        @Override
+        public void returnStocks(int quantity) { ComicRowStore.this.returnStocks(row, quantity); }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View && ((View) o).store() == store() && ((View) o).row == row;
+        }
+
+        @Override
+        public int hashCode() { return row; }
+    }
+}
@@ -0,0 +1,364 @@
+package managers;
+
+import entities.Comic;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import utils.SortedIntSet;
+
+/**
+ * ComicSearchIndex class - Inverted index for full-text search over titles and authors.
+ * 
+ * Titles and authors are split into lower-case word tokens. Each token maps
+ * to the IDs of the comics containing it (a sorted int array, not the Comic
+ * objects, so a compact storage engine needs no object per comic to back
+ * the index; candidates are looked up by ID when a query is scored), and
+ * the tokens are kept in sorted maps, so
+ * every token starting with a prefix is one contiguous range. A query such
+ * as "hero acad" matches comics where every query word is a prefix of some
+ * title or author word. The most selective query word supplies the candidate
+ * set, the others are checked by probing their postings (or, for very short
+ * prefixes that expand to many tokens, the candidate's own words), and the
+ * results are ranked (exact beats prefix, title beats author).
+ * 
+ * Not thread-safe on its own; ComicManager guards it with its read-write lock.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class ComicSearchIndex {
+    // Scores for how a query word matched a comic
+    private static final double TITLE_EXACT = 3.0;
+    private static final double TITLE_PREFIX = 2.0;
+    private static final double AUTHOR_EXACT = 1.5;
+    private static final double AUTHOR_PREFIX = 1.0;
+
+    // Above this many matching tokens a query word is checked by re-tokenizing candidates
+    private static final int MAX_PROBED_TOKENS = 32;
+
+    // Orders results: higher score, then shorter title, then lower ID
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble((Hit h) -> -h.score)
+            .thenComparingInt(h -> h.comic.getTitle().length())
+            .thenComparingInt(h -> h.comic.getId());
+
+    // Postings: token -> IDs of the comics whose title (or author) contains it
+    private final NavigableMap<String, SortedIntSet> titleTokens = new TreeMap<>();
+    private final NavigableMap<String, SortedIntSet> authorTokens = new TreeMap<>();
+
+    // Looks up an indexed comic by its ID
+    private final IntFunction<Comic> comics;
+
+    /**
+     * Constructor for creating an empty index.
+     * 
+     * @param comics Looks up an indexed comic by its ID
+     */
+    public ComicSearchIndex(IntFunction<Comic> comics) {
+        this.comics = comics;
+    }
+
+    /**
+     * Adds a comic to the index using its current title and author.
+     * 
+     * @param c The comic to add
+     */
+    public void add(Comic c) {
+        for (String token : tokenize(c.getTitle())) titleTokens.computeIfAbsent(token, t -> new SortedIntSet()).add(c.getId());
+        for (String token : tokenize(c.getAuthor())) authorTokens.computeIfAbsent(token, t -> new SortedIntSet()).add(c.getId());
+    }
+
+    /**
+     * Removes a comic from the index. Must be called before its title or
+     * author changes, so the same tokens are found again.
+     * 
+     * @param c The comic to remove
+     */
+    public void remove(Comic c) {
+        for (String token : tokenize(c.getTitle())) removePosting(titleTokens, token, c);
+        for (String token : tokenize(c.getAuthor())) removePosting(authorTokens, token, c);
+    }
+
+    /**
+     * Finds comics matching every word of a query, best matches first.
+     * 
+     * @param query Words to look for, each matched as a prefix (e.g. "hero acad")
+     * @param limit The maximum number of results
+     * @return Matching comics, ranked by score, then shorter title, then ID
+     */
+    public List<Comic> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        // The word with the fewest postings drives the search
+        String driver = words.get(0);
+        long fewest = Long.MAX_VALUE;
+        for (String word : words) {
+            long count = postingCount(titleTokens, word) + postingCount(authorTokens, word);
+            if (count < fewest) {
+                fewest = count;
+                driver = word;
+            }
+        }
+        List<SortedIntSet> driverPostings = new ArrayList<>(prefixRange(titleTokens, driver).values());
+        driverPostings.addAll(prefixRange(authorTokens, driver).values());
+        SortedIntSet candidates = driverPostings.size() == 1
+                ? driverPostings.get(0) // One token: no duplicates possible
+                : SortedIntSet.union(driverPostings);
+        List<WordMatcher> matchers = new ArrayList<>(words.size());
+        for (String word : words) matchers.add(new WordMatcher(word));
+        matchers.sort(Comparator.comparing((WordMatcher m) -> !m.probes())); // Words checked by ID first
+
+        // Candidates are scored by ID; a comic is looked up only once it is needed
+        PriorityQueue<Hit> best = new PriorityQueue<>(RANKING.reversed());
+        candidates:
+        for (int i = 0; i < candidates.size(); i++) {
+            int id = candidates.get(i);
+            Comic c = null;
+            double score = 0;
+            for (WordMatcher matcher : matchers) {
+                double s;
+                if (matcher.probes()) {
+                    s = matcher.score(id);
+                } else {
+                    if (c == null) c = comics.apply(id);
+                    s = matcher.score(c);
+                }
+                if (s == 0) continue candidates; // Some word did not match
+                score += s;
+            }
+            offer(best, c != null ? c : comics.apply(id), score, limit);
+        }
+        return results(best);
+    }
+
+    /**
+     * Finds comics matching every word of a query without an index, by
+     * checking each comic's own words. Matches and ranks exactly like
+     * search(), at the cost of a full scan; used when no index is kept.
+     * 
+     * @param comics The comics to search
+     * @param query Words to look for, each matched as a prefix
+     * @param limit The maximum number of results
+     * @return Matching comics, ranked as by search()
+     */
+    public static List<Comic> scan(Iterable<Comic> comics, String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) return new ArrayList<>();
+        return rank(comics, c -> scoreWords(c, words), limit);
+    }
+
+    /**
+     * Scores candidates and keeps the best of them.
+     * 
+     * @param candidates The comics to score
+     * @param scorer Scores a comic (0 or less if it does not match)
+     * @param limit The maximum number of results
+     * @return The best matches, best first
+     */
+    private static List<Comic> rank(Iterable<Comic> candidates, ToDoubleFunction<Comic> scorer, int limit) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(RANKING.reversed());
+        for (Comic c : candidates) {
+            double score = scorer.applyAsDouble(c);
+            if (score <= 0) continue; // Some word did not match
+            offer(best, c, score, limit);
+        }
+        return results(best);
+    }
+
+    /**
+     * Adds a matching comic to the best results if it ranks high enough.
+     * The results are a heap whose head is the worst of them.
+     * 
+     * @param best The best results so far
+     * @param c The comic
+     * @param score Its score
+     * @param limit The maximum number of results
+     */
+    private static void offer(PriorityQueue<Hit> best, Comic c, double score, int limit) {
+        if (best.size() == limit && !beats(c, score, best.peek())) return;
+        best.add(new Hit(c, score));
+        if (best.size() > limit) best.poll();
+    }
+
+    /**
+     * Lists the best results, best first.
+     */
+    private static List<Comic> results(PriorityQueue<Hit> best) {
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANKING);
+        List<Comic> result = new ArrayList<>(hits.size());
+        for (Hit h : hits) result.add(h.comic);
+        return result;
+    }
+
+    /**
+     * Checks whether a scored comic ranks above an existing hit.
+     */
+    private static boolean beats(Comic c, double score, Hit other) {
+        if (score != other.score) return score > other.score;
+        int length = c.getTitle().length();
+        int otherLength = other.comic.getTitle().length();
+        if (length != otherLength) return length < otherLength;
+        return c.getId() < other.comic.getId();
+    }
+
+    /**
+     * Scores a comic against all query words using its own tokens.
+     * 
+     * @return The total score, or 0 if any word matches neither title nor author
+     */
+    private static double scoreWords(Comic c, List<String> words) {
+        List<String> title = tokenize(c.getTitle());
+        List<String> author = tokenize(c.getAuthor());
+        double total = 0;
+        for (String word : words) {
+            double s = Math.max(match(title, word, TITLE_EXACT, TITLE_PREFIX),
+                                match(author, word, AUTHOR_EXACT, AUTHOR_PREFIX));
+            if (s == 0) return 0;
+            total += s;
+        }
+        return total;
+    }
+
+    /**
+     * Scores one query word against one field's tokens.
+     */
+    private static double match(List<String> tokens, String word, double exact, double prefix) {
+        double s = 0;
+        for (String token : tokens) {
+            if (token.equals(word)) return exact;
+            if (token.startsWith(word)) s = prefix;
+        }
+        return s;
+    }
+
+    /**
+     * Gets every token that starts with a prefix.
+     */
+    private static SortedMap<String, SortedIntSet> prefixRange(NavigableMap<String, SortedIntSet> tokens, String prefix) {
+        return tokens.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * Counts the postings of every token that starts with a prefix.
+     */
+    private static long postingCount(NavigableMap<String, SortedIntSet> tokens, String prefix) {
+        long count = 0;
+        for (SortedIntSet postings : prefixRange(tokens, prefix).values()) count += postings.size();
+        return count;
+    }
+
+    /**
+     * Removes a comic from one token's postings, dropping the token once unused.
+     */
+    private static void removePosting(Map<String, SortedIntSet> tokens, String token, Comic c) {
+        SortedIntSet postings = tokens.get(token);
+        if (postings == null) return;
+        postings.remove(c.getId());
+        if (postings.isEmpty()) tokens.remove(token);
+    }
+
+    /**
+     * Splits text into distinct lower-case tokens of letters and digits.
+     * 
+     * @param text The text to split (may be null)
+     * @return The tokens in order of first appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>(4);
+        if (text == null) return tokens;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!tokens.contains(token)) tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Scores comics against one query word, using the word's postings when
+     * it expands to few tokens and the comic's own words otherwise.
+     */
+    private class WordMatcher {
+        final String word;
+        final Postings titleExact;
+        final Postings authorExact;
+        final List<Postings> titlePrefix;
+        final List<Postings> authorPrefix;
+
+        WordMatcher(String word) {
+            this.word = word;
+            SortedMap<String, SortedIntSet> titles = prefixRange(titleTokens, word);
+            SortedMap<String, SortedIntSet> authors = prefixRange(authorTokens, word);
+            boolean probe = titles.size() + authors.size() <= MAX_PROBED_TOKENS;
+            titleExact = Postings.of(titleTokens.get(word));
+            authorExact = Postings.of(authorTokens.get(word));
+            titlePrefix = probe ? Postings.of(titles.values()) : null;
+            authorPrefix = probe ? Postings.of(authors.values()) : null;
+        }
+
+        boolean probes() { return titlePrefix != null; }
+
+        double score(Comic c) {
+            if (probes()) return score(c.getId());
+            if (titleExact != null && titleExact.contains(c.getId())) return TITLE_EXACT;
+            // Too many tokens to probe: compare against the comic's own words
+            return Math.max(match(tokenize(c.getTitle()), word, TITLE_EXACT, TITLE_PREFIX),
+                            match(tokenize(c.getAuthor()), word, AUTHOR_EXACT, AUTHOR_PREFIX));
+        }
+
+        double score(int id) { // Only when probes(); IDs must come in ascending order
+            if (titleExact != null && titleExact.contains(id)) return TITLE_EXACT;
+            for (Postings postings : titlePrefix)
+                if (postings.contains(id)) return TITLE_PREFIX;
+            if (authorExact != null && authorExact.contains(id)) return AUTHOR_EXACT;
+            for (Postings postings : authorPrefix)
+                if (postings.contains(id)) return AUTHOR_PREFIX;
+            return 0;
+        }
+    }
+
+    /**
+     * One token's postings, probed with IDs in ascending order (as search()
+     * visits its candidates), so each probe resumes where the last one
+     * stopped instead of searching the whole set again.
+     */
+    private static class Postings {
+        final SortedIntSet ids;
+        int at;
+
+        Postings(SortedIntSet ids) { this.ids = ids; }
+
+        static Postings of(SortedIntSet ids) { return ids == null ? null : new Postings(ids); }
+
+        static List<Postings> of(Collection<SortedIntSet> sets) {
+            List<Postings> list = new ArrayList<>(sets.size());
+            for (SortedIntSet ids : sets) list.add(new Postings(ids));
+            return list;
+        }
+
+        boolean contains(int id) {
+            at = ids.ceilingIndex(id, at);
+            return at < ids.size() && ids.get(at) == id;
+        }
+    }
+
+    /**
+     * A candidate comic with its score.
+     */
+    private static class Hit {
+        final Comic comic;
+        final double score;
+
+        Hit(Comic comic, double score) {
+            this.comic = comic;
+            this.score = score;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package managers;
 
 import entities.Customer;
+import java.io.*;
 import java.util.*;
 
 /**
@@ -25,6 +26,16 @@ public class CustomerManager extends EntityManager<Customer> {
         super(filename); // Call parent constructor to initialize with data file
     }
 
+    /**
+     * Constructor for creating a CustomerManager instance with storage options.
+     * 
+     * @param filename The path to the customers data file
+     * @param options Storage configuration (e.g. journaled persistence)
+     */
+    public CustomerManager(String filename, StoreOptions options) {
+        super(filename, options); // Call parent constructor to initialize with data file
+    }
+
     /**
      * Parses a string line into a Customer object.
      * Uses the Customer class's static factory method for deserialization.
@@ -45,6 +56,26 @@ public class CustomerManager extends EntityManager<Customer> {
     @Override
     protected String serialize(Customer entity) { return entity.toString(); }
 
+    /**
+     * Writes a Customer in the binary record format.
+     * 
+     * @param entity The Customer entity to write
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    protected void writeRecord(Customer entity, DataOutput out) throws IOException { entity.writeTo(out); }
+
+    /**
+     * Reads a Customer from the binary record format.
+     * 
+     * @param in The stream to read from
+     * @return The Customer read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    @Override
+    protected Customer readRecord(DataInput in) throws IOException { return Customer.readFrom(in); }
+
     /**
      * Gets the ID from a Customer entity.
      * 
@@ -55,18 +86,40 @@ public class CustomerManager extends EntityManager<Customer> {
     protected int getId(Customer entity) { return entity.getId(); }
 
     /**
-     * Updates the fields of a Customer entity based on user input.
-     * Prompts the user for new values for name and contact information.
+     * Copies a customer through Customer.copy(), which keeps any name or
+     * contact the text format cannot hold.
      * 
-     * @param c The Customer entity to update
-     * @param sc Scanner for reading user input
+     * @param entity The Customer entity to copy
+     * @return A detached copy
      */
     @Override
-    protected void updateEntity(Customer c, Scanner sc) {
+    protected Customer copy(Customer entity) { return entity.copy(); }
+
+    /**
+     * Interactive method to update a customer's name and contact information.
+     * Prompts the user for the new values, then applies both in one update().
+     * 
+     * @param id The ID of the customer to update
+     * @param sc Scanner for reading user input
+     */
+    public void updateCustomer(int id, Scanner sc) {
+        if (findById(id) == null) {
+            System.out.println("Entity not found.");
+            return;
+        }
         System.out.print("Enter new name: ");
-        c.setName(sc.nextLine());
+        String name = sc.nextLine();
         System.out.print("Enter new contact: ");
-        c.setContact(sc.nextLine());
+        String contact = sc.nextLine();
+        
+        if (update(id, c -> {
+            c.setName(name);
+            c.setContact(contact);
+        }) == null) {
+            System.out.println("Entity not found."); // Deleted while the user was typing
+        } else {
+            System.out.println("Updated successfully!");
+        }
     }
 
     /**
@@ -1,8 +1,19 @@
 package managers;
 
 import java.util.*;
-//import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.io.*;
+import utils.AtomicFile;
+import utils.BinaryFile;
 import utils.FileHandler;
+import utils.IdAllocator;
+import utils.IntIntMap;
+import utils.JournalWriter;
+import utils.LongHashSet;
+import utils.MappedLineParser;
+import utils.Metrics;
 
 /**
  * Abstract base class for managing entities in the Comic Book Store System.
@@ -11,17 +22,155 @@ import utils.FileHandler;
  * CRUD (Create, Read, Update, Delete) operations with file persistence.
  * Subclasses must implement abstract methods for entity-specific operations.
  * 
+ * In JOURNAL mode every mutation is appended to a log file next to the data
+ * file (e.g. data/comics.txt.log) instead of rewriting the data file. The log
+ * is replayed on load() and folded back into the data file by a background
+ * compactor once it grows past the configured threshold. Journal records
+ * are text lines in either storage format; with the BINARY format a
+ * record carries the entity's binary record in Base64, so text fields may
+ * hold commas or line breaks there as well.
+ * 
+ * An ID index (entity ID to list position) is kept alongside the list so
+ * findById, update and delete run in constant time. New IDs come from an
+ * IdAllocator whose high-water mark is saved next to the data file
+ * (e.g. data/comics.txt.seq), so deleted IDs are never handed out again.
+ * 
+ * All public methods are thread-safe. A read-write lock lets any number of
+ * lookups and displays run in parallel, while adds, updates and deletes
+ * take the lock exclusively for the in-memory change (and journal append).
+ * A full snapshot copies the list under the read lock (references, or row
+ * numbers for the compact engines), then serializes it a chunk at a time,
+ * taking the read lock again for each chunk only. Neither serialization
+ * nor disk I/O happens under a lock that a queued writer (and every reader
+ * behind it) would wait for, and concurrent snapshots are serialized. A
+ * change made while a snapshot is written may or may not be in it; either
+ * way it is logged or saved again after it. A snapshot
+ * covers every change made before it started, so a thread whose change was
+ * already saved by another thread's snapshot does not write one of its own.
+ * 
+ * Snapshots never overwrite the data file in place: they are written to a
+ * temp file and renamed over it (see AtomicFile). The journal rotated away
+ * before a snapshot is discarded once the snapshot is on disk but before it
+ * replaces the data file, and load() finishes a save that crashed between
+ * the two, so the rotated log never replays over the newer snapshot.
+ * 
+ * In WRITE_BEHIND mode mutations only mark the manager dirty. A single
+ * background writer waits until no change has arrived for the configured
+ * delay (or until the oldest unsaved change reaches the maximum staleness)
+ * and then writes one snapshot. flush() saves pending changes at once, and
+ * a shutdown hook flushes them when the JVM exits.
+ * 
+ * Many changes can be grouped with batch(): a committed batch is applied
+ * under one write lock and persisted once, as a single snapshot or a single
+ * journal group that is replayed all-or-nothing.
+ * 
+ * In LEDGER mode the data file is an append-only ledger: each add appends
+ * one line to it and forces it to disk before returning, with concurrent
+ * adders sharing one fsync (group commit). Entities can never be updated or
+ * deleted, so the file is never rewritten. A record torn by a crash in the
+ * middle of an append is cut off on load(). The list is then a
+ * LedgerEntityStore: only each record's offset stays in memory, and
+ * entities are read back from the ledger on demand.
+ * 
+ * In CHECKPOINT mode a save writes only the entities added, changed or
+ * deleted since the previous save (tracked by ID) as the next numbered delta
+ * file, so its cost follows the size of the change set rather than the
+ * size of the data file. load() replays the deltas in order on top of the
+ * data file, and a background merger folds them back into it once they
+ * have grown large enough (see CheckpointStore). Deltas found on load in
+ * another mode are folded in by a full snapshot right away.
+ * 
+ * With the LAZY storage engine the entities stay in the data file: the list
+ * is a LazyEntityStore holding record offsets and a bounded cache, entities
+ * about to be changed in place are pinned in memory, and every snapshot
+ * writes them back. A snapshot is also forced whenever more entities are
+ * pinned than the cache holds, so memory stays bounded in every mode.
+ * 
  * @param <T> The type of entity being managed
  * @author Comic Book Store System
  * @version 1.0
  */
 public abstract class EntityManager<T> {
-    /** List of entities currently loaded in memory */
-    protected List<T> entities = new ArrayList<>();
+    /** List of entities currently loaded in memory (created by createStore()) */
+    protected List<T> entities;
+
+    /** Index from entity ID to the entity's position in the list */
+    private final IntIntMap index = new IntIntMap();
+
+    /** Source of new entity IDs */
+    private final IdAllocator ids = new IdAllocator();
+
+    /** Guards entities and the ID index: many readers or a single writer */
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Serializes snapshot writers so two saves never write the same file at once
+    private final Object saveMonitor = new Object();
+
+    // Number of entities a snapshot serializes per read lock acquisition
+    private static final int SNAPSHOT_CHUNK = 1024;
+
+    // Number of changes made so far (guarded by the write lock)
+    private long changes;
+
+    // Number of changes contained in the last snapshot (guarded by saveMonitor)
+    private long savedChanges;
+
+    // Buffered console output: a page is written with one flush instead of one per line
+    private static final PrintWriter CONSOLE =
+            new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
     
     /** File path for data persistence */
     protected String filename;
 
+    /** Storage configuration for this manager */
+    protected final StoreOptions options;
+
+    // Journal record prefixes: add, update and delete
+    private static final char OP_ADD = 'A';
+    private static final char OP_UPDATE = 'U';
+    private static final char OP_DELETE = 'D';
+    // Batch header: the next N records were committed together
+    private static final char OP_BATCH = 'B';
+
+    // Write-ahead log for JOURNAL mode and stock commits (rotated away by every snapshot); the data file in LEDGER mode
+    private JournalWriter journal;
+
+    // Background thread that folds the journal back into the data file
+    private ScheduledExecutorService compactor;
+
+    // Set when the journal ends in a batch that was never fully written
+    private boolean tornJournal;
+
+    // Background snapshot writer for WRITE_BEHIND mode
+    private ExecutorService writeBehind;
+
+    // Flushes pending changes when the JVM exits (WRITE_BEHIND mode)
+    private Thread shutdownHook;
+
+    // Guards dirtySince and lastChange; the write-behind writer waits on it
+    private final Object dirtyMonitor = new Object();
+
+    // System.nanoTime() of the first unsaved change, or 0 when nothing is pending
+    private long dirtySince;
+
+    // System.nanoTime() of the latest unsaved change
+    private long lastChange;
+
+    // Latencies of completed operations and the entity count, exported by Metrics
+    private final StoreMetrics metrics;
+
+    // Delta files and their background merger in CHECKPOINT mode; null otherwise
+    private final CheckpointStore<T> checkpoints;
+
+    // IDs added, changed or deleted since the last checkpoint (guarded by itself)
+    private final LongHashSet dirtyIds = new LongHashSet();
+
+    // Whether changes are recorded in dirtyIds (CHECKPOINT mode, once the data file and deltas are loaded)
+    private boolean trackChanges;
+
+    // Delta files replayed by load() in a mode other than CHECKPOINT, deleted by the next snapshot
+    private List<String> foldedDeltas = List.of();
+
     /**
      * Constructor for creating an EntityManager instance.
      * Initializes the manager with a data file and loads existing data.
@@ -29,8 +178,34 @@ public abstract class EntityManager<T> {
      * @param filename The path to the data file for persistence
      */
     public EntityManager(String filename) {
+        this(filename, new StoreOptions());
+    }
+
+    /**
+     * Constructor for creating an EntityManager instance with storage options.
+     * Initializes the manager with a data file, loads existing data and
+     * starts the background compactor (JOURNAL mode) or snapshot writer
+     * (WRITE_BEHIND mode).
+     * 
+     * @param filename The path to the data file for persistence
+     * @param options Storage configuration for this manager
+     */
+    public EntityManager(String filename, StoreOptions options) {
         this.filename = filename;
+        this.options = options;
+        if (options.getPersistence() == PersistenceMode.LEDGER && options.getFormat() != StorageFormat.TEXT) {
+            throw new IllegalArgumentException("Persistence mode LEDGER requires the TEXT format");
+        }
+        if (options.getPersistence() == PersistenceMode.CHECKPOINT && options.getFormat() != StorageFormat.TEXT) {
+            throw new IllegalArgumentException("Persistence mode CHECKPOINT requires the TEXT format");
+        }
+        this.entities = createStore();
+        this.metrics = new StoreMetrics(filename, this);
+        this.checkpoints = options.getPersistence() == PersistenceMode.CHECKPOINT
+                ? new CheckpointStore<>(filename, this::parse, this::getId, options, metrics.merge, this::discardRotated) : null;
         load(); // Load existing data from file on initialization
+        if (options.getPersistence() == PersistenceMode.JOURNAL) startCompactor();
+        if (options.getPersistence() == PersistenceMode.WRITE_BEHIND) startWriteBehind();
     }
 
     /**
@@ -50,6 +225,26 @@ public abstract class EntityManager<T> {
      * @return String representation of the entity
      */
     protected abstract String serialize(T entity);
+
+    /**
+     * Abstract method to write an entity in the binary record format.
+     * Subclasses must implement this to define the entity's binary layout.
+     * 
+     * @param entity The entity to write
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    protected abstract void writeRecord(T entity, DataOutput out) throws IOException;
+
+    /**
+     * Abstract method to read an entity from the binary record format.
+     * Subclasses must implement this as the inverse of writeRecord.
+     * 
+     * @param in The stream to read from
+     * @return The entity read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    protected abstract T readRecord(DataInput in) throws IOException;
     
     /**
      * Abstract method to get the ID of an entity.
@@ -59,41 +254,222 @@ public abstract class EntityManager<T> {
      * @return The entity's ID
      */
     protected abstract int getId(T entity);
-    
+
     /**
-     * Abstract method to update an entity's fields.
-     * Subclasses must implement this to define entity-specific update logic.
+     * Creates the list that holds the entities in memory, according to the
+     * configured storage engine. Called once, before load(). HEAP and LAZY
+     * work for every entity type; subclasses override it to support other
+     * engines. In LEDGER mode the list keeps only record offsets (see
+     * LedgerEntityStore), whatever the entity type. The list returned
+     * may hand out different (but equal) objects from get() than the ones
+     * stored, so entities are compared with equals(), never by identity.
      * 
-     * @param entity The entity to update
-     * @param sc Scanner for user input during update
+     * @return An empty list for the entities
+     * @throws IllegalArgumentException if the engine is not supported for this entity type
      */
-    protected abstract void updateEntity(T entity, Scanner sc);
+    protected List<T> createStore() {
+        if (options.getPersistence() == PersistenceMode.LEDGER) {
+            if (options.getEngine() != StorageEngine.HEAP) {
+                throw new IllegalArgumentException("Storage engine " + options.getEngine()
+                        + " does not support persistence mode LEDGER");
+            }
+            return new LedgerEntityStore<>(filename, this::parse);
+        }
+        if (options.getEngine() == StorageEngine.LAZY) {
+            if (options.getFormat() != StorageFormat.TEXT || options.isParallelLoad()) {
+                throw new IllegalArgumentException("Storage engine LAZY requires the TEXT format without parallel load");
+            }
+            if (options.getPersistence() == PersistenceMode.CHECKPOINT) {
+                throw new IllegalArgumentException("Storage engine LAZY does not support persistence mode CHECKPOINT");
+            }
+            return new LazyEntityStore<>(filename, this::parse, options.getCacheSize());
+        }
+        if (options.getEngine() != StorageEngine.HEAP) {
+            throw new IllegalArgumentException("Storage engine " + options.getEngine()
+                    + " is not supported by " + getClass().getSimpleName());
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Copies the list of entities for a snapshot that is serialized after
+     * the lock is released. The copy must keep showing the same entities
+     * (with their latest values) whatever is added or removed afterwards.
+     * Called with the read lock held; the default copies the references.
+     * 
+     * @return A copy of the list
+     */
+    protected List<T> copyEntities() { return new ArrayList<>(entities); }
+
+    /**
+     * Hook called whenever an entity enters the collection or has just been
+     * changed by an update. Subclasses override it to maintain secondary
+     * indexes. Called with the write lock held; the default does nothing.
+     * 
+     * @param entity The entity to index
+     */
+    protected void indexEntity(T entity) { }
+
+    /**
+     * Hook called whenever an entity leaves the collection or is about to be
+     * changed by an update, while its fields still hold the old values.
+     * Called with the write lock held; the default does nothing.
+     * 
+     * @param entity The entity to remove from secondary indexes
+     */
+    protected void unindexEntity(T entity) { }
+
+    /**
+     * Hook that carries an update over to the stored entity once the edit
+     * has succeeded on a detached copy. Called with the write lock held, but
+     * fields changed without it (e.g. a stock counter updated by
+     * compare-and-set) may have moved since the copies were taken. The
+     * default returns the edited copy, which replaces the stored entity;
+     * subclasses with such fields override it to change the stored entity
+     * in place, applying only the difference between the copies to them.
+     * 
+     * @param stored The entity stored in the collection
+     * @param from A copy of the stored entity taken before the edit
+     * @param to The edited copy
+     * @return The entity to store: the edited copy, or stored once changed in place
+     */
+    protected T carryOver(T stored, T from, T to) { return to; }
+
+    /**
+     * Hook that creates a detached copy of an entity, which an update edits
+     * before carryOver() applies it. Called with the write lock held. The
+     * default round-trips the entity through serialize() and parse();
+     * subclasses whose text format cannot hold every value (e.g. a comma in
+     * a title stored in the BINARY format) override it with a real copy.
+     * 
+     * @param entity The entity to copy
+     * @return A new entity with the same values
+     * @throws IllegalStateException if the entity does not survive the round trip
+     */
+    protected T copy(T entity) {
+        T copy = parse(serialize(entity));
+        if (copy == null) throw new IllegalStateException("Cannot copy entity " + getId(entity) + ": its text record does not parse");
+        return copy;
+    }
+
+    /**
+     * Hook called in LEDGER mode once an entity's record has been appended
+     * to the ledger, with the byte offset at which the record starts.
+     * Subclasses override it to index records by location. Called with the
+     * write lock held, in ledger order; the default does nothing.
+     * 
+     * @param entity The entity appended
+     * @param offset The offset of its record in the data file
+     */
+    protected void indexRecord(T entity, long offset) { }
 
     /**
      * Adds a new entity to the collection and persists to file.
+     * In LEDGER mode the entity is on disk when this returns.
      * 
      * @param entity The entity to add
+     * @throws IllegalArgumentException if an entity with the same ID already exists
+     * @throws UncheckedIOException if the journal or ledger cannot be written
+     *         (the entity is then not added) or, in LEDGER mode, forced to disk
+     *         (the entity is then added but may not survive a power failure)
      */
     public void add(T entity) {
-        entities.add(entity);
-        save(); // Persist changes to file
+        long start = Metrics.startTime();
+        long change;
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            if (index.containsKey(getId(entity))) {
+                throw new IllegalArgumentException("Duplicate ID: " + getId(entity));
+            }
+            insert(entity);
+            try {
+                if (options.getPersistence() == PersistenceMode.LEDGER) {
+                    long[] offset = new long[1];
+                    sequence = journal.appendAll(List.of(serialize(entity)), offset);
+                    located(entity, offset[0]);
+                } else {
+                    logMutation(OP_ADD + "," + encode(entity));
+                }
+            } catch (UncheckedIOException e) {
+                removeById(getId(entity)); // Not logged: not added
+                throw e;
+            }
+            change = ++changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sequence > 0) journal.sync(sequence); // Shared with concurrent adders
+        persist(change); // Persist changes to file
+        metrics.add.recordSince(start);
     }
 
+    /**
+     * Starts a batch of changes that is applied and persisted as one unit
+     * when its commit() is called.
+     * 
+     * @return A new, empty batch for this manager
+     */
+    public Batch<T> batch() { return new Batch<>(this); }
+
     /**
      * Gets all entities in the collection.
+     * Returns a read-only copy, so callers can iterate it while other
+     * threads keep modifying the manager.
      * 
      * @return List of all entities
      */
-    public List<T> getAll() { return entities; }
+    public List<T> getAll() {
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(entities));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the entities in the collection.
+     * 
+     * @return The number of entities
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entities.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
     /**
      * Deletes an entity by its ID and persists changes to file.
+     * The last entity in the list takes the deleted entity's position,
+     * so removal is constant-time but does not preserve list order.
      * 
      * @param id The ID of the entity to delete
+     * @throws UncheckedIOException if the journal cannot be written; the entity is then kept
      */
     public void delete(int id) {
-        entities.removeIf(e -> getId(e) == id); // Remove entity with matching ID
-        save(); // Persist changes to file
+        checkMutable();
+        long start = Metrics.startTime();
+        long change;
+        lock.writeLock().lock();
+        try {
+            T removed = removeById(id);
+            if (removed == null) return; // Nothing to delete
+            try {
+                logMutation(OP_DELETE + "," + id);
+            } catch (UncheckedIOException e) {
+                insert(removed); // Not logged: not deleted
+                throw e;
+            }
+            change = ++changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        persist(change); // Persist changes to file
+        metrics.delete.recordSince(start);
     }
 
     /**
@@ -103,26 +479,267 @@ public abstract class EntityManager<T> {
      * @return The entity with the matching ID, or null if not found
      */
     public T findById(int id) {
-        for (T e : entities)
-            if (getId(e) == id)
-                return e;
-        return null; // Entity not found
+        long start = metrics.findById.startTime();
+        lock.readLock().lock();
+        try {
+            int pos = index.get(id, -1);
+            return pos < 0 ? null : entities.get(pos); // null if entity not found
+        } finally {
+            lock.readLock().unlock();
+            metrics.findById.recordSince(start);
+        }
+    }
+
+    /**
+     * Gets the entity with an ID without locking or timing the lookup, for
+     * subclasses resolving IDs held in their own indexes. Caller must hold
+     * a lock.
+     * 
+     * @param id The ID to look up
+     * @return The entity with the matching ID, or null if not found
+     */
+    protected T entityOf(int id) {
+        int pos = index.get(id, -1);
+        return pos < 0 ? null : entities.get(pos);
+    }
+
+    /**
+     * Gets the list position of the entity with an ID, for subclasses that
+     * reach their store by position. The position stays valid only while
+     * the caller holds a lock.
+     * 
+     * @param id The ID to look up
+     * @return The list position, or -1 if not found
+     */
+    protected int positionOf(int id) { return index.get(id, -1); }
+
+    /**
+     * Serializes the entity at a list position for the journal. Subclasses
+     * whose store can build the record without materializing the entity
+     * override it. Used in the TEXT format only (see encode()). Caller must
+     * hold a lock; the default is serialize(entities.get(pos)).
+     * 
+     * @param pos The list position
+     * @return The entity's stored representation
+     */
+    protected String recordAt(int pos) { return serialize(entities.get(pos)); }
+
+    /**
+     * Finds an entity that the caller is about to change in place without
+     * the write lock (e.g. a stock counter updated by compare-and-set).
+     * With the LAZY engine the entity is held in memory until the caller
+     * passes it to endChange(), so the change can neither be evicted nor
+     * split between two copies; otherwise this is the same as findById.
+     * 
+     * @param id The ID to search for
+     * @return The entity with the matching ID, or null if not found
+     */
+    protected T findForChange(int id) {
+        lock.readLock().lock();
+        try {
+            int pos = index.get(id, -1);
+            if (pos < 0) return null;
+            LazyEntityStore<T> lazy = lazyStore();
+            return lazy == null ? entities.get(pos) : lazy.hold(pos);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
-     * Updates an entity by its ID with new values from user input.
+     * Ends a change started with findForChange, once it has been logged or
+     * abandoned. Does nothing unless the LAZY engine is in use.
+     * 
+     * @param entity The entity returned by findForChange
+     */
+    protected void endChange(T entity) {
+        LazyEntityStore<T> lazy = lazyStore();
+        if (lazy != null) lazy.release(entity);
+    }
+
+    /**
+     * Gets the cache counters of the LAZY engine.
+     * 
+     * @return The counters, or null if another engine is in use
+     */
+    public CacheStats getCacheStats() {
+        LazyEntityStore<T> lazy = lazyStore();
+        return lazy == null ? null : lazy.stats();
+    }
+
+    /**
+     * Updates an entity by its ID. The edit runs on a copy of the stored
+     * entity while the manager is locked for writing, and the secondary
+     * indexes and the data file (or journal) are updated once for the whole
+     * edit, however many fields it sets. The copy is carried over to the
+     * stored entity only if the edit succeeds (see carryOver()), so an edit
+     * that throws (e.g. a setter rejects a value) changes nothing.
+     * The edit should only set fields; it must not block or touch the manager.
      * 
      * @param id The ID of the entity to update
-     * @param sc Scanner for user input during update
-     */
-    public void update(int id, Scanner sc) {
-        T entity = findById(id);
-        if (entity != null) {
-            updateEntity(entity, sc); // Delegate to subclass for entity-specific update
-            save(); // Persist changes to file
-            System.out.println("Updated successfully!");
-        } else {
-            System.out.println("Entity not found.");
+     * @param edit Applies the new values to the entity
+     * @return The updated entity, or null if no entity has that ID
+     * @throws UnsupportedOperationException in LEDGER mode
+     * @throws UncheckedIOException if the journal cannot be written; the entity is then unchanged
+     */
+    public T update(int id, Consumer<? super T> edit) {
+        checkMutable();
+        Objects.requireNonNull(edit, "edit");
+        long start = Metrics.startTime();
+        T entity;
+        long change;
+        lock.writeLock().lock();
+        try {
+            int pos = index.get(id, -1);
+            if (pos < 0) return null;
+            Deque<Runnable> undo = new ArrayDeque<>(1);
+            try {
+                logMutation(applyEdit(pos, edit, undo));
+            } catch (RuntimeException e) {
+                while (!undo.isEmpty()) undo.pop().run();
+                throw e;
+            }
+            entity = entities.get(index.get(id, -1));
+            change = ++changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        persist(change); // Persist changes to file
+        metrics.update.recordSince(start);
+        return entity;
+    }
+
+    /**
+     * Applies and persists the changes of a batch. All changes are applied
+     * under one write lock; if one fails, those already applied are undone
+     * in reverse order and the exception is rethrown. In JOURNAL mode the
+     * records are appended as one group behind a header giving their count,
+     * then forced to disk with a group-committed fsync; in LEDGER mode the
+     * added entities are appended to the ledger the same way (without a
+     * header); in SNAPSHOT mode a single snapshot is written.
+     * 
+     * @param batch The changes to apply, in order
+     * @throws IllegalArgumentException if an add has a duplicate ID or an
+     *         update names a missing ID
+     * @throws UnsupportedOperationException if the batch updates or deletes in LEDGER mode
+     * @throws UncheckedIOException if the records cannot be written (the batch
+     *         is then undone) or forced to disk (it is then applied but may not
+     *         survive a power failure)
+     */
+    void commit(List<Batch.Change<T>> batch) {
+        if (batch.isEmpty()) return;
+        List<String> records = new ArrayList<>(batch.size() + 1);
+        Deque<Runnable> undo = new ArrayDeque<>();
+        long change;
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            try {
+                for (Batch.Change<T> c : batch) records.add(apply(c, undo));
+                records.removeIf(Objects::isNull); // Deletes of missing IDs
+                if (records.isEmpty()) return; // Nothing changed
+                switch (options.getPersistence()) {
+                    case JOURNAL :
+                        records.add(0, OP_BATCH + "," + records.size());
+                        sequence = journal.appendAll(records);
+                        break;
+                    case LEDGER : {
+                        records.replaceAll(record -> record.substring(2)); // Bare entities, no opcode
+                        long[] offsets = new long[records.size()];
+                        sequence = journal.appendAll(records, offsets);
+                        for (int i = 0; i < offsets.length; i++) located(batch.get(i).entity, offsets[i]); // Adds only
+                        break;
+                    }
+                    default : break;
+                }
+            } catch (RuntimeException e) {
+                while (!undo.isEmpty()) undo.pop().run(); // Most recent change first
+                throw e;
+            }
+            change = ++changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (sequence > 0) journal.sync(sequence); // Shared with concurrent committers
+        persist(change);
+    }
+
+    /**
+     * Applies one batched change in memory and records how to undo it.
+     * Caller must hold the write lock.
+     * 
+     * @param c The change to apply
+     * @param undo Stack the undo action is pushed onto
+     * @return The journal record for the change, or null if nothing changed
+     */
+    private String apply(Batch.Change<T> c, Deque<Runnable> undo) {
+        switch (c.kind) {
+            case ADD : {
+                int id = getId(c.entity);
+                if (index.containsKey(id)) throw new IllegalArgumentException("Duplicate ID: " + id);
+                insert(c.entity);
+                undo.push(() -> removeById(id));
+                return OP_ADD + "," + encode(c.entity);
+            }
+            case UPDATE : {
+                checkMutable();
+                int pos = index.get(c.id, -1);
+                if (pos < 0) throw new IllegalArgumentException("Entity not found: " + c.id);
+                return applyEdit(pos, c.edit, undo);
+            }
+            default : {
+                checkMutable();
+                T removed = removeById(c.id);
+                if (removed == null) return null; // Nothing to delete
+                undo.push(() -> insert(removed));
+                return OP_DELETE + "," + c.id;
+            }
+        }
+    }
+
+    /**
+     * Applies an edit to the entity at a list position in memory, keeping
+     * the secondary indexes in step, and records how to undo it.
+     * Caller must hold the write lock.
+     * 
+     * @param pos The list position of the entity
+     * @param edit Applies the new values to the entity
+     * @param undo Stack the undo action is pushed onto
+     * @return The journal record for the change
+     */
+    private String applyEdit(int pos, Consumer<? super T> edit, Deque<Runnable> undo) {
+        T stored = getForChange(pos);
+        int id = getId(stored);
+        T before = copy(stored); // Detached copies: a failing edit leaves nothing to undo
+        T after = copy(stored);
+        edit.accept(after);
+        replaceValues(pos, stored, before, after);
+        undo.push(() -> {
+            int at = index.get(id, -1); // A later change in the batch may have moved it
+            if (at >= 0) replaceValues(at, getForChange(at), after, before);
+        });
+        if (trackChanges) trackChange(id);
+        return OP_UPDATE + "," + encode(entities.get(pos));
+    }
+
+    /**
+     * Moves the stored entity at a list position from one set of values to
+     * another through carryOver(), keeping the secondary indexes in step.
+     * Caller must hold the write lock.
+     * 
+     * @param pos The list position of the entity
+     * @param stored The entity stored at the position
+     * @param from A detached copy holding the values it is moved from
+     * @param to A detached copy holding the values it is moved to
+     */
+    private void replaceValues(int pos, T stored, T from, T to) {
+        unindexEntity(stored); // Secondary indexes are keyed on the old field values
+        T result = stored;
+        try {
+            result = carryOver(stored, from, to);
+        } finally {
+            if (result != stored) entities.set(pos, result);
+            indexEntity(entities.get(pos)); // The stored object, which a compact store may have copied
         }
     }
 
@@ -133,45 +750,970 @@ public abstract class EntityManager<T> {
      * @param displayFunc Function that converts an entity to a display string
      */
     public void displayAll(java.util.function.Function<T, String> displayFunc) {
-        if (entities.isEmpty()) {
-            System.out.println("No records found.");
-            return;
+        lock.readLock().lock();
+        try {
+            display(entities, displayFunc);
+        } finally {
+            lock.readLock().unlock();
         }
-        for (T e : entities)
-            System.out.println(displayFunc.apply(e)); // Apply display function to each entity
+    }
+
+    /**
+     * Displays a list of entities (typically one page) through a buffered
+     * writer that is flushed once at the end.
+     * 
+     * @param items The entities to display
+     * @param displayFunc Function that converts an entity to a display string
+     */
+    public void display(List<T> items, java.util.function.Function<T, String> displayFunc) {
+        synchronized (CONSOLE) {
+            if (items.isEmpty()) CONSOLE.println("No records found.");
+            for (T e : items)
+                CONSOLE.println(displayFunc.apply(e)); // Apply display function to each entity
+            CONSOLE.flush();
+        }
+    }
+
+    /**
+     * Gets a page of entities in storage order. Costs O(limit).
+     * 
+     * @param offset The number of entities to skip
+     * @param limit The maximum number of entities to return
+     * @return Up to limit entities starting at offset
+     */
+    public List<T> page(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int from = Math.min(Math.max(offset, 0), entities.size());
+            int to = (int) Math.min((long) from + Math.max(limit, 0), entities.size());
+            return new ArrayList<>(entities.subList(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a page of entities in a given order. Only the first offset + limit
+     * entities are kept while scanning, so the cost is O(n log(offset + limit))
+     * rather than a full sort.
+     * 
+     * @param offset The number of entities to skip
+     * @param limit The maximum number of entities to return
+     * @param order The order of the pages
+     * @return Up to limit entities starting at offset in the given order
+     */
+    public List<T> page(int offset, int limit, Comparator<? super T> order) {
+        int keep = (int) Math.min((long) Math.max(offset, 0) + Math.max(limit, 0), Integer.MAX_VALUE);
+        if (keep == 0) return new ArrayList<>();
+        PriorityQueue<T> top = new PriorityQueue<>(Collections.reverseOrder(order)); // Head = last kept entity
+        lock.readLock().lock();
+        try {
+            for (T e : entities) {
+                if (top.size() < keep) {
+                    top.add(e);
+                } else if (order.compare(e, top.peek()) < 0) {
+                    top.poll();
+                    top.add(e);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<T> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        return sorted.subList(Math.min(Math.max(offset, 0), sorted.size()), sorted.size());
+    }
+
+    /**
+     * Gets the next page of entities by ascending ID, starting after a given ID
+     * (keyset pagination). IDs are handed out sequentially, so the page is
+     * found by probing the ID index: O(limit) while IDs are dense, with a
+     * full scan as fallback when too many IDs in the range were deleted.
+     * 
+     * @param afterId The last ID of the previous page (0 for the first page)
+     * @param limit The maximum number of entities to return
+     * @return Up to limit entities with IDs greater than afterId, in ID order
+     */
+    public List<T> pageAfter(int afterId, int limit) {
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        lock.readLock().lock();
+        try {
+            int last = ids.current();
+            long budget = 4L * limit + 1024; // Probes allowed before giving up on density
+            for (long id = afterId + 1L; id <= last && result.size() < limit; id++) {
+                if (--budget < 0) return scanAfter(afterId, limit);
+                int pos = index.get((int) id, -1);
+                if (pos >= 0) result.add(entities.get(pos));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keyset page by full scan, for sparse ID ranges. Caller must hold the read lock.
+     */
+    private List<T> scanAfter(int afterId, int limit) {
+        Comparator<T> byId = Comparator.comparingInt(this::getId);
+        PriorityQueue<T> top = new PriorityQueue<>(byId.reversed());
+        for (T e : entities) {
+            if (getId(e) <= afterId) continue;
+            top.add(e);
+            if (top.size() > limit) top.poll();
+        }
+        List<T> result = new ArrayList<>(top);
+        result.sort(byId);
+        return result;
     }
 
     /**
      * Loads entities from the data file.
-     * Reads each line from the file and parses it into entity objects.
+     * Reads each line from the file and parses it into entity objects,
+     * then replays any delta files and journal records written since.
      */
     public void load() {
-        List<String> lines = FileHandler.readFile(filename);
-        for (String line : lines) {
-            T entity = parse(line); // Parse each line into an entity
-            if (entity != null) entities.add(entity); // Add valid entities only
+        long start = Metrics.startTime();
+        lock.writeLock().lock();
+        try {
+            loadLocked();
+        } finally {
+            lock.writeLock().unlock();
         }
+        // A rotated log left by an interrupted snapshot, or a batch cut short
+        // by a crash: write a snapshot now so later appends start a clean log.
+        // Deltas left by CHECKPOINT mode are folded into the snapshot as well
+        if (tornJournal || new File(JournalWriter.rotatedFile(journalFile())).exists() || !foldedDeltas.isEmpty()) save();
+        tornJournal = false;
+        writeBackIfFull(); // Entities replayed from the journal are pinned by the LAZY engine
+        metrics.load.recordSince(start);
+    }
+
+    /**
+     * Loads the data file and replays the delta files and the journal.
+     * Caller must hold the write lock.
+     */
+    private void loadLocked() {
+        trackChanges = false;
+        // A temp file left by a save that crashed: the data file itself is still the last complete snapshot
+        if (AtomicFile.recover(filename)) System.out.println("Discarded incomplete save of " + filename);
+        // A snapshot staged by a save that crashed before replacing the data file: finish the save
+        if (AtomicFile.recover(filename, options.getBackupCount(), this::discardSuperseded)) {
+            System.out.println("Completed interrupted save of " + filename);
+        }
+        AtomicFile.recover(sequenceFile());
+        if (options.getFormat() == StorageFormat.BINARY) {
+            try {
+                BinaryFile.read(filename, this::readRecord, this::loadEntity);
+            } catch (IOException e) {
+                System.out.println("Error reading file: " + filename + " (" + e.getMessage() + ")");
+            }
+        } else if (options.getPersistence() == PersistenceMode.LEDGER) {
+            loadLedger();
+            return;
+        } else if (lazyStore() != null) {
+            lazyStore().open(this::loadEntity); // Only the record offsets stay in memory
+        } else if (options.isParallelLoad()) {
+            loadParallel();
+        } else {
+            // Lines are streamed straight into the parser; the file is never held as a whole
+            FileHandler.readLines(filename, line -> {
+                T entity = parse(line); // Parse each line into an entity
+                if (entity != null) loadEntity(entity); // Add valid entities only
+            });
+        }
+        // Checkpoints written since the data file, oldest first; another mode folds them into its next snapshot
+        List<String> deltas = CheckpointStore.deltaFiles(filename);
+        for (String delta : deltas) replayJournalFile(delta, new int[1]);
+        if (checkpoints == null) foldedDeltas = deltas;
+        trackChanges = checkpoints != null; // Journal records are not in any delta yet
+        journal = new JournalWriter(journalFile(), replayJournal());
+        recoverHighWaterMark();
+    }
+
+    /**
+     * Loads the ledger and opens it for appending. A record torn by a crash
+     * in the middle of an append is cut off first; it was never acknowledged,
+     * since add() returns only after the fsync. Each record is parsed once
+     * for its ID, then only its offset is kept. Caller must hold the write lock.
+     */
+    private void loadLedger() {
+        try {
+            if (JournalWriter.truncateTornRecord(filename)) {
+                System.out.println("Discarded a torn record at the end of " + filename);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + filename + " (" + e.getMessage() + ")");
+        }
+        ledgerStore().open(this::loadEntity);
+        journal = new JournalWriter(filename, 0); // New entities are appended to the data file itself
     }
 
     /**
      * Saves all entities to the data file.
-     * Serializes each entity and writes to the file.
+     * Serializes each entity and writes to the file. The journal is rotated
+     * first, so records logged while the snapshot is written land in a fresh
+     * log. The rotated log is dropped once the snapshot containing it is
+     * durable and just before the snapshot replaces the data file; a crash
+     * in between is finished by the next load() (see AtomicFile.write).
+     * If the snapshot cannot be written, the old data file and the rotated
+     * log are both kept, so no change is lost; the next save retries.
+     * In CHECKPOINT mode only the entities changed since the previous save
+     * are written, as the next delta file, which drops the rotated log the
+     * same way.
+     * Does nothing in LEDGER mode, where the data file is always up to date.
      */
     public void save() {
-        List<String> lines = new ArrayList<>();
-        for (T entity : entities)
-            lines.add(serialize(entity)); // Serialize each entity
-        FileHandler.writeFile(filename, lines); // Write to file
+        if (options.getPersistence() == PersistenceMode.LEDGER) return;
+        long start = Metrics.startTime();
+        synchronized (saveMonitor) {
+            if (journal != null) journal.rotate();
+            long covered;
+            int highWaterMark;
+            List<T> snapshot = null;
+            int[] changed = null;
+            LazyEntityStore<T> lazy = lazyStore();
+            lock.readLock().lock();
+            try {
+                covered = changes;
+                highWaterMark = ids.current();
+                if (checkpoints != null) {
+                    changed = drainDirtyIds();
+                    if (changed.length > 0) {
+                        checkpoints.write(deltaRecords(changed)); // Small: the change set only; drops the rotated log
+                    } else {
+                        discardRotated(); // Every record in it is in an earlier delta
+                    }
+                } else if (lazy != null) {
+                    // Dirty entities are written back, then read from the new file: no change may slip in between
+                    int mark = highWaterMark;
+                    lazy.writeBack(() -> {
+                        writeHighWaterMark(mark);
+                        writeSnapshot(filename, entities, options.getFormat(), options.getBackupCount(), this::discardSuperseded);
+                    });
+                } else {
+                    snapshot = copyEntities(); // Serialized once the lock is released
+                }
+            } catch (IOException e) {
+                if (changed != null) {
+                    synchronized (dirtyIds) {
+                        for (int id : changed) dirtyIds.add(id); // Written by the next checkpoint
+                    }
+                }
+                System.out.println("Error writing file: " + filename + " (" + e.getMessage() + ")");
+                return;
+            } finally {
+                lock.readLock().unlock();
+            }
+            try {
+                if (lazy == null) writeHighWaterMark(highWaterMark);
+                if (snapshot != null) {
+                    writeSnapshot(filename, snapshot, options.getFormat(), options.getBackupCount(), this::discardSuperseded);
+                }
+            } catch (IOException e) {
+                System.out.println("Error writing file: " + filename + " (" + e.getMessage() + ")");
+                return;
+            }
+            foldedDeltas = List.of(); // Contained in the snapshot
+            savedChanges = Math.max(savedChanges, covered);
+        }
+        metrics.save.recordSince(start);
+    }
+
+    /**
+     * Saves the ID high-water mark. Written before a snapshot, which may drop
+     * the only records of the deleted IDs it covers (see discardSuperseded()).
+     * 
+     * @param highWaterMark The highest ID handed out
+     * @throws IOException if the file cannot be written
+     */
+    private void writeHighWaterMark(int highWaterMark) throws IOException {
+        FileHandler.writeLines(sequenceFile(), List.of(String.valueOf(highWaterMark)), 0);
     }
 
+    /**
+     * Deletes the journal rotated away by save(). Runs once the snapshot or
+     * delta that contains its records is staged, just before that replaces
+     * the data file or becomes the newest delta (see AtomicFile.write), and
+     * again on load if a save crashed in between. Records in the rotated log
+     * hold full entity states, so replaying it over that newer data would
+     * revert later changes and bring deleted entities back.
+     */
+    private void discardRotated() {
+        if (journal != null) {
+            journal.discardRotated();
+        } else {
+            new File(JournalWriter.rotatedFile(journalFile())).delete(); // Recovering on load: no writer yet
+        }
+    }
+
+    /**
+     * Deletes everything a full snapshot supersedes: the rotated journal and
+     * any delta files, which it folded in (only CHECKPOINT mode writes deltas,
+     * and it never writes a full snapshot).
+     */
+    private void discardSuperseded() {
+        discardRotated();
+        CheckpointStore.delete(CheckpointStore.deltaFiles(filename));
+    }
+
+    /**
+     * Takes the IDs changed since the last checkpoint, leaving none.
+     * 
+     * @return The changed IDs in ascending order
+     */
+    private int[] drainDirtyIds() {
+        long[] drained;
+        synchronized (dirtyIds) {
+            drained = dirtyIds.toArray();
+            dirtyIds.clear();
+        }
+        int[] changed = new int[drained.length];
+        for (int i = 0; i < drained.length; i++) changed[i] = (int) drained[i];
+        Arrays.sort(changed);
+        return changed;
+    }
+
+    /**
+     * Builds the delta records of changed IDs: the current state of each
+     * entity still present, a delete record for the others.
+     * Caller must hold the read lock.
+     * 
+     * @param changed The changed IDs
+     * @return The records, in the order of the IDs
+     */
+    private List<String> deltaRecords(int[] changed) {
+        List<String> records = new ArrayList<>(changed.length);
+        for (int id : changed) {
+            int pos = index.get(id, -1);
+            records.add(pos < 0 ? OP_DELETE + "," + id : OP_UPDATE + "," + serialize(entities.get(pos)));
+        }
+        return records;
+    }
+
+    /**
+     * Writes all entities to a file in the given format without touching the
+     * journal. Used by save() and to convert data files between formats.
+     * 
+     * @param target The path of the file to write
+     * @param format The format to write in
+     */
+    public void exportTo(String target, StorageFormat format) {
+        List<T> snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = copyEntities();
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            writeSnapshot(target, snapshot, format, 0, null);
+        } catch (IOException e) {
+            System.out.println("Error writing file: " + target);
+        }
+    }
+
+    /**
+     * Atomically replaces a file with a list of entities in the given format.
+     * Entities are serialized SNAPSHOT_CHUNK at a time into a buffer under
+     * the read lock, so each record is consistent, and the buffer is written
+     * to the file after the lock is released. Writers wait for one chunk at
+     * most. Called without the lock, or with the read lock held (LAZY engine).
+     * 
+     * @param target The path of the file to write
+     * @param snapshot The entities to write (see copyEntities())
+     * @param format The format to write in
+     * @param backups The number of previous versions of the file to keep
+     * @param beforeReplace Runs once the snapshot is durable, before it replaces the file (null for none)
+     * @throws IOException if the file cannot be written; its old content is then left in place
+     */
+    private void writeSnapshot(String target, List<T> snapshot, StorageFormat format, int backups,
+                               Runnable beforeReplace) throws IOException {
+        AtomicFile.write(target, backups, out -> {
+            OutputStream file = new BufferedOutputStream(out, 1 << 16);
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream(1 << 16);
+            Writer text = new OutputStreamWriter(chunk, FileHandler.CHARSET);
+            DataOutputStream binary = new DataOutputStream(chunk);
+            if (format == StorageFormat.BINARY) BinaryFile.writeHeader(binary, snapshot.size());
+            for (int from = 0; from < snapshot.size(); from += SNAPSHOT_CHUNK) {
+                int to = Math.min(from + SNAPSHOT_CHUNK, snapshot.size());
+                lock.readLock().lock();
+                try {
+                    for (int i = from; i < to; i++) {
+                        T entity = snapshot.get(i);
+                        if (format == StorageFormat.BINARY) {
+                            writeRecord(entity, binary);
+                        } else {
+                            text.write(serialize(entity)); // Serialize each entity
+                            text.write(System.lineSeparator());
+                        }
+                    }
+                    text.flush();
+                } finally {
+                    lock.readLock().unlock();
+                }
+                chunk.writeTo(file);
+                chunk.reset();
+            }
+            chunk.writeTo(file); // The header of an empty binary file
+            file.flush();
+        }, beforeReplace);
+    }
+
+    /**
+     * Folds the journal into the data file if it has reached the compaction threshold.
+     * Called periodically by the background compactor in JOURNAL mode.
+     */
+    public void compact() {
+        if (journal.size() >= options.getCompactionThreshold()) save();
+    }
+
+    /**
+     * Writes a snapshot now if any change is not yet in the data file.
+     * Returns once the snapshot is on disk. In WRITE_BEHIND mode this is how
+     * callers wait for their changes to become durable.
+     * 
+     * @return true if every change made before the call is in the data file,
+     *         false if the snapshot could not be written
+     */
+    public boolean flush() {
+        if (options.getPersistence() == PersistenceMode.LEDGER) return true; // Every add is already durable
+        long change;
+        lock.readLock().lock();
+        try {
+            change = changes;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return saveIfNeeded(change);
+    }
+
+    /**
+     * Stops the background threads and folds any pending changes and journal
+     * records into the data file (or a delta file in CHECKPOINT mode). Should be called once before the application exits.
+     */
+    public void close() {
+        if (compactor != null) compactor.shutdownNow();
+        if (writeBehind != null) {
+            writeBehind.shutdownNow();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down: the hook flushes as well
+            }
+            flush();
+        }
+        if (journal.size() > 0) save();
+        journal.close();
+        if (checkpoints != null) checkpoints.close();
+        if (lazyStore() != null) lazyStore().close();
+        if (ledgerStore() != null) ledgerStore().close();
+        metrics.close();
+    }
+
+    /**
+     * Encodes an entity for a journal record: serialize() in the TEXT
+     * format. In the BINARY format, whose text fields may hold commas and
+     * line breaks, it is the entity's binary record in Base64, which holds
+     * neither.
+     * 
+     * @param entity The entity to encode
+     * @return The payload of the record
+     */
+    private String encode(T entity) {
+        if (!binary()) return serialize(entity);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writeRecord(entity, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A byte array stream does not fail
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes the payload of a journal record written by encode(). In the
+     * BINARY format a payload with a comma is a text record, as journals
+     * written before records were encoded hold (Base64 has no comma).
+     * 
+     * @param payload The payload of the record
+     * @return The entity, or null if the payload is invalid
+     */
+    private T decode(String payload) {
+        if (!binary() || payload.indexOf(',') >= 0) return parse(payload);
+        try {
+            return readRecord(new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(payload))));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the data file uses the BINARY format.
+     * 
+     * @return true in the BINARY format
+     */
+    private boolean binary() { return options.getFormat() == StorageFormat.BINARY; }
+
+    /**
+     * Appends a mutation record to the journal in JOURNAL mode.
+     * Caller must hold the write lock, so records are logged in the same
+     * order the changes were applied in memory.
+     * 
+     * @param record The journal record
+     */
+    private void logMutation(String record) {
+        if (options.getPersistence() == PersistenceMode.JOURNAL) journal.append(record);
+    }
+
+    /**
+     * Logs the current state of an entity that was changed in place without
+     * the write lock (e.g. a stock counter updated by compare-and-set).
+     * Always uses the journal, whatever the persistence mode, so the change
+     * costs one appended record rather than a full rewrite. The record is
+     * built inside the journal's lock, so the last record logged for an
+     * entity always carries its latest state. The record reaches the OS
+     * before this returns; pass the result to syncState() to wait until it
+     * is on disk.
+     * 
+     * @param entity The entity whose state should be logged
+     * @return The journal sequence number of the record, or 0 if nothing was logged
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    protected long logState(T entity) {
+        checkMutable();
+        long sequence;
+        lock.readLock().lock();
+        try {
+            int pos = index.get(getId(entity), -1);
+            if (pos < 0 || !entities.get(pos).equals(entity)) return 0; // Deleted meanwhile: nothing to log
+            if (trackChanges) trackChange(getId(entity)); // Before the append, so the checkpoint that drops the record has the entity
+            sequence = journal.append(() -> OP_UPDATE + "," + encode(entity));
+        } finally {
+            lock.readLock().unlock();
+        }
+        writeBackIfFull();
+        return sequence;
+    }
+
+    /**
+     * Logs the current state of the entity with an ID, like logState(), but
+     * without needing the entity itself: the record is built from the store
+     * by recordAt(), so a compact store creates no object for it.
+     * 
+     * @param id The ID of the entity whose state should be logged
+     * @return The journal sequence number of the record, or 0 if nothing was logged
+     * @throws UncheckedIOException if the journal cannot be written
+     */
+    protected long logStateOf(int id) {
+        checkMutable();
+        long sequence;
+        lock.readLock().lock();
+        try {
+            int pos = index.get(id, -1);
+            if (pos < 0) return 0; // Deleted meanwhile: nothing to log
+            if (trackChanges) trackChange(id); // Before the append, as in logState()
+            sequence = journal.append(() -> OP_UPDATE + "," + (binary() ? encode(entities.get(pos)) : recordAt(pos)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        writeBackIfFull();
+        return sequence;
+    }
+
+    /**
+     * Blocks until a record logged by logState() is on disk. Concurrent
+     * callers share one fsync (group commit).
+     * 
+     * @param sequence The sequence number returned by logState()
+     * @throws UncheckedIOException if the journal cannot be forced to disk
+     */
+    protected void syncState(long sequence) {
+        if (sequence > 0) journal.sync(sequence);
+    }
+
+    /**
+     * Persists a mutation according to the persistence mode: nothing more in
+     * JOURNAL and LEDGER mode (the record is already logged), mark dirty in WRITE_BEHIND
+     * mode, write a snapshot in SNAPSHOT mode, or a delta file in CHECKPOINT mode.
+     * Called after the write lock has been released.
+     * 
+     * @param change The change count right after the mutation
+     */
+    private void persist(long change) {
+        writeBackIfFull();
+        switch (options.getPersistence()) {
+            case JOURNAL :
+            case LEDGER : return;
+            case WRITE_BEHIND : markDirty(); return;
+            default : saveIfNeeded(change);
+        }
+    }
+
+    /**
+     * Rejects in-place changes in LEDGER mode, where records are append-only.
+     * 
+     * @throws UnsupportedOperationException if the manager is a ledger
+     */
+    private void checkMutable() {
+        if (options.getPersistence() == PersistenceMode.LEDGER) {
+            throw new UnsupportedOperationException(filename + " is an append-only ledger");
+        }
+    }
+
+    /**
+     * Writes a full snapshot unless one started since the given change
+     * already contains it. Threads that queue behind a running snapshot are
+     * thereby served by the next one together.
+     * 
+     * @param change The change count that must be contained in the data file
+     * @return true if the data file now contains the change
+     */
+    private boolean saveIfNeeded(long change) {
+        synchronized (saveMonitor) {
+            if (savedChanges >= change) return true; // Saved by another thread's snapshot
+            save(); // Rewrite the whole data file
+            return savedChanges >= change;
+        }
+    }
+
+    /**
+     * Writes a snapshot if the LAZY engine has more entities pinned than its
+     * cache size, which would otherwise only be released by the next
+     * regular snapshot. Called without the write lock.
+     */
+    private void writeBackIfFull() {
+        LazyEntityStore<T> lazy = lazyStore();
+        if (lazy == null) return;
+        synchronized (saveMonitor) {
+            if (lazy.dirtyCount() > options.getCacheSize()) save(); // Checked again once earlier snapshots are done
+        }
+    }
+
+    /**
+     * Records an unsaved change for the write-behind writer, waking it if
+     * the manager was clean. Returns without doing any I/O.
+     */
+    private void markDirty() {
+        long now = System.nanoTime();
+        synchronized (dirtyMonitor) {
+            lastChange = now;
+            if (dirtySince != 0) return; // Writer is already counting down
+            dirtySince = now;
+            dirtyMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Body of the write-behind writer: waits for a change, then for the
+     * changes to settle (or grow too stale), then writes one snapshot.
+     * Runs until the writer is shut down.
+     */
+    private void writeBehindLoop() {
+        long delay = TimeUnit.MILLISECONDS.toNanos(options.getWriteBehindDelayMillis());
+        long maxStaleness = TimeUnit.MILLISECONDS.toNanos(options.getMaxStalenessMillis());
+        try {
+            while (true) {
+                synchronized (dirtyMonitor) {
+                    while (dirtySince == 0) dirtyMonitor.wait();
+                    while (true) {
+                        long due = Math.min(lastChange + delay, dirtySince + maxStaleness);
+                        long remaining = due - System.nanoTime();
+                        if (remaining <= 0) break;
+                        dirtyMonitor.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                    }
+                    dirtySince = 0; // Changes from now on need another snapshot
+                }
+                if (!flush()) markDirty(); // Snapshot failed: try again after the delay
+            }
+        } catch (InterruptedException e) {
+            // Shut down by close()
+        }
+    }
+
+    /**
+     * Replays the journal on top of the entities loaded from the data file.
+     * A rotated log is still present only if its snapshot or delta never
+     * took its place, so its records are newer than the data and are
+     * replayed first. Replaying it over a newer snapshot would not be
+     * harmless: outside JOURNAL mode it holds only stock records, each with
+     * a full entity state, which would revert later edits and bring back
+     * deleted entities. save() and load() make sure that never happens.
+     * 
+     * @return The number of records found in the journal
+     */
+    private int replayJournal() {
+        int[] records = new int[1];
+        // A log rotated by a snapshot that never finished is older than the current log
+        replayJournalFile(JournalWriter.rotatedFile(journalFile()), records);
+        records[0] = 0; // Only records in the current log count towards compaction
+        replayJournalFile(journalFile(), records);
+        return records[0];
+    }
+
+    /**
+     * Replays one journal file, counting the records applied. Records that
+     * follow a batch header are held back until the whole batch has been
+     * read; a batch cut short by the end of the file is dropped.
+     * 
+     * @param logFile The journal file to replay
+     * @param records Single-element counter incremented for each record
+     */
+    private void replayJournalFile(String logFile, int[] records) {
+        if (!new File(logFile).exists()) return;
+        List<String> pending = new ArrayList<>(); // Records of the batch being read
+        int[] expected = new int[1];
+        FileHandler.readLines(logFile, line -> {
+            if (line.length() < 2) return; // Skip blank or truncated lines
+            if (expected[0] > 0) {
+                pending.add(line);
+                if (pending.size() < expected[0]) return;
+                for (String record : pending)
+                    if (replayRecord(record)) records[0]++;
+                pending.clear();
+                expected[0] = 0;
+            } else if (line.charAt(0) == OP_BATCH) {
+                expected[0] = Integer.parseInt(line.substring(2));
+            } else if (replayRecord(line)) {
+                records[0]++;
+            }
+        });
+        if (expected[0] > 0) {
+            System.out.println("Dropping incomplete batch of " + expected[0] + " records in " + logFile);
+            tornJournal = true;
+        }
+    }
+
+    /**
+     * Applies a single add, update or delete record from the journal.
+     * 
+     * @param line The journal record
+     * @return true if the record was understood and applied
+     */
+    private boolean replayRecord(String line) {
+        String payload = line.substring(2);
+        switch (line.charAt(0)) {
+            case OP_ADD :
+            case OP_UPDATE : {
+                T entity = decode(payload);
+                if (entity == null) return false;
+                insert(entity);
+                return true;
+            }
+            case OP_DELETE : {
+                int id = Integer.parseInt(payload);
+                ids.observe(id); // A deleted ID must still never be reused
+                removeById(id);
+                return true;
+            }
+            default : return false; // Unknown record type
+        }
+    }
+
+    /**
+     * Loads the data file with MappedLineParser: chunks are parsed in parallel,
+     * sorted by ID within each chunk, then merged in ID order. Falls back to a
+     * full sort only if the chunks' ID ranges overlap.
+     */
+    private void loadParallel() {
+        FileHandler.ensureFile(filename); // Create a missing file like the sequential path does
+        List<List<T>> chunks;
+        try {
+            chunks = MappedLineParser.parse(filename, this::parse, ForkJoinPool.commonPool());
+        } catch (java.io.IOException e) {
+            System.out.println("Error reading file: " + filename);
+            return;
+        }
+        Comparator<T> byId = Comparator.comparingInt(this::getId);
+        chunks.parallelStream().forEach(chunk -> chunk.sort(byId)); // Stable, so duplicates keep file order
+        List<T> merged = new ArrayList<>();
+        boolean ordered = true;
+        for (List<T> chunk : chunks) {
+            if (chunk.isEmpty()) continue;
+            if (!merged.isEmpty() && getId(merged.get(merged.size() - 1)) > getId(chunk.get(0))) ordered = false;
+            merged.addAll(chunk);
+        }
+        if (!ordered) merged.sort(byId);
+        if (entities instanceof ArrayList) ((ArrayList<T>) entities).ensureCapacity(merged.size());
+        for (T entity : merged) loadEntity(entity);
+    }
+
+    /**
+     * Adds an entity read from the data file, reporting duplicate IDs.
+     * Caller must hold the write lock.
+     * 
+     * @param entity The parsed entity
+     */
+    private void loadEntity(T entity) {
+        if (index.containsKey(getId(entity)))
+            System.out.println("Duplicate ID " + getId(entity) + " in " + filename + "; keeping the last record.");
+        insert(entity);
+    }
+
+    /**
+     * Adds an entity to memory without persisting, replacing any entity
+     * that already has the same ID. Caller must hold the write lock.
+     * 
+     * @param entity The entity to insert
+     */
+    private void insert(T entity) {
+        int id = getId(entity);
+        ids.observe(id);
+        if (trackChanges) trackChange(id);
+        int pos = index.get(id, -1);
+        if (pos >= 0) {
+            unindexEntity(entities.get(pos));
+            entities.set(pos, entity); // Same ID: replace in place
+        } else {
+            pos = entities.size();
+            index.put(id, pos);
+            entities.add(entity);
+        }
+        indexEntity(entities.get(pos)); // The stored object, which a compact store may have copied
+    }
+
+    /**
+     * Gets the entity at a list position before it is changed in place,
+     * pinning it first with the LAZY engine. Caller must hold a lock.
+     * 
+     * @param pos The list position
+     * @return The entity
+     */
+    private T getForChange(int pos) {
+        LazyEntityStore<T> lazy = lazyStore();
+        return lazy == null ? entities.get(pos) : lazy.pin(pos);
+    }
+
+    /**
+     * Gets the list as a LazyEntityStore.
+     * 
+     * @return The store, or null if the LAZY engine is not in use
+     */
+    private LazyEntityStore<T> lazyStore() {
+        return entities instanceof LazyEntityStore ? (LazyEntityStore<T>) entities : null;
+    }
+
+    /**
+     * Gets the list as a LedgerEntityStore.
+     * 
+     * @return The store, or null unless in LEDGER mode
+     */
+    private LedgerEntityStore<T> ledgerStore() {
+        return entities instanceof LedgerEntityStore ? (LedgerEntityStore<T>) entities : null;
+    }
+
+    /**
+     * Records where an entity was appended to the ledger, so the store can
+     * drop it from memory, and passes the offset on to indexRecord().
+     * Caller must hold the write lock.
+     * 
+     * @param entity The entity appended
+     * @param offset The offset of its record in the data file
+     */
+    private void located(T entity, long offset) {
+        ledgerStore().locate(index.get(getId(entity), -1), offset);
+        indexRecord(entity, offset);
+    }
+
+    /**
+     * Removes the entity with the given ID from memory without persisting.
+     * Moves the last entity into the freed slot so no elements are shifted.
+     * Caller must hold the write lock.
+     * 
+     * @param id The ID of the entity to remove
+     * @return The removed entity, or null if no entity has that ID
+     */
+    private T removeById(int id) {
+        int pos = index.get(id, -1);
+        if (pos < 0) return null;
+        T removed = entities.get(pos);
+        T last = entities.remove(entities.size() - 1);
+        if (!last.equals(removed)) {
+            entities.set(pos, last);
+            index.put(getId(last), pos);
+        }
+        index.remove(id);
+        unindexEntity(removed);
+        if (trackChanges) trackChange(id);
+        return removed;
+    }
+
+    /**
+     * Records that an entity was added, changed or deleted since the last
+     * checkpoint (CHECKPOINT mode).
+     * 
+     * @param id The ID of the entity
+     */
+    private void trackChange(int id) {
+        synchronized (dirtyIds) {
+            dirtyIds.add(id);
+        }
+    }
+
+    /**
+     * Starts the daemon thread that periodically compacts the journal.
+     */
+    private void startCompactor() {
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor: " + filename);
+            t.setDaemon(true); // Never keep the application alive
+            return t;
+        });
+        long interval = options.getCompactionIntervalSeconds();
+        compactor.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts the write-behind writer thread and registers the shutdown hook
+     * that flushes pending changes when the JVM exits.
+     */
+    private void startWriteBehind() {
+        writeBehind = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "write-behind: " + filename);
+            t.setDaemon(true); // Never keep the application alive; the shutdown hook flushes
+            return t;
+        });
+        writeBehind.execute(this::writeBehindLoop);
+        shutdownHook = new Thread(this::flush, "write-behind flush: " + filename);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Restores the ID high-water mark saved with the last snapshot.
+     * IDs seen while loading have already been observed, so the result is
+     * the larger of the saved mark and the largest ID present.
+     */
+    private void recoverHighWaterMark() {
+        if (!new File(sequenceFile()).exists()) return;
+        for (String line : FileHandler.readFile(sequenceFile())) {
+            try {
+                if (!line.isEmpty()) ids.observe(Integer.parseInt(line));
+            } catch (NumberFormatException e) {
+                System.out.println("Ignoring invalid ID sequence file: " + sequenceFile());
+            }
+        }
+    }
+
+    /**
+     * Gets the path of the file holding the ID high-water mark.
+     * 
+     * @return The sequence file path
+     */
+    protected String sequenceFile() { return filename + ".seq"; }
+
+    /**
+     * Gets the path of the journal file kept next to the data file.
+     * 
+     * @return The journal file path
+     */
+    protected String journalFile() { return filename + ".log"; }
+
     /**
      * Generates the next available ID for a new entity.
-     * Assumes IDs are sequential and based on the last entity's ID.
+     * Lock-free and safe to call from several threads; every call returns
+     * a different ID, larger than any ID loaded, added or deleted so far.
      * 
      * @return The next available ID
      */
-    public int nextId() {
-        if (entities.isEmpty()) return 1; // Start with ID 1 if no entities exist
-        return getId(entities.get(entities.size() - 1)) + 1; // Increment last ID
-    }
+    public int nextId() { return ids.next(); }
 }
@@ -0,0 +1,41 @@
+package managers;
+
+/**
+ * FormatConverter class - Command-line tool that converts data files between formats.
+ * 
+ * Usage: java managers.FormatConverter comics|customers &lt;input&gt; &lt;output&gt; [text|binary]
+ * The input is read as text (with its journal replayed) and the output is
+ * written in the given format, binary by default. For example:
+ * java managers.FormatConverter comics data/comics.txt data/comics.bin
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class FormatConverter {
+    /**
+     * Entry point of the converter.
+     * 
+     * @param args Entity kind, input file, output file and optional target format
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java managers.FormatConverter comics|customers <input> <output> [text|binary]");
+            return;
+        }
+        StorageFormat format = args.length > 3 ? StorageFormat.valueOf(args[3].toUpperCase()) : StorageFormat.BINARY;
+        StoreOptions input = new StoreOptions();
+        input.setFormat(format == StorageFormat.BINARY ? StorageFormat.TEXT : StorageFormat.BINARY);
+
+        EntityManager<?> manager;
+        switch (args[0]) {
+            case "comics" : manager = new ComicManager(args[1], input); break;
+            case "customers" : manager = new CustomerManager(args[1], input); break;
+            default : {
+                System.out.println("Unknown entity kind: " + args[0]);
+                return;
+            }
+        }
+        manager.exportTo(args[2], format);
+        System.out.println("Converted " + manager.getAll().size() + " records to " + args[2]);
+    }
+}
@@ -0,0 +1,656 @@
+package managers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import utils.FileHandler;
+
+/**
+ * LazyEntityStore class - Entity list that leaves the records in the data file.
+ * 
+ * Used by EntityManager when the LAZY storage engine is selected. Instead of
+ * one object per entity, the store keeps only where each record sits in the
+ * (text) data file: one packed long per entity, next to EntityManager's ID
+ * index. get() parses the record on demand and keeps the result in an LRU
+ * cache of a fixed number of entities, so the heap needed does not grow
+ * with the catalog. Hits, misses and evictions are counted (see stats()).
+ * 
+ * Entities that are changed, or that are not in the data file yet, are
+ * pinned in memory as dirty instead of being cached: they can never be
+ * evicted, and get() returns the pinned object. The manager pins an entity
+ * before changing it in place (see pin()). The next snapshot writes dirty
+ * entities back: writeBack() runs it, then re-reads the record offsets from
+ * the new file and releases the pins into the cache. An entity changed
+ * outside the manager's write lock, such as a comic whose stock is taken
+ * for a sale, is held (see hold()) until the change is complete, and a
+ * snapshot never releases a held entity.
+ * 
+ * Entities returned by get() must be treated as read-only unless pinned;
+ * once evicted, a later get() parses a new copy from the file. All methods
+ * are synchronized, because lookups under the manager's read lock update
+ * the cache.
+ * 
+ * @param <T> The type of entity stored
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LazyEntityStore<T> extends AbstractList<T> implements RandomAccess {
+    // A location packs the record's file offset (high bits) and byte length (low bits)
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long MAX_OFFSET = (1L << (63 - LENGTH_BITS)) - 1;
+
+    // Location of a row whose entity has never been written to the data file
+    private static final long NOT_ON_DISK = -1;
+
+    // Read-ahead window used by sequential scans
+    private static final int WINDOW_SIZE = 1 << 16;
+
+    // Charset the data file is written in
+    private static final Charset CHARSET = FileHandler.CHARSET;
+
+    // Data file and record parser
+    private final String filename;
+    private final Function<String, T> parser;
+
+    // Maximum number of clean entities cached
+    private final int capacity;
+
+    // Open channel on the data file (replaced after every snapshot)
+    private FileChannel channel;
+
+    // Incremented whenever record locations change, so scans drop their read-ahead
+    private long generation;
+
+    // Rows in list order: order[i] is the row shown by get(i)
+    private int[] order = new int[16];
+    private int size;
+
+    // Location of each row's record in the data file
+    private long[] locations = new long[16];
+    private int rows;
+
+    // Clean entities by row, least recently used first
+    private LinkedHashMap<Integer, T> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Changed or new entities by row, pinned until a snapshot writes them back
+    private Map<Integer, T> dirty = new HashMap<>();
+
+    // Dirty entities being written by the running snapshot
+    private Map<Integer, T> writing = new HashMap<>();
+
+    // Entities being changed outside the manager's write lock, with their hold counts
+    private final Map<T, Integer> holds = new IdentityHashMap<>();
+
+    // Cache counters since the last open()
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // Entity being loaded by open(), and where its record is
+    private T scanned;
+    private long scannedLocation;
+
+    // Entity taken out by the last remove(), so set() and add() can move its row back in
+    private T removed;
+    private int removedRow;
+    private boolean removedDirty;
+
+    /**
+     * Constructor for creating a LazyEntityStore instance.
+     * The store is empty until open() reads the data file.
+     * 
+     * @param filename The path to the text data file
+     * @param parser Parses one record line into an entity (null if invalid)
+     * @param capacity The maximum number of clean entities to cache
+     */
+    public LazyEntityStore(String filename, Function<String, T> parser, int capacity) {
+        this.filename = filename;
+        this.parser = parser;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Callback that writes a snapshot of the list to the data file.
+     */
+    public interface Snapshot {
+        /**
+         * Writes the snapshot.
+         * 
+         * @throws IOException if the snapshot cannot be written
+         */
+        void write() throws IOException;
+    }
+
+    /**
+     * Reads the data file and appends one row per valid record. Each record
+     * is parsed once and handed to the sink, which is expected to add it to
+     * this list; entities added this way are cached, not pinned.
+     * Creates the file if it doesn't exist.
+     * 
+     * @param sink Receives each entity in file order
+     */
+    public synchronized void open(Consumer<T> sink) {
+        FileHandler.ensureFile(filename);
+        try {
+            FileChannel next = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            close();
+            channel = next;
+            generation++;
+            forEachLine(channel, (offset, bytes, length) -> {
+                T entity = parser.apply(new String(bytes, 0, length, CHARSET).trim());
+                if (entity == null) return; // Add valid entities only
+                scanned = entity;
+                scannedLocation = locate(offset, length);
+                try {
+                    sink.accept(entity);
+                } finally {
+                    scanned = null;
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + filename + " (" + e.getMessage() + ")");
+        }
+        hits = misses = evictions = 0; // Count lookups, not loading
+    }
+
+    /**
+     * Gets the entity at a list position, from memory if it is pinned or
+     * cached, otherwise by reading and parsing its record.
+     * 
+     * @param index The list position
+     * @return The entity
+     * @throws UncheckedIOException if the record cannot be read
+     */
+    @Override
+    public synchronized T get(int index) {
+        Objects.checkIndex(index, size);
+        int row = order[index];
+        T entity = pinned(row);
+        if (entity == null) entity = cache.get(row);
+        if (entity != null) {
+            hits++;
+            return entity;
+        }
+        misses++;
+        entity = read(locations[row]);
+        cacheEntity(row, entity);
+        return entity;
+    }
+
+    /**
+     * Gets the entity at a list position and pins it as dirty, so it stays
+     * in memory and is written back by the next snapshot. Called before an
+     * entity is changed in place.
+     * 
+     * @param index The list position
+     * @return The pinned entity
+     */
+    public synchronized T pin(int index) {
+        T entity = get(index);
+        int row = order[index];
+        if (!dirty.containsKey(row)) {
+            cache.remove(row);
+            dirty.put(row, entity);
+        }
+        return entity;
+    }
+
+    /**
+     * Pins the entity at a list position and holds it until a matching
+     * release(): snapshots taken meanwhile write it but keep it pinned, so a
+     * change still in progress is written by a later snapshot as well.
+     * 
+     * @param index The list position
+     * @return The held entity
+     */
+    public synchronized T hold(int index) {
+        T entity = pin(index);
+        holds.merge(entity, 1, Integer::sum);
+        return entity;
+    }
+
+    /**
+     * Ends one hold() of an entity. It stays pinned until the next snapshot.
+     * 
+     * @param entity The held entity
+     */
+    public synchronized void release(T entity) {
+        holds.computeIfPresent(entity, (e, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Stores an entity at a list position. The entity last taken out by
+     * remove() moves back with its row; any other entity replaces the row's
+     * content and is pinned as dirty.
+     * 
+     * @param index The list position
+     * @param entity The entity to store
+     * @return The entity previously at the position
+     */
+    @Override
+    public synchronized T set(int index, T entity) {
+        T previous = get(index);
+        int row = order[index];
+        cache.remove(row);
+        dirty.remove(row);
+        if (entity != null && entity == removed) {
+            order[index] = restoreRemoved(); // The old row is dead from now on
+        } else if (entity != null && entity == scanned) {
+            locations[row] = scannedLocation; // A later record in the file with the same ID
+            cacheEntity(row, entity);
+        } else {
+            dirty.put(row, entity);
+        }
+        return previous;
+    }
+
+    /**
+     * Inserts an entity at a list position (appending is constant-time).
+     * New entities are pinned as dirty until a snapshot writes them.
+     * 
+     * @param index The list position
+     * @param entity The entity to store
+     */
+    @Override
+    public synchronized void add(int index, T entity) {
+        Objects.checkIndex(index, size + 1);
+        int row;
+        if (entity != null && entity == removed) {
+            row = restoreRemoved();
+        } else {
+            row = allocateRow();
+            if (entity != null && entity == scanned) {
+                locations[row] = scannedLocation;
+                cacheEntity(row, entity);
+            } else {
+                dirty.put(row, entity);
+            }
+        }
+        if (size == order.length) order = Arrays.copyOf(order, size * 2);
+        System.arraycopy(order, index, order, index + 1, size - index);
+        order[index] = row;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the entity at a list position. Its row is dropped unless the
+     * entity is stored again by the next set() or add().
+     * 
+     * @param index The list position
+     * @return The removed entity
+     */
+    @Override
+    public synchronized T remove(int index) {
+        T entity = get(index);
+        int row = order[index];
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        modCount++;
+        cache.remove(row);
+        removedDirty = dirty.remove(row) != null;
+        removed = entity;
+        removedRow = row;
+        return entity;
+    }
+
+    /**
+     * Gets the number of entities in the list.
+     * 
+     * @return The list size
+     */
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Removes all entities and empties the cache. The data file is not touched.
+     */
+    @Override
+    public synchronized void clear() {
+        order = new int[16];
+        size = 0;
+        locations = new long[16];
+        rows = 0;
+        cache.clear();
+        dirty.clear();
+        writing.clear();
+        holds.clear();
+        removed = null;
+        generation++;
+        modCount++;
+    }
+
+    /**
+     * Iterates the list in order without filling the cache: records that
+     * are not in memory are parsed from a read-ahead window, so scanning a
+     * list in file order reads the file sequentially.
+     * 
+     * @return An iterator over the entities
+     */
+    @Override
+    public Iterator<T> iterator() { return new Scan(); }
+
+    /**
+     * Runs a snapshot that rewrites the data file, then points every row at
+     * its record in the new file and releases the dirty entities the
+     * snapshot wrote into the cache. Entities pinned while the snapshot runs
+     * stay pinned. If the snapshot fails, all pins are kept and the store
+     * goes on reading the old file.
+     * 
+     * The snapshot must write one line per entity, in list order, to the
+     * data file, and positions must not change until this method returns
+     * (EntityManager holds its read lock).
+     * 
+     * @param snapshot Writes the snapshot
+     * @throws IOException if the snapshot cannot be written or the new file read
+     */
+    public void writeBack(Snapshot snapshot) throws IOException {
+        synchronized (this) {
+            writing = dirty;
+            dirty = new HashMap<>();
+        }
+        boolean done = false;
+        try {
+            snapshot.write();
+            reopen();
+            done = true;
+        } finally {
+            if (!done) {
+                synchronized (this) {
+                    writing.putAll(dirty); // Pins taken during the snapshot are newer
+                    dirty = writing;
+                    writing = new HashMap<>();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entities pinned until the next snapshot.
+     * 
+     * @return The dirty entity count
+     */
+    public synchronized int dirtyCount() { return dirty.size() + writing.size(); }
+
+    /**
+     * Gets the cache counters.
+     * 
+     * @return A snapshot of the counters
+     */
+    public synchronized CacheStats stats() {
+        return new CacheStats(capacity, cache.size(), dirtyCount(), hits, misses, evictions);
+    }
+
+    /**
+     * Closes the data file. Entities in memory stay readable; others cannot be read afterwards.
+     */
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Error closing file: " + filename);
+        }
+        channel = null;
+    }
+
+    /**
+     * Reads the record offsets of a freshly written data file and swaps the
+     * store over to it. Caller must not hold the store's lock: the file is
+     * read before it is taken.
+     * 
+     * @throws IOException if the file cannot be read or does not match the list
+     */
+    private void reopen() throws IOException {
+        FileChannel next = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            long[] fresh = new long[Math.max(16, size)];
+            int[] lines = new int[1];
+            forEachLine(next, (offset, bytes, length) -> {
+                if (lines[0] < size) fresh[lines[0]] = locate(offset, length);
+                lines[0]++;
+            });
+            if (lines[0] != size) {
+                throw new IOException("Snapshot has " + lines[0] + " records, expected " + size);
+            }
+            renumber(fresh, next);
+        } catch (IOException | RuntimeException e) {
+            next.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Makes row i the row of list position i, with the given locations, and
+     * moves the cache and the pins to the new row numbers.
+     * 
+     * @param fresh Record locations in list order
+     * @param next Channel on the new data file
+     */
+    private synchronized void renumber(long[] fresh, FileChannel next) {
+        int[] moved = new int[rows];
+        Arrays.fill(moved, -1); // Dead rows
+        for (int i = 0; i < size; i++) moved[order[i]] = i;
+
+        LinkedHashMap<Integer, T> oldCache = cache;
+        cache = new LinkedHashMap<>(16, 0.75f, true);
+        for (Map.Entry<Integer, T> e : oldCache.entrySet()) { // Least recently used first
+            int row = moved[e.getKey()];
+            if (row >= 0) cache.put(row, e.getValue());
+        }
+        Map<Integer, T> oldDirty = dirty;
+        dirty = new HashMap<>();
+        for (Map.Entry<Integer, T> e : oldDirty.entrySet()) {
+            int row = moved[e.getKey()];
+            if (row >= 0) dirty.put(row, e.getValue());
+        }
+        for (Map.Entry<Integer, T> e : writing.entrySet()) { // Now in the file: clean unless held
+            int row = moved[e.getKey()];
+            if (row < 0 || dirty.containsKey(row)) continue;
+            if (holds.containsKey(e.getValue())) {
+                dirty.put(row, e.getValue());
+            } else {
+                cacheEntity(row, e.getValue());
+            }
+        }
+        writing = new HashMap<>();
+
+        for (int i = 0; i < size; i++) order[i] = i;
+        locations = fresh;
+        rows = size;
+        removed = null;
+        close();
+        channel = next;
+        generation++;
+    }
+
+    /**
+     * Gets a row's pinned entity, if any.
+     */
+    private T pinned(int row) {
+        T entity = dirty.get(row);
+        return entity != null ? entity : writing.get(row);
+    }
+
+    /**
+     * Caches a clean entity, evicting the least recently used one if the cache is full.
+     */
+    private void cacheEntity(int row, T entity) {
+        cache.put(row, entity);
+        if (cache.size() > capacity) {
+            Iterator<Integer> eldest = cache.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Puts the entity taken out by the last remove() back into memory.
+     * 
+     * @return Its row
+     */
+    private int restoreRemoved() {
+        if (removedDirty) {
+            dirty.put(removedRow, removed);
+        } else {
+            cacheEntity(removedRow, removed);
+        }
+        removed = null;
+        return removedRow;
+    }
+
+    /**
+     * Appends a row that is not in the data file.
+     * 
+     * @return The new row number
+     */
+    private int allocateRow() {
+        if (rows == locations.length) locations = Arrays.copyOf(locations, rows * 2);
+        locations[rows] = NOT_ON_DISK;
+        return rows++;
+    }
+
+    /**
+     * Reads and parses one record from the data file.
+     * 
+     * @param location The record's packed location
+     * @return The parsed entity
+     */
+    private T read(long location) {
+        long offset = location >>> LENGTH_BITS;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (location & LENGTH_MASK));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Record at offset " + offset + " is past the end of the file");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading file: " + filename, e);
+        }
+        return decode(buffer.array(), 0, buffer.capacity(), offset);
+    }
+
+    /**
+     * Parses a record held in a byte array.
+     * 
+     * @throws IllegalStateException if the record is no longer valid (the file was changed behind the store)
+     */
+    private T decode(byte[] bytes, int from, int length, long offset) {
+        T entity = parser.apply(new String(bytes, from, length, CHARSET).trim());
+        if (entity == null) throw new IllegalStateException("Invalid record at offset " + offset + " of " + filename);
+        return entity;
+    }
+
+    /**
+     * Packs a record's offset and length into a location.
+     * 
+     * @throws IOException if the record is too long or the file too large to address
+     */
+    private static long locate(long offset, int length) throws IOException {
+        if (length > LENGTH_MASK) throw new IOException("Record at offset " + offset + " is too long");
+        if (offset > MAX_OFFSET) throw new IOException("Data file is too large");
+        return (offset << LENGTH_BITS) | length;
+    }
+
+    /**
+     * Reads a file front to back and reports every line with its byte offset.
+     * The line bytes exclude the newline and are only valid during the call.
+     * Also used by LedgerEntityStore.
+     */
+    static void forEachLine(FileChannel channel, LineVisitor visitor) throws IOException {
+        byte[] chunk = new byte[WINDOW_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        byte[] line = new byte[256];
+        int length = 0;
+        long start = 0; // Offset of the current line
+        long read = 0;  // Bytes read so far
+        int n;
+        while ((n = channel.read(buffer.clear(), read)) > 0) {
+            for (int i = 0; i < n; i++) {
+                if (chunk[i] == '\n') {
+                    visitor.line(start, line, length);
+                    start = read + i + 1;
+                    length = 0;
+                } else {
+                    if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                    line[length++] = chunk[i];
+                }
+            }
+            read += n;
+        }
+        if (length > 0) visitor.line(start, line, length); // Last line without a newline
+    }
+
+    /**
+     * Receives the lines found by forEachLine.
+     */
+    interface LineVisitor {
+        void line(long offset, byte[] bytes, int length) throws IOException;
+    }
+
+    /**
+     * Iterator behind iterator(). Pinned and cached entities are returned
+     * as they are; other records are parsed from a read-ahead window
+     * without being cached.
+     */
+    private final class Scan implements Iterator<T> {
+        // Next list position
+        private int next;
+
+        // Read-ahead window and the file range it holds
+        private final byte[] window = new byte[WINDOW_SIZE];
+        private long windowStart = -1;
+        private int windowLength;
+        private long windowGeneration;
+
+        @Override
+        public boolean hasNext() { return next < size; }
+
+        @Override
+        public T next() {
+            synchronized (LazyEntityStore.this) {
+                if (next >= size) throw new NoSuchElementException();
+                int row = order[next++];
+                T entity = pinned(row);
+                if (entity == null) entity = cache.get(row);
+                if (entity != null) return entity;
+
+                long location = locations[row];
+                long offset = location >>> LENGTH_BITS;
+                int length = (int) (location & LENGTH_MASK);
+                if (length > WINDOW_SIZE) return read(location);
+                if (windowGeneration != generation || windowStart < 0 || offset < windowStart
+                        || offset + length > windowStart + windowLength) {
+                    fill(offset);
+                }
+                return decode(window, (int) (offset - windowStart), length, offset);
+            }
+        }
+
+        /**
+         * Refills the window with the file contents starting at an offset.
+         */
+        private void fill(long offset) {
+            ByteBuffer buffer = ByteBuffer.wrap(window);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) <= 0) break; // End of file
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading file: " + filename, e);
+            }
+            windowStart = offset;
+            windowLength = buffer.position();
+            windowGeneration = generation;
+        }
+    }
+}
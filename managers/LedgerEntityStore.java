@@ -0,0 +1,273 @@
+package managers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import utils.FileHandler;
+
+/**
+ * LedgerEntityStore class - Entity list that keeps only record offsets of an append-only ledger.
+ * 
+ * Used by EntityManager in LEDGER mode. The ledger is never rewritten, so a
+ * record's offset stays valid forever: the store keeps one long per entity
+ * (where its line starts), and together with EntityManager's ID index that
+ * is all the memory an entity costs. get() reads the line with a positional
+ * read and parses it on demand, as OrderHistoryIndex does for a customer's
+ * history, so the heap needed does not grow with the objects themselves.
+ * 
+ * An entity added by the manager is held in memory only until its record
+ * has been appended and locate() is called with its offset.
+ * 
+ * Entities returned by get() are fresh copies and must be treated as
+ * read-only. Changes to the list happen under the manager's write lock;
+ * reads need only its read lock, since a positional read does not move
+ * the channel's position.
+ * 
+ * @param <T> The type of entity stored
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LedgerEntityStore<T> extends AbstractList<T> implements RandomAccess {
+    // Offset of an entity whose record has not been appended yet
+    private static final long NOT_ON_DISK = -1;
+
+    // Bytes read at first for one record; enough for any ordinary ledger line
+    private static final int RECORD_READ_SIZE = 128;
+
+    // Charset the ledger is written in
+    private static final Charset CHARSET = FileHandler.CHARSET;
+
+    // Ledger file and record parser
+    private final String filename;
+    private final Function<String, T> parser;
+
+    // Open channel on the ledger (opened by open())
+    private FileChannel channel;
+
+    // Offset of each entity's record, in list order (only the first size are used)
+    private long[] offsets = new long[16];
+    private int size;
+
+    // Entities not appended yet, by list position
+    private final Map<Integer, T> pending = new HashMap<>();
+
+    // Entity being loaded by open(), and where its record starts
+    private T scanned;
+    private long scannedOffset;
+
+    // Entity taken out by the last remove(), so set() can move its offset back in
+    private T removed;
+    private long removedOffset;
+
+    /**
+     * Constructor for creating a LedgerEntityStore instance.
+     * The store is empty until open() reads the ledger.
+     * 
+     * @param filename The path to the ledger
+     * @param parser Parses one record line into an entity (null if invalid)
+     */
+    public LedgerEntityStore(String filename, Function<String, T> parser) {
+        this.filename = filename;
+        this.parser = parser;
+    }
+
+    /**
+     * Reads the ledger and appends one entry per valid record. Each record
+     * is parsed once and handed to the sink, which is expected to add it to
+     * this list; only its offset is kept. Creates the file if it doesn't exist.
+     * 
+     * @param sink Receives each entity in ledger order
+     */
+    public void open(Consumer<T> sink) {
+        FileHandler.ensureFile(filename);
+        try {
+            close();
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            LazyEntityStore.forEachLine(channel, (offset, bytes, length) -> {
+                T entity = parser.apply(new String(bytes, 0, length, CHARSET).trim());
+                if (entity == null) return; // Add valid entities only
+                scanned = entity;
+                scannedOffset = offset;
+                try {
+                    sink.accept(entity);
+                } finally {
+                    scanned = null;
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + filename + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Gets the entity at a list position, reading and parsing its record
+     * unless it has not been appended yet.
+     * 
+     * @param index The list position
+     * @return The entity
+     * @throws UncheckedIOException if the record cannot be read
+     */
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        long offset = offsets[index];
+        if (offset == NOT_ON_DISK) return pending.get(index);
+        if (scanned != null && offset == scannedOffset) return scanned; // Being loaded by open()
+        String record;
+        try {
+            record = readRecord(channel, offset, filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading file: " + filename, e);
+        }
+        T entity = parser.apply(record.trim());
+        if (entity == null) throw new IllegalStateException("Invalid record at offset " + offset + " of " + filename);
+        return entity;
+    }
+
+    /**
+     * Records where the entity at a list position was appended, after which
+     * it is no longer held in memory.
+     * 
+     * @param index The list position
+     * @param offset The offset of its record in the ledger
+     */
+    public void locate(int index, long offset) {
+        Objects.checkIndex(index, size);
+        offsets[index] = offset;
+        pending.remove(index);
+    }
+
+    /**
+     * Stores an entity at a list position. The entity being loaded by
+     * open(), or the one last taken out by remove(), moves in with its
+     * offset; any other entity is held in memory until locate().
+     * 
+     * @param index The list position
+     * @param entity The entity to store
+     * @return The entity previously at the position
+     */
+    @Override
+    public T set(int index, T entity) {
+        T previous = get(index);
+        pending.remove(index);
+        if (entity != null && entity == scanned) {
+            offsets[index] = scannedOffset; // A later record in the ledger with the same ID
+        } else if (entity != null && entity == removed && removedOffset != NOT_ON_DISK) {
+            offsets[index] = removedOffset;
+        } else {
+            offsets[index] = NOT_ON_DISK;
+            pending.put(index, entity);
+        }
+        return previous;
+    }
+
+    /**
+     * Appends an entity. The entity being loaded by open() is stored by its
+     * offset; any other entity is held in memory until locate().
+     * 
+     * @param index The list position, which must be size()
+     * @param entity The entity to store
+     * @throws UnsupportedOperationException if index is not size()
+     */
+    @Override
+    public void add(int index, T entity) {
+        if (index != size) throw new UnsupportedOperationException("Entities can only be appended to a ledger");
+        if (size == offsets.length) offsets = Arrays.copyOf(offsets, size + (size >> 1));
+        if (entity != null && entity == scanned) {
+            offsets[size] = scannedOffset;
+        } else {
+            offsets[size] = NOT_ON_DISK;
+            pending.put(size, entity);
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Removes the last entity, which set() can then move back in with its
+     * offset (EntityManager moves the last entity into a freed position).
+     * 
+     * @param index The list position, which must be size() - 1
+     * @return The removed entity
+     * @throws UnsupportedOperationException if index is not the last position
+     */
+    @Override
+    public T remove(int index) {
+        if (index != size - 1) throw new UnsupportedOperationException("Only the last entity can be removed from a ledger");
+        T entity = get(index);
+        removed = entity;
+        removedOffset = offsets[index];
+        pending.remove(index);
+        size--;
+        modCount++;
+        return entity;
+    }
+
+    /**
+     * Gets the number of entities stored.
+     * 
+     * @return The entity count
+     */
+    @Override
+    public int size() { return size; }
+
+    /**
+     * Closes the ledger. Entities not appended yet stay readable; others cannot be read afterwards.
+     */
+    public void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Error closing file: " + filename);
+        }
+        channel = null;
+    }
+
+    /**
+     * Reads the record (one line, without its line break) starting at an
+     * offset of a ledger.
+     * 
+     * @param channel An open channel on the ledger
+     * @param offset The start of the record
+     * @param filename The path of the ledger, for error messages
+     * @return The record
+     * @throws IOException if the ledger cannot be read or the line has no end
+     */
+    static String readRecord(FileChannel channel, long offset, String filename) throws IOException {
+        byte[] line = readLine(channel, offset, filename);
+        int end = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+        return new String(line, 0, end, CHARSET);
+    }
+
+    /**
+     * Reads the raw bytes of the line starting at an offset of a ledger, up
+     * to but excluding its '\n'.
+     * 
+     * @param channel An open channel on the ledger
+     * @param offset The start of the line
+     * @param filename The path of the ledger, for error messages
+     * @return The bytes of the line
+     * @throws IOException if the ledger cannot be read or the line has no end
+     */
+    static byte[] readLine(FileChannel channel, long offset, String filename) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_READ_SIZE);
+        while (true) {
+            int read = channel.read(buffer, offset + buffer.position());
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < buffer.position(); i++) {
+                if (bytes[i] == '\n') return Arrays.copyOf(bytes, i);
+            }
+            if (read < 0) throw new IOException("Unterminated record at offset " + offset + " in " + filename);
+            if (!buffer.hasRemaining()) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package managers;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * OffHeapComicStore class - Comic catalog storage outside the Java heap.
+ * 
+ * Used by ComicManager when the OFF_HEAP storage engine is selected. Each
+ * comic occupies one fixed-width 40-byte slot in direct ByteBuffers, and
+ * titles are UTF-8 bytes in a separate off-heap string heap of 1 MiB pages.
+ * The garbage collector sees a few thousand buffer objects instead of
+ * millions of Comic and String objects, so collections stay short however
+ * large the catalog grows. get() returns flyweight views (see ComicRowStore).
+ * 
+ * Slot layout (native byte order):
+ *   0 id, 4 year, 8 stocks, 12 genre code, 16 author code (ints),
+ *   20 title length (int), 24 price (double), 32 title position (long)
+ * 
+ * Reading numeric fields, updating stock (by compare-and-set on the slot)
+ * and appending comics allocate nothing on the heap beyond the view itself;
+ * ComicRowStore.stocksAt/tryTakeStocksAt avoid even that. The ID index that
+ * maps IDs to slots is EntityManager's primitive IntIntMap.
+ * Memory is returned to the operating system once the store is cleared or
+ * unreachable and its buffers have been collected.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class OffHeapComicStore extends ComicRowStore {
+    // Slot layout
+    private static final int SLOT_SIZE = 40;
+    private static final int ID = 0;
+    private static final int YEAR = 4;
+    private static final int STOCKS = 8;
+    private static final int GENRE = 12;
+    private static final int AUTHOR = 16;
+    private static final int TITLE_LENGTH = 20;
+    private static final int PRICE = 24;
+    private static final int TITLE_POSITION = 32;
+
+    // Slots per slot page (as a power of two)
+    private static final int SLOT_BITS = 16;
+    private static final int SLOTS_PER_PAGE = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS_PER_PAGE - 1;
+
+    // Bytes per string heap page (as a power of two)
+    private static final int HEAP_BITS = 20;
+    private static final int HEAP_PAGE_SIZE = 1 << HEAP_BITS;
+
+    // Volatile and compare-and-set access to ints inside a ByteBuffer (the stock field)
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    // Slot pages, indexed by row >>> SLOT_BITS
+    private ByteBuffer[] slots = new ByteBuffer[0];
+
+    // String heap pages, and the next free position in the last page
+    private ByteBuffer[] strings = new ByteBuffer[0];
+    private int stringOffset = HEAP_PAGE_SIZE;
+
+    // Number of slots allocated so far (live or not)
+    private int rows;
+
+    // Storage hooks and row accessors required by ComicRowStore
+
+    @Override
+    protected int allocateRow() {
+        if ((rows >>> SLOT_BITS) == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length + 1);
+            slots[slots.length - 1] = ByteBuffer.allocateDirect(SLOTS_PER_PAGE * SLOT_SIZE).order(ByteOrder.nativeOrder());
+        }
+        return rows++;
+    }
+
+    @Override
+    protected void releaseRows() {
+        slots = new ByteBuffer[0];
+        strings = new ByteBuffer[0];
+        stringOffset = HEAP_PAGE_SIZE;
+        rows = 0;
+    }
+
+    @Override protected int id(int row) { return page(row).getInt(offset(row) + ID); }
+    @Override protected void setId(int row, int id) { page(row).putInt(offset(row) + ID, id); }
+    @Override protected int authorCode(int row) { return page(row).getInt(offset(row) + AUTHOR); }
+    @Override protected void setAuthorCode(int row, int code) { page(row).putInt(offset(row) + AUTHOR, code); }
+    @Override protected int genreCode(int row) { return page(row).getInt(offset(row) + GENRE); }
+    @Override protected void setGenreCode(int row, int code) { page(row).putInt(offset(row) + GENRE, code); }
+    @Override protected double price(int row) { return page(row).getDouble(offset(row) + PRICE); }
+    @Override protected void setPrice(int row, double price) { page(row).putDouble(offset(row) + PRICE, price); }
+    @Override protected int year(int row) { return page(row).getInt(offset(row) + YEAR); }
+    @Override protected void setYear(int row, int year) { page(row).putInt(offset(row) + YEAR, year); }
+
+    @Override
+    protected int stocks(int row) {
+        return (int) INTS.getVolatile(page(row), offset(row) + STOCKS);
+    }
+
+    @Override
+    protected void setStocks(int row, int value) {
+        INTS.setVolatile(page(row), offset(row) + STOCKS, value);
+    }
+
+    @Override
+    protected boolean compareAndSetStocks(int row, int expected, int value) {
+        return INTS.compareAndSet(page(row), offset(row) + STOCKS, expected, value);
+    }
+
+    @Override
+    protected String title(int row) {
+        ByteBuffer page = page(row);
+        int length = page.getInt(offset(row) + TITLE_LENGTH);
+        if (length < 0) return null;
+        long position = page.getLong(offset(row) + TITLE_POSITION);
+        byte[] bytes = new byte[length];
+        strings[(int) (position >>> HEAP_BITS)].get((int) (position & (HEAP_PAGE_SIZE - 1)), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a title's bytes to the string heap and points the slot at them.
+     * 
+     * @throws IllegalArgumentException if the title is longer than a heap page
+     */
+    @Override
+    protected void setTitle(int row, String title) {
+        ByteBuffer page = page(row);
+        if (title == null) {
+            page.putInt(offset(row) + TITLE_LENGTH, -1);
+            return;
+        }
+        byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > HEAP_PAGE_SIZE) throw new IllegalArgumentException("Title too long: " + bytes.length + " bytes");
+        if (stringOffset + bytes.length > HEAP_PAGE_SIZE) {
+            strings = Arrays.copyOf(strings, strings.length + 1);
+            strings[strings.length - 1] = ByteBuffer.allocateDirect(HEAP_PAGE_SIZE);
+            stringOffset = 0;
+        }
+        strings[strings.length - 1].put(stringOffset, bytes);
+        page.putLong(offset(row) + TITLE_POSITION, ((long) (strings.length - 1) << HEAP_BITS) | stringOffset);
+        page.putInt(offset(row) + TITLE_LENGTH, bytes.length);
+        stringOffset += bytes.length;
+    }
+
+    /**
+     * Gets the slot page holding a row.
+     */
+    private ByteBuffer page(int row) { return slots[row >>> SLOT_BITS]; }
+
+    /**
+     * Gets the byte offset of a row's slot within its page.
+     */
+    private static int offset(int row) { return (row & SLOT_MASK) * SLOT_SIZE; }
+}
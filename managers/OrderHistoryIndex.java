@@ -0,0 +1,347 @@
+package managers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import utils.AtomicFile;
+import utils.IntIntMap;
+
+/**
+ * OrderHistoryIndex class - Per-customer lists of order locations in the order ledger.
+ * 
+ * For every customer the index keeps the byte offsets of their order records
+ * in the ledger, in the order the orders were placed. A page of a customer's
+ * history is read with one positional read per order, so it costs
+ * O(orders on the page) however many orders the ledger holds in total.
+ * 
+ * The lists are saved next to the ledger (e.g. data/orders.txt.idx) together
+ * with the offset of the last record they cover. open() loads the saved
+ * lists and then indexes only the records appended since, so a restart
+ * reads the ledger tail rather than the whole ledger. A missing, damaged or
+ * stale index file is rebuilt from the ledger. The index can always be
+ * rebuilt, so it is saved on close() only and never forced per order.
+ * 
+ * All methods are synchronized; reading records happens outside the lock.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class OrderHistoryIndex implements Closeable {
+    // Magic number at the start of an index file ("CBHI")
+    private static final int MAGIC = 0x43424849;
+
+    // Size of the buffer the ledger is scanned through
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+
+    // Path of the order ledger
+    private final String ledgerFile;
+
+    // Customer ID to slot in the offset lists
+    private final IntIntMap slots = new IntIntMap();
+
+    // Customer ID of each slot
+    private int[] customerIds = new int[16];
+
+    // Offsets of each customer's order records, by slot (only the first counts[slot] are used)
+    private long[][] offsets = new long[16][];
+
+    // Number of orders of each customer, by slot
+    private int[] counts = new int[16];
+
+    // Number of slots in use
+    private int customers;
+
+    // Offset of the last record indexed, or -1 if none
+    private long lastOffset = -1;
+
+    // Total number of orders indexed
+    private long orders;
+
+    // Read-only channel on the ledger for history lookups (opened by open())
+    private FileChannel reader;
+
+    /**
+     * Constructor for creating an OrderHistoryIndex instance.
+     * Call open() before use.
+     * 
+     * @param ledgerFile The path to the order ledger
+     */
+    public OrderHistoryIndex(String ledgerFile) {
+        this.ledgerFile = ledgerFile;
+    }
+
+    /**
+     * Loads the saved index and indexes the records appended to the ledger
+     * since it was saved. The ledger must not be appended to meanwhile.
+     * 
+     * @return The number of records read from the ledger (all of them if the index was rebuilt)
+     * @throws IOException if the ledger cannot be read
+     */
+    public synchronized long open() throws IOException {
+        Path ledger = Paths.get(ledgerFile);
+        if (!Files.exists(ledger)) Files.createFile(ledger);
+        long size = Files.size(ledger);
+        reader = FileChannel.open(ledger, StandardOpenOption.READ);
+        long from = 0; // Where the records not yet indexed start
+        AtomicFile.recover(indexFile());
+        if (Files.exists(Paths.get(indexFile()))) {
+            try {
+                load();
+                if (lastOffset >= size) throw new IOException("index is ahead of the ledger");
+                if (lastOffset >= 0) from = lineEnd(lastOffset);
+            } catch (IOException e) {
+                System.out.println("Rebuilding order history index " + indexFile() + " (" + e.getMessage() + ")");
+                clear();
+                from = 0;
+            }
+        }
+        return scan(from, size);
+    }
+
+    /**
+     * Adds a newly appended order record. Records must be added in ledger order.
+     * 
+     * @param customerId The ID of the customer who placed the order
+     * @param offset The offset of the order's record in the ledger
+     */
+    public synchronized void add(int customerId, long offset) {
+        int slot = slots.get(customerId, -1);
+        if (slot < 0) {
+            if (customers == counts.length) {
+                customerIds = Arrays.copyOf(customerIds, customers * 2);
+                offsets = Arrays.copyOf(offsets, customers * 2);
+                counts = Arrays.copyOf(counts, customers * 2);
+            }
+            slot = customers++;
+            customerIds[slot] = customerId;
+            slots.put(customerId, slot);
+            offsets[slot] = new long[4];
+        }
+        long[] list = offsets[slot];
+        if (counts[slot] == list.length) offsets[slot] = list = Arrays.copyOf(list, list.length * 2);
+        list[counts[slot]++] = offset;
+        lastOffset = offset;
+        orders++;
+    }
+
+    /**
+     * Counts the orders placed by a customer.
+     * 
+     * @param customerId The ID of the customer
+     * @return The number of orders
+     */
+    public synchronized int count(int customerId) {
+        int slot = slots.get(customerId, -1);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Gets the total number of orders indexed.
+     * 
+     * @return The order count
+     */
+    public synchronized long size() { return orders; }
+
+    /**
+     * Reads a page of a customer's order records, oldest first.
+     * 
+     * @param customerId The ID of the customer
+     * @param offset The number of orders to skip
+     * @param limit The maximum number of orders to return
+     * @return Up to limit ledger records (order lines) starting at offset
+     * @throws IOException if the ledger cannot be read
+     */
+    public List<String> page(int customerId, int offset, int limit) throws IOException {
+        long[] locations;
+        synchronized (this) {
+            int slot = slots.get(customerId, -1);
+            if (slot < 0) return new ArrayList<>();
+            int from = Math.min(Math.max(offset, 0), counts[slot]);
+            int to = (int) Math.min((long) from + Math.max(limit, 0), counts[slot]);
+            locations = Arrays.copyOfRange(offsets[slot], from, to);
+        }
+        List<String> records = new ArrayList<>(locations.length);
+        for (long location : locations) records.add(readRecord(location));
+        return records;
+    }
+
+    /**
+     * Saves the index next to the ledger, replacing the previous index file atomically.
+     * 
+     * @throws IOException if the index file cannot be written
+     */
+    public synchronized void save() throws IOException {
+        AtomicFile.write(indexFile(), 0, stream -> {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeLong(lastOffset);
+            out.writeInt(customers);
+            for (int slot = 0; slot < customers; slot++) {
+                out.writeInt(customerIds[slot]);
+                out.writeInt(counts[slot]);
+                long[] list = offsets[slot];
+                for (int i = 0; i < counts[slot]; i++) out.writeLong(list[i]);
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Saves the index and closes the ledger channel.
+     * 
+     * @throws IOException if the index file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            save();
+        } finally {
+            if (reader != null) reader.close();
+            reader = null;
+        }
+    }
+
+    /**
+     * Gets the path of the index file kept next to the ledger.
+     * 
+     * @return The index file path
+     */
+    public String indexFile() { return ledgerFile + ".idx"; }
+
+    /**
+     * Reads the saved index file into memory. Caller must hold the lock.
+     * 
+     * @throws IOException if the file is unreadable, truncated or not an index file
+     */
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile()), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("not an index file");
+            lastOffset = in.readLong();
+            int n = in.readInt();
+            customerIds = new int[Math.max(16, n)];
+            offsets = new long[Math.max(16, n)][];
+            counts = new int[Math.max(16, n)];
+            for (int slot = 0; slot < n; slot++) {
+                int id = in.readInt();
+                int count = in.readInt();
+                long[] list = new long[Math.max(4, count)]; // Exact size: most customers are never appended to again
+                for (int i = 0; i < count; i++) list[i] = in.readLong();
+                slots.put(id, slot);
+                customerIds[slot] = id;
+                offsets[slot] = list;
+                counts[slot] = count;
+                orders += count;
+            }
+            customers = n;
+        } catch (EOFException e) {
+            throw new IOException("index file is truncated");
+        }
+    }
+
+    /**
+     * Forgets everything indexed so far. Caller must hold the lock.
+     */
+    private void clear() {
+        slots.clear();
+        customerIds = new int[16];
+        offsets = new long[16][];
+        counts = new int[16];
+        customers = 0;
+        lastOffset = -1;
+        orders = 0;
+    }
+
+    /**
+     * Indexes the complete records of the ledger between two offsets.
+     * Only the customer ID (the second field) is parsed; lines that do not
+     * start with two numeric fields are skipped. Caller must hold the lock.
+     * 
+     * @param from The offset of the first record to index
+     * @param to The ledger size
+     * @return The number of records indexed
+     */
+    private long scan(long from, long to) throws IOException {
+        long indexed = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long position = from; // Ledger offset of bytes[0]
+        int filled = 0;
+        while (position + filled < to) {
+            int read = reader.read(buffer, position + filled);
+            if (read <= 0) break;
+            filled += read;
+            int start = 0;
+            for (int i = 0; i < filled; i++) {
+                if (bytes[i] != '\n') continue;
+                int customerId = customerId(bytes, start, i);
+                if (customerId >= 0) {
+                    add(customerId, position + start);
+                    indexed++;
+                }
+                start = i + 1;
+            }
+            if (start == 0 && filled == bytes.length) throw new IOException("Record too long in " + ledgerFile);
+            System.arraycopy(bytes, start, bytes, 0, filled - start); // Keep the incomplete last line
+            filled -= start;
+            position += start;
+            buffer.clear().position(filled);
+        }
+        return indexed;
+    }
+
+    /**
+     * Parses the customer ID from an order line (id,customerId,...).
+     * 
+     * @return The customer ID, or -1 if the line is not an order record
+     */
+    private static int customerId(byte[] line, int start, int end) {
+        int i = start;
+        while (i < end && line[i] >= '0' && line[i] <= '9') i++;
+        if (i == start || i == end || line[i] != ',') return -1;
+        int digits = ++i;
+        long value = 0;
+        for (; i < end && line[i] >= '0' && line[i] <= '9'; i++) {
+            value = value * 10 + (line[i] - '0');
+            if (value > Integer.MAX_VALUE) return -1;
+        }
+        if (i == digits || i == end || line[i] != ',') return -1;
+        return (int) value;
+    }
+
+    /**
+     * Finds the offset just past the line that starts at a given offset.
+     * 
+     * @param offset The start of a record
+     * @return The offset of the next record
+     * @throws IOException if the line has no end in the ledger
+     */
+    private long lineEnd(long offset) throws IOException {
+        return offset + readLine(offset).length + 1;
+    }
+
+    /**
+     * Reads the record (one line, without its line break) starting at an offset.
+     * 
+     * @param offset The start of the record in the ledger
+     * @return The record
+     * @throws IOException if the ledger cannot be read or the line has no end
+     */
+    private String readRecord(long offset) throws IOException {
+        return LedgerEntityStore.readRecord(reader, offset, ledgerFile);
+    }
+
+    /**
+     * Reads the raw bytes of the line starting at an offset, up to but
+     * excluding its '\n'.
+     * 
+     * @param offset The start of the line in the ledger
+     * @return The bytes of the line
+     * @throws IOException if the ledger cannot be read or the line has no end
+     */
+    private byte[] readLine(long offset) throws IOException {
+        return LedgerEntityStore.readLine(reader, offset, ledgerFile);
+    }
+}
@@ -0,0 +1,271 @@
+package managers;
+
+import entities.Comic;
+import entities.Order;
+import java.io.*;
+import java.util.*;
+
+/**
+ * OrderManager class - Specialized manager for Order entities.
+ * 
+ * Orders are kept in an append-only ledger (PersistenceMode.LEDGER by
+ * default): placing an order appends one line to the data file and forces
+ * it to disk, and concurrent sessions share each fsync, so throughput grows
+ * with the number of sessions instead of being capped by disk latency.
+ * Orders are never updated or deleted.
+ * 
+ * A sale takes the copies out of stock with ComicManager.reserve(), which
+ * never lets concurrent buyers oversell, and makes the reduced stock
+ * durable before the order is appended. A crash between the two can only
+ * lose a sale (stock taken, no order), never record an order whose stock
+ * was not taken.
+ * 
+ * In LEDGER mode no order is kept in memory: the manager holds only each
+ * order's offset in the ledger next to its ID (see LedgerEntityStore), and
+ * findById() reads the order back on demand. An OrderHistoryIndex keeps
+ * each customer's order offsets in the same way, so a customer's history
+ * is read in O(orders shown), independent of the total number of orders.
+ * It is saved on close() and brought up to date from the ledger tail on
+ * the next start.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class OrderManager extends EntityManager<Order> {
+    // Catalog the ordered comics are taken from
+    private final ComicManager comics;
+
+    // Customers who may place orders
+    private final CustomerManager customers;
+
+    // Each customer's order locations in the ledger, or null unless in LEDGER mode
+    private final OrderHistoryIndex history;
+
+    /**
+     * Constructor for creating an OrderManager instance backed by a ledger.
+     * 
+     * @param filename The path to the order ledger
+     * @param comics The catalog whose stock orders are taken from
+     * @param customers The customers who may place orders
+     */
+    public OrderManager(String filename, ComicManager comics, CustomerManager customers) {
+        this(filename, comics, customers, StoreOptions.ledger());
+    }
+
+    /**
+     * Constructor for creating an OrderManager instance with storage options.
+     * 
+     * @param filename The path to the orders data file
+     * @param comics The catalog whose stock orders are taken from
+     * @param customers The customers who may place orders
+     * @param options Storage configuration (normally StoreOptions.ledger())
+     */
+    public OrderManager(String filename, ComicManager comics, CustomerManager customers, StoreOptions options) {
+        super(filename, options); // Call parent constructor to initialize with data file
+        this.comics = comics;
+        this.customers = customers;
+        this.history = options.getPersistence() == PersistenceMode.LEDGER ? openHistory() : null;
+    }
+
+    /**
+     * Parses a string line into an Order object.
+     * Uses the Order class's static factory method for deserialization.
+     * 
+     * @param line The comma-separated string representation of an order
+     * @return Order object if parsing is successful, null otherwise
+     */
+    @Override
+    protected Order parse(String line) { return Order.fromString(line); }
+
+    /**
+     * Serializes an Order object to a string for file storage.
+     * Uses the Order class's toString method for serialization.
+     * 
+     * @param entity The Order entity to serialize
+     * @return String representation of the order
+     */
+    @Override
+    protected String serialize(Order entity) { return entity.toString(); }
+
+    /**
+     * Writes an Order in the binary record format.
+     * 
+     * @param entity The Order entity to write
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    protected void writeRecord(Order entity, DataOutput out) throws IOException { entity.writeTo(out); }
+
+    /**
+     * Reads an Order from the binary record format.
+     * 
+     * @param in The stream to read from
+     * @return The Order read from the stream
+     * @throws IOException if the stream is truncated or malformed
+     */
+    @Override
+    protected Order readRecord(DataInput in) throws IOException { return Order.readFrom(in); }
+
+    /**
+     * Gets the ID from an Order entity.
+     * 
+     * @param entity The Order entity to get the ID from
+     * @return The order's ID
+     */
+    @Override
+    protected int getId(Order entity) { return entity.getId(); }
+
+    /**
+     * Records where a newly placed order was appended in the ledger.
+     * 
+     * @param o The order appended
+     * @param offset The offset of its record in the ledger
+     */
+    @Override
+    protected void indexRecord(Order o, long offset) {
+        if (history != null) history.add(o.getCustomerId(), offset);
+    }
+
+    /**
+     * Places an order: takes the copies out of stock, makes the new stock
+     * level durable, then appends the order to the ledger. Safe to call
+     * from many sessions at once.
+     * 
+     * @param customerId The ID of the customer buying
+     * @param comicId The ID of the comic bought
+     * @param quantity The number of copies bought
+     * @return The order, on disk when this returns, or null if stock is insufficient
+     * @throws IllegalArgumentException if the customer or comic does not exist, or quantity is not positive
+     * @throws UncheckedIOException if the stock level or the order cannot be
+     *         written (the copies are then put back into stock) or forced to disk
+     */
+    public Order placeOrder(int customerId, int comicId, int quantity) {
+        if (customers.findById(customerId) == null) {
+            throw new IllegalArgumentException("Customer not found: " + customerId);
+        }
+        Comic comic = comics.findById(comicId);
+        if (comic == null) {
+            throw new IllegalArgumentException("Comic not found: " + comicId);
+        }
+        Reservation reservation = comics.reserve(comicId, quantity);
+        if (reservation == null) return null; // Not enough copies left
+        Order order;
+        try {
+            order = new Order(nextId(), customerId, comicId, quantity, comic.getPrice(), System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            comics.release(reservation);
+            throw e;
+        }
+        comics.commit(reservation, true); // Stock first: a crash may lose the sale but never oversell
+        try {
+            add(order);
+        } catch (UncheckedIOException e) {
+            if (findById(order.getId()) == null) { // Not in the ledger: undo the sale
+                try {
+                    comics.update(comicId, c -> c.setStocks(c.getStocks() + quantity)); // Carried over as a delta
+                } catch (RuntimeException undo) {
+                    e.addSuppressed(undo);
+                }
+            }
+            throw e;
+        }
+        return order;
+    }
+
+    /**
+     * Finds all orders placed by a customer.
+     * 
+     * @param customerId The ID of the customer
+     * @return The customer's orders, oldest first
+     */
+    public List<Order> findByCustomer(int customerId) {
+        return findByCustomer(customerId, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets a page of the orders placed by a customer. Costs O(limit) with
+     * the history index; without it (not in LEDGER mode) all orders are scanned.
+     * 
+     * @param customerId The ID of the customer
+     * @param offset The number of orders to skip
+     * @param limit The maximum number of orders to return
+     * @return Up to limit of the customer's orders starting at offset, oldest first
+     */
+    public List<Order> findByCustomer(int customerId, int offset, int limit) {
+        if (history == null) {
+            List<Order> all = scanByCustomer(customerId);
+            int from = Math.min(Math.max(offset, 0), all.size());
+            int to = (int) Math.min((long) from + Math.max(limit, 0), all.size());
+            return new ArrayList<>(all.subList(from, to));
+        }
+        List<Order> result = new ArrayList<>();
+        try {
+            for (String record : history.page(customerId, offset, limit)) {
+                Order o = parse(record);
+                if (o != null) result.add(o);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + filename + " (" + e.getMessage() + ")");
+        }
+        return result;
+    }
+
+    /**
+     * Counts the orders placed by a customer.
+     * 
+     * @param customerId The ID of the customer
+     * @return The number of orders
+     */
+    public int countByCustomer(int customerId) {
+        return history == null ? scanByCustomer(customerId).size() : history.count(customerId);
+    }
+
+    /**
+     * Stops the manager and saves the order history index.
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (history == null) return;
+        try {
+            history.close();
+        } catch (IOException e) {
+            System.out.println("Error writing file: " + history.indexFile() + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Opens the order history index, indexing orders appended since it was saved.
+     * 
+     * @return The index
+     */
+    private OrderHistoryIndex openHistory() {
+        OrderHistoryIndex index = new OrderHistoryIndex(filename);
+        try {
+            index.open();
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + filename + " (" + e.getMessage() + ")");
+        }
+        return index;
+    }
+
+    /**
+     * Finds a customer's orders by scanning every order.
+     * 
+     * @param customerId The ID of the customer
+     * @return The customer's orders ordered by ID
+     */
+    private List<Order> scanByCustomer(int customerId) {
+        List<Order> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Order o : entities)
+                if (o.getCustomerId() == customerId) result.add(o);
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingInt(Order::getId));
+        return result;
+    }
+}
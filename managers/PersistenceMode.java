@@ -0,0 +1,35 @@
+package managers;
+
+/**
+ * PersistenceMode enum - Strategies an EntityManager can use to persist mutations.
+ * 
+ * SNAPSHOT rewrites the whole data file after every change, which is simple
+ * but costs I/O proportional to the number of records. JOURNAL appends one
+ * small record per change to a log next to the data file and folds the log
+ * back into the data file periodically. WRITE_BEHIND only marks the manager
+ * dirty and lets a background writer save a snapshot once changes settle.
+ * LEDGER is for records that are only ever added: the data file itself is
+ * the append-only log, so nothing is ever rewritten or compacted.
+ * CHECKPOINT saves like SNAPSHOT, but writes only the records changed since
+ * the previous save, as a numbered delta file that a background merger
+ * folds back into the data file.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public enum PersistenceMode {
+    /** Rewrite the full data file on every add, update and delete */
+    SNAPSHOT,
+
+    /** Append each mutation to a write-ahead log and compact it in the background */
+    JOURNAL,
+
+    /** Return immediately and write debounced snapshots from a background thread */
+    WRITE_BEHIND,
+
+    /** Append each add to the data file and force it to disk; updates and deletes are rejected */
+    LEDGER,
+
+    /** Write the records changed by each add, update and delete as a delta file and merge deltas in the background */
+    CHECKPOINT
+}
@@ -0,0 +1,63 @@
+package managers;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reservation class - Copies of a comic held for a sale in progress.
+ * 
+ * Created by ComicManager.reserve(), which has already taken the copies out
+ * of stock. Exactly one of ComicManager.commit() or ComicManager.release()
+ * takes effect; later calls on the same reservation are ignored.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Reservation {
+    // ID of the reserved comic
+    private final int comicId;
+
+    // Number of copies held
+    private final int quantity;
+
+    // Set once the reservation has been committed or released
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    /**
+     * Constructor for creating a Reservation instance.
+     * 
+     * @param comicId The ID of the reserved comic
+     * @param quantity The number of copies held
+     */
+    Reservation(int comicId, int quantity) {
+        this.comicId = comicId;
+        this.quantity = quantity;
+    }
+
+    /**
+     * Gets the ID of the reserved comic.
+     * 
+     * @return The comic's ID
+     */
+    public int getComicId() { return comicId; }
+
+    /**
+     * Gets the number of copies held.
+     * 
+     * @return The reserved quantity
+     */
+    public int getQuantity() { return quantity; }
+
+    /**
+     * Checks whether the reservation has been committed or released.
+     * 
+     * @return true if the reservation is settled
+     */
+    public boolean isSettled() { return settled.get(); }
+
+    /**
+     * Marks the reservation as settled.
+     * 
+     * @return true for the first caller only
+     */
+    boolean settle() { return settled.compareAndSet(false, true); }
+}
@@ -0,0 +1,30 @@
+package managers;
+
+/**
+ * StorageEngine enum - How an EntityManager keeps its entities in memory.
+ * 
+ * HEAP holds one object per entity in an ArrayList, which works for every
+ * entity type. COLUMNAR (comics only) keeps each field in primitive column
+ * arrays and hands out lightweight views, cutting the heap used per comic
+ * several times over for very large catalogs. OFF_HEAP (comics only) keeps
+ * fixed-width records in direct buffers outside the heap, so the catalog
+ * adds almost nothing to garbage collection work. LAZY leaves the records in
+ * the data file and keeps only their file offsets in memory, loading
+ * entities on demand into a bounded cache (text format only).
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public enum StorageEngine {
+    /** One object per entity in an ArrayList */
+    HEAP,
+
+    /** Primitive columns with dictionary-encoded strings and flyweight views (comics only) */
+    COLUMNAR,
+
+    /** Fixed-width records in direct (off-heap) buffers with flyweight views (comics only) */
+    OFF_HEAP,
+
+    /** Records stay in the data file; only their offsets and a bounded cache are in memory (text format) */
+    LAZY
+}
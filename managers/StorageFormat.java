@@ -0,0 +1,19 @@
+package managers;
+
+/**
+ * StorageFormat enum - On-disk formats an EntityManager can read and write.
+ * 
+ * TEXT is the original comma-separated, one-record-per-line format.
+ * BINARY is a compact record format with a versioned header, fixed-width
+ * numeric fields and length-prefixed UTF-8 strings (see utils.BinaryFile).
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public enum StorageFormat {
+    /** Comma-separated text, one record per line */
+    TEXT,
+
+    /** Length-prefixed binary records behind a versioned header */
+    BINARY
+}
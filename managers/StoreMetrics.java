@@ -0,0 +1,85 @@
+package managers;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.function.LongSupplier;
+import utils.LatencyHistogram;
+import utils.Metrics;
+
+/**
+ * StoreMetrics class - The metrics an EntityManager records about its data file.
+ * 
+ * Holds the latency histograms of the manager's operations and registers a
+ * gauge with its entity count, all labelled with the data file's name
+ * (e.g. store="comics.txt"). findById() is sampled, as it takes less time
+ * than reading the clock. Managers of files with the same name share the
+ * histograms; the entity count gauge belongs to the most recently opened
+ * one. The gauge only holds the manager weakly, so a manager that is never
+ * closed can still be garbage collected.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+final class StoreMetrics {
+    // Name of the latency histograms
+    private static final String OPERATION_SECONDS = "cbs_store_operation_seconds";
+    private static final String HELP = "Latency of store operations";
+
+    // One findById() in this many is timed
+    private static final int FIND_SAMPLE_EVERY = 16;
+
+    // Name of the entity count gauge
+    private static final String ENTITIES = "cbs_store_entities";
+
+    // Operation latencies
+    final LatencyHistogram load;
+    final LatencyHistogram save;
+    final LatencyHistogram add;
+    final LatencyHistogram update;
+    final LatencyHistogram delete;
+    final LatencyHistogram findById;
+    final LatencyHistogram merge;
+
+    // Label value naming the data file
+    private final String store;
+
+    // Reads the entity count for the gauge
+    private final LongSupplier entities;
+
+    /**
+     * Constructor for creating the metrics of a manager.
+     * 
+     * @param filename The manager's data file
+     * @param manager The manager, for the entity count gauge
+     */
+    StoreMetrics(String filename, EntityManager<?> manager) {
+        store = new File(filename).getName();
+        load = histogram("load");
+        save = histogram("save");
+        add = histogram("add");
+        update = histogram("update");
+        delete = histogram("delete");
+        merge = histogram("merge");
+        findById = Metrics.histogram(OPERATION_SECONDS, HELP, FIND_SAMPLE_EVERY, "store", store, "op", "find_by_id");
+        WeakReference<EntityManager<?>> ref = new WeakReference<>(manager);
+        entities = () -> {
+            EntityManager<?> m = ref.get();
+            return m == null ? 0 : m.size();
+        };
+        Metrics.gauge(ENTITIES, "Entities held by a store", entities, "store", store);
+    }
+
+    /**
+     * Removes the entity count gauge of a manager that is being closed.
+     */
+    void close() {
+        Metrics.removeGauge(ENTITIES, entities, "store", store);
+    }
+
+    /**
+     * Gets the latency histogram of one operation on this store.
+     */
+    private LatencyHistogram histogram(String operation) {
+        return Metrics.histogram(OPERATION_SECONDS, HELP, "store", store, "op", operation);
+    }
+}
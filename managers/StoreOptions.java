@@ -0,0 +1,324 @@
+package managers;
+
+/**
+ * StoreOptions class - Configuration for how an EntityManager stores its data.
+ * 
+ * The defaults reproduce the original behaviour (full file rewrite on every
+ * change), so managers created without options behave exactly as before.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class StoreOptions {
+    // How mutations are written to disk
+    private PersistenceMode persistence = PersistenceMode.SNAPSHOT;
+
+    // Number of journal records that triggers a background compaction
+    private int compactionThreshold = 1000;
+
+    // How often (in seconds) the background compactor checks the journal
+    private long compactionIntervalSeconds = 30;
+
+    // On-disk format of the data file
+    private StorageFormat format = StorageFormat.TEXT;
+
+    // Whether load() memory-maps the data file and parses it on all cores
+    private boolean parallelLoad;
+
+    // Number of previous data file versions kept by each snapshot
+    private int backupCount;
+
+    // How entities are laid out in memory
+    private StorageEngine engine = StorageEngine.HEAP;
+
+    // Quiet period (in milliseconds) the write-behind writer waits for after a change
+    private long writeBehindDelayMillis = 200;
+
+    // Longest time (in milliseconds) a change may stay unsaved in WRITE_BEHIND mode
+    private long maxStalenessMillis = 2000;
+
+    // Number of entities the LAZY engine keeps cached in memory
+    private int cacheSize = 10_000;
+
+    // Combined size of the delta files, relative to the data file, that triggers a merge into it (CHECKPOINT mode)
+    private double checkpointMergeRatio = 0.5;
+
+    // Number of delta files that triggers merging them into one (CHECKPOINT mode)
+    private int maxCheckpointDeltas = 16;
+
+    /**
+     * Gets the persistence mode.
+     * 
+     * @return The persistence mode
+     */
+    public PersistenceMode getPersistence() { return persistence; }
+
+    /**
+     * Sets the persistence mode.
+     * 
+     * @param persistence The new persistence mode
+     */
+    public void setPersistence(PersistenceMode persistence) { this.persistence = persistence; }
+
+    /**
+     * Gets the number of journal records that triggers a compaction.
+     * 
+     * @return The compaction threshold
+     */
+    public int getCompactionThreshold() { return compactionThreshold; }
+
+    /**
+     * Sets the number of journal records that triggers a compaction.
+     * 
+     * @param compactionThreshold The new compaction threshold
+     * @throws IllegalArgumentException if the threshold is less than 1
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("Compaction threshold must be at least 1");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Gets the interval between background compaction checks.
+     * 
+     * @return The interval in seconds
+     */
+    public long getCompactionIntervalSeconds() { return compactionIntervalSeconds; }
+
+    /**
+     * Sets the interval between background compaction checks.
+     * 
+     * @param compactionIntervalSeconds The new interval in seconds
+     * @throws IllegalArgumentException if the interval is less than 1
+     */
+    public void setCompactionIntervalSeconds(long compactionIntervalSeconds) {
+        if (compactionIntervalSeconds < 1) {
+            throw new IllegalArgumentException("Compaction interval must be at least 1 second");
+        }
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    /**
+     * Gets the on-disk format of the data file.
+     * 
+     * @return The storage format
+     */
+    public StorageFormat getFormat() { return format; }
+
+    /**
+     * Sets the on-disk format of the data file. The journal, if any, always
+     * holds text records regardless of this setting.
+     * 
+     * @param format The new storage format
+     */
+    public void setFormat(StorageFormat format) { this.format = format; }
+
+    /**
+     * Checks whether the data file is loaded in parallel.
+     * 
+     * @return true if parallel loading is enabled
+     */
+    public boolean isParallelLoad() { return parallelLoad; }
+
+    /**
+     * Enables or disables parallel loading. When enabled, load() memory-maps
+     * the data file, parses newline-aligned chunks on the common fork-join
+     * pool and merges them in ID order. Worth it for large files only.
+     * Applies to the TEXT format; BINARY files are always read sequentially.
+     * 
+     * @param parallelLoad true to load in parallel
+     */
+    public void setParallelLoad(boolean parallelLoad) { this.parallelLoad = parallelLoad; }
+
+    /**
+     * Gets the number of previous data file versions kept as backups.
+     * 
+     * @return The backup count
+     */
+    public int getBackupCount() { return backupCount; }
+
+    /**
+     * Sets the number of previous data file versions kept as backups
+     * (data/comics.txt.bak.1 being the most recent). 0 keeps none.
+     * 
+     * @param backupCount The new backup count
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public void setBackupCount(int backupCount) {
+        if (backupCount < 0) {
+            throw new IllegalArgumentException("Backup count cannot be negative");
+        }
+        this.backupCount = backupCount;
+    }
+
+    /**
+     * Gets the in-memory storage engine.
+     * 
+     * @return The storage engine
+     */
+    public StorageEngine getEngine() { return engine; }
+
+    /**
+     * Sets the in-memory storage engine. Engines other than HEAP are only
+     * supported by the managers that document them.
+     * 
+     * @param engine The new storage engine
+     */
+    public void setEngine(StorageEngine engine) { this.engine = engine; }
+
+    /**
+     * Gets the quiet period the write-behind writer waits for before saving.
+     * 
+     * @return The delay in milliseconds
+     */
+    public long getWriteBehindDelayMillis() { return writeBehindDelayMillis; }
+
+    /**
+     * Sets the quiet period the write-behind writer waits for before saving.
+     * Every change restarts the wait, so a burst of changes is saved once.
+     * 
+     * @param writeBehindDelayMillis The new delay in milliseconds
+     * @throws IllegalArgumentException if the delay is negative
+     */
+    public void setWriteBehindDelayMillis(long writeBehindDelayMillis) {
+        if (writeBehindDelayMillis < 0) {
+            throw new IllegalArgumentException("Write-behind delay cannot be negative");
+        }
+        this.writeBehindDelayMillis = writeBehindDelayMillis;
+    }
+
+    /**
+     * Gets the longest time a change may stay unsaved in WRITE_BEHIND mode.
+     * 
+     * @return The maximum staleness in milliseconds
+     */
+    public long getMaxStalenessMillis() { return maxStalenessMillis; }
+
+    /**
+     * Sets the longest time a change may stay unsaved in WRITE_BEHIND mode.
+     * A snapshot is written once this much time has passed since the first
+     * unsaved change, even if changes keep arriving.
+     * 
+     * @param maxStalenessMillis The new maximum staleness in milliseconds
+     * @throws IllegalArgumentException if the staleness is negative
+     */
+    public void setMaxStalenessMillis(long maxStalenessMillis) {
+        if (maxStalenessMillis < 0) {
+            throw new IllegalArgumentException("Maximum staleness cannot be negative");
+        }
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    /**
+     * Gets the number of entities the LAZY engine keeps cached.
+     * 
+     * @return The cache size in entities
+     */
+    public int getCacheSize() { return cacheSize; }
+
+    /**
+     * Sets the number of entities the LAZY engine keeps cached. Together
+     * with the changes not yet written back, this bounds how many entities
+     * are held in memory, whatever the size of the data file.
+     * 
+     * @param cacheSize The new cache size in entities
+     * @throws IllegalArgumentException if the size is less than 1
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Gets the delta size, relative to the data file, that triggers a merge into it.
+     * 
+     * @return The merge ratio
+     */
+    public double getCheckpointMergeRatio() { return checkpointMergeRatio; }
+
+    /**
+     * Sets the combined size of the delta files, as a fraction of the data
+     * file's size, at which CHECKPOINT mode merges them into the data file.
+     * Lower values keep fewer changes outside the data file; higher values
+     * rewrite the data file less often.
+     * 
+     * @param checkpointMergeRatio The new merge ratio
+     * @throws IllegalArgumentException if the ratio is not positive
+     */
+    public void setCheckpointMergeRatio(double checkpointMergeRatio) {
+        if (!(checkpointMergeRatio > 0)) {
+            throw new IllegalArgumentException("Checkpoint merge ratio must be positive");
+        }
+        this.checkpointMergeRatio = checkpointMergeRatio;
+    }
+
+    /**
+     * Gets the number of delta files that triggers merging them into one.
+     * 
+     * @return The maximum number of delta files
+     */
+    public int getMaxCheckpointDeltas() { return maxCheckpointDeltas; }
+
+    /**
+     * Sets the number of delta files at which CHECKPOINT mode merges them
+     * into one delta, which bounds the number of files load() reads while
+     * the deltas are still too small to be merged into the data file.
+     * 
+     * @param maxCheckpointDeltas The new maximum number of delta files
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public void setMaxCheckpointDeltas(int maxCheckpointDeltas) {
+        if (maxCheckpointDeltas < 1) {
+            throw new IllegalArgumentException("Maximum number of checkpoint deltas must be at least 1");
+        }
+        this.maxCheckpointDeltas = maxCheckpointDeltas;
+    }
+
+    /**
+     * Convenience factory for journaled persistence with default tuning.
+     * 
+     * @return Options with persistence set to JOURNAL
+     */
+    public static StoreOptions journaled() {
+        StoreOptions options = new StoreOptions();
+        options.setPersistence(PersistenceMode.JOURNAL);
+        return options;
+    }
+
+    /**
+     * Convenience factory for write-behind persistence with default tuning.
+     * 
+     * @return Options with persistence set to WRITE_BEHIND
+     */
+    public static StoreOptions writeBehind() {
+        StoreOptions options = new StoreOptions();
+        options.setPersistence(PersistenceMode.WRITE_BEHIND);
+        return options;
+    }
+
+    /**
+     * Convenience factory for an append-only ledger.
+     * 
+     * @return Options with persistence set to LEDGER
+     */
+    public static StoreOptions ledger() {
+        StoreOptions options = new StoreOptions();
+        options.setPersistence(PersistenceMode.LEDGER);
+        return options;
+    }
+
+    /**
+     * Convenience factory for incremental checkpoints with default tuning.
+     * 
+     * @return Options with persistence set to CHECKPOINT
+     */
+    public static StoreOptions checkpointed() {
+        StoreOptions options = new StoreOptions();
+        options.setPersistence(PersistenceMode.CHECKPOINT);
+        return options;
+    }
+}
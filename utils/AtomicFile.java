@@ -0,0 +1,286 @@
+package utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * AtomicFile utility class - Replaces a file's content without ever exposing a partial file.
+ * 
+ * The new content is written to a temp file in the same directory
+ * (&lt;file&gt;.&lt;random hex&gt;.tmp, unique to the write, so concurrent writers of
+ * one file never share it) through a file channel and a large direct
+ * buffer, forced to disk, and then moved over the original in a single
+ * atomic rename. A crash at any point leaves either the complete old file
+ * or the complete new one; at worst stale temp files remain, which
+ * recover() deletes on the next load.
+ * 
+ * A write can also run an action that must happen together with the
+ * replacement, such as deleting a log the new content supersedes. The
+ * complete content is then first renamed to &lt;file&gt;.new, the action runs,
+ * and only then does &lt;file&gt;.new replace the file. A crash in between is
+ * rolled forward by recover(filename, backups, action), so the action
+ * and the replacement either both happen or neither does.
+ * 
+ * Optionally the replaced content is kept as numbered backups
+ * (&lt;file&gt;.bak.1 is the most recent). Backups are hard links where the file
+ * system allows it, so keeping them costs no extra copying.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class AtomicFile {
+    // Size of the direct buffer the content is staged in before each channel write
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // One direct buffer per writing thread, reused across writes (direct buffers are costly to allocate)
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * Writes the content of a file to a stream.
+     */
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Atomically replaces a file with new content.
+     * 
+     * @param filename The path to the file to replace
+     * @param backups The number of previous versions to keep (0 for none)
+     * @param content Writes the new content
+     * @throws IOException if the content cannot be written; the original file is then left untouched
+     */
+    public static void write(String filename, int backups, Content content) throws IOException {
+        write(filename, backups, content, null);
+    }
+
+    /**
+     * Atomically replaces a file with new content, running an action once
+     * the content is durable and before it replaces the file. The content
+     * is staged as &lt;file&gt;.new first, so a crash after that point is
+     * finished by recover(filename, backups, action), which runs the action
+     * again: it must be safe to repeat.
+     * 
+     * @param filename The path to the file to replace
+     * @param backups The number of previous versions to keep (0 for none)
+     * @param content Writes the new content
+     * @param beforeReplace Runs between staging and replacing (null for none)
+     * @throws IOException if the content cannot be written (the original file
+     *         is then left untouched) or, once staged, cannot replace the file
+     *         (recover() then finishes the replacement)
+     */
+    public static void write(String filename, int backups, Content content, Runnable beforeReplace) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp;
+        FileChannel opened;
+        while (true) {
+            temp = tempFile(target);
+            try {
+                opened = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // Another write drew the same name: draw again
+            }
+        }
+        try (FileChannel channel = opened) {
+            ChannelOutputStream out = new ChannelOutputStream(channel);
+            content.writeTo(out);
+            out.flush();
+            channel.force(true); // Content must be on disk before the rename makes it visible
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (beforeReplace != null) {
+            Path staged = stagedFile(target);
+            move(temp, staged);
+            syncDirectory(target.getParent()); // Staged for good before the action runs
+            beforeReplace.run();
+            temp = staged;
+        }
+        replace(temp, target, backups);
+    }
+
+    /**
+     * Removes the temp files left by writes that never finished. The file
+     * itself is still intact in that case, so nothing else is needed. Must
+     * not run while the file is being written.
+     * 
+     * @param filename The path to the file that was being written
+     * @return true if a stale temp file was found and removed
+     */
+    public static boolean recover(String filename) {
+        Path target = Paths.get(filename).toAbsolutePath();
+        String prefix = target.getFileName() + ".";
+        File[] stale = target.getParent().toFile().listFiles((dir, name) -> isTempName(name, prefix));
+        boolean removed = false;
+        for (File temp : stale == null ? new File[0] : stale) {
+            try {
+                removed |= Files.deleteIfExists(temp.toPath());
+            } catch (IOException e) {
+                System.out.println("Error removing temp file for: " + filename);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Recovers from a write with an action that never finished: removes a
+     * stale temp file, and if the content had been staged, runs the action
+     * again and replaces the file with the staged content.
+     * 
+     * @param filename The path to the file that was being written
+     * @param backups The number of previous versions to keep (0 for none)
+     * @param beforeReplace The action of the interrupted write
+     * @return true if a staged write was finished
+     */
+    public static boolean recover(String filename, int backups, Runnable beforeReplace) {
+        recover(filename);
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path staged = stagedFile(target);
+        if (!Files.exists(staged)) return false;
+        beforeReplace.run();
+        try {
+            replace(staged, target, backups);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error replacing file: " + filename + " (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Gets the path of a numbered backup.
+     * 
+     * @param filename The path to the backed-up file
+     * @param generation The backup number, 1 being the most recent
+     * @return The backup path
+     */
+    public static String backupFile(String filename, int generation) { return filename + ".bak." + generation; }
+
+    /**
+     * Draws a temp file name for a new version, written before the rename.
+     */
+    private static Path tempFile(Path target) {
+        return target.resolveSibling(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+    }
+
+    /**
+     * Checks whether a file name is one tempFile() draws for a file: the
+     * file's name and a dot, then hex digits only, then ".tmp". Temp files
+     * of other files named after it (e.g. &lt;file&gt;.seq) do not match, while
+     * &lt;file&gt;.tmp, the one name earlier versions used, does.
+     */
+    private static boolean isTempName(String name, String prefix) {
+        if (!name.startsWith(prefix) || !name.endsWith(".tmp")) return false;
+        int end = name.length() - ".tmp".length();
+        if (end < prefix.length()) return true; // <file>.tmp itself
+        String random = name.substring(prefix.length(), end);
+        return !random.isEmpty() && random.chars().allMatch(c -> Character.digit(c, 16) >= 0);
+    }
+
+    /**
+     * Gets the file a complete new version waits in while the action of a
+     * write runs.
+     */
+    private static Path stagedFile(Path target) {
+        return target.resolveSibling(target.getFileName() + ".new");
+    }
+
+    /**
+     * Moves complete new content over the file, keeping backups first, and
+     * forces the rename to disk.
+     */
+    private static void replace(Path source, Path target, int backups) throws IOException {
+        if (backups > 0 && Files.exists(target)) rotateBackups(target, backups);
+        move(source, target);
+        syncDirectory(target.getParent());
+    }
+
+    /**
+     * Renames a file, atomically where the file system supports it.
+     */
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Shifts the backups up by one, dropping the oldest, and makes the
+     * current file backup number 1.
+     */
+    private static void rotateBackups(Path target, int backups) throws IOException {
+        String name = target.toString();
+        Files.deleteIfExists(Paths.get(backupFile(name, backups)));
+        for (int i = backups - 1; i >= 1; i--) {
+            Path from = Paths.get(backupFile(name, i));
+            if (Files.exists(from)) Files.move(from, Paths.get(backupFile(name, i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path newest = Paths.get(backupFile(name, 1));
+        try {
+            Files.createLink(newest, target); // The rename below leaves the link holding the old content
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(target, newest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Forces a directory entry change (the rename) to disk. Not every
+     * platform can open a directory, so failures are ignored.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync is best effort
+        }
+    }
+
+    /**
+     * OutputStream that stages bytes in a direct buffer and writes them to a
+     * channel a buffer at a time. Closing it is left to the channel's owner.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = BUFFERS.get();
+
+        ChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+            buffer.clear();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) drain();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) drain();
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException { drain(); }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * BinaryFile utility class - Reads and writes files in the binary record format.
+ * 
+ * Layout: a header made of the magic number "CBSB", a format version
+ * (short) and the record count (int), followed by the records. Numbers are
+ * fixed-width big-endian values and strings are a variable-length byte count
+ * (7 bits per byte, so short strings cost one length byte) followed by UTF-8 bytes, so text fields may contain commas or any other character.
+ * How a record is laid out is up to the caller's RecordWriter/RecordReader.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class BinaryFile {
+    /** Magic number at the start of every binary data file ("CBSB") */
+    public static final int MAGIC = 0x43425342;
+
+    /** Current format version */
+    public static final short VERSION = 1;
+
+    // Buffer size for file streams
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes one record to a binary stream.
+     * 
+     * @param <T> The type of record
+     */
+    public interface RecordWriter<T> {
+        void write(T record, DataOutput out) throws IOException;
+    }
+
+    /**
+     * Reads one record from a binary stream.
+     * 
+     * @param <T> The type of record
+     */
+    public interface RecordReader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Writes a header and all records to a file, overwriting any existing content.
+     * The file is replaced atomically (see AtomicFile).
+     * 
+     * @param filename The path to the file to write
+     * @param records The records to write
+     * @param writer Writes a single record
+     * @param <T> The type of record
+     * @throws IOException if the file cannot be written
+     */
+    public static <T> void write(String filename, Collection<T> records, RecordWriter<T> writer) throws IOException {
+        AtomicFile.write(filename, 0, out -> write(out, records, writer));
+    }
+
+    /**
+     * Writes a header and all records to a stream. The stream is flushed but not closed.
+     * 
+     * @param stream The stream to write to
+     * @param records The records to write
+     * @param writer Writes a single record
+     * @param <T> The type of record
+     * @throws IOException if the stream cannot be written
+     */
+    public static <T> void write(OutputStream stream, Collection<T> records, RecordWriter<T> writer) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+        writeHeader(out, records.size());
+        for (T record : records) writer.write(record, out);
+        out.flush();
+    }
+
+    /**
+     * Writes only the header, for callers that write the records themselves
+     * (e.g. a few at a time).
+     * 
+     * @param out The stream to write to
+     * @param count The number of records that will follow
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeHeader(DataOutput out, int count) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(count);
+    }
+
+    /**
+     * Reads all records from a file and hands them to a consumer one at a time.
+     * An empty or missing file is treated as containing no records.
+     * 
+     * @param filename The path to the file to read
+     * @param reader Reads a single record
+     * @param sink Receives each record in file order
+     * @param <T> The type of record
+     * @throws IOException if the file is unreadable, truncated or not in this format
+     */
+    public static <T> void read(String filename, RecordReader<T> reader, Consumer<T> sink) throws IOException {
+        File file = new File(filename);
+        if (!file.exists() || file.length() == 0) return;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a binary data file: " + filename);
+            short version = in.readShort();
+            if (version != VERSION) throw new IOException("Unsupported format version " + version + ": " + filename);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) sink.accept(reader.read(in));
+        }
+    }
+
+    /**
+     * Writes a string as a variable-length byte count followed by its UTF-8 bytes.
+     * 
+     * @param out The stream to write to
+     * @param value The string to write
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        while (length >= 0x80) {            // Low 7 bits first, high bit marks "more bytes follow"
+            out.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     * 
+     * @param in The stream to read from
+     * @return The decoded string
+     * @throws IOException if the stream is truncated or the length is invalid
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+            if (shift >= 28) throw new IOException("Invalid string length");
+        }
+        if (length < 0) throw new IOException("Invalid string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
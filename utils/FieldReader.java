@@ -0,0 +1,174 @@
+package utils;
+
+/**
+ * FieldReader utility class - Hand-written tokenizer for comma-separated records.
+ * 
+ * Walks a single line field by field without String.split, so no regex
+ * engine and no intermediate String[] are involved. Integer and decimal
+ * fields are parsed directly from the characters of the line; only text
+ * fields are copied out as Strings.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class FieldReader {
+    // Exact powers of ten usable for correctly rounded decimal parsing
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest decimal mantissa that is exactly representable as a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // The record being read
+    private final CharSequence line;
+
+    // Position of the next unread character
+    private int pos;
+
+    // End of the record (trailing separators excluded)
+    private final int end;
+
+    /**
+     * Constructor for creating a FieldReader over one record.
+     * 
+     * @param line The comma-separated record
+     */
+    public FieldReader(CharSequence line) {
+        this.line = line;
+        int e = line.length();
+        while (e > 0 && line.charAt(e - 1) == ',') e--; // Trailing empty fields are ignored, like split()
+        this.end = e;
+    }
+
+    /**
+     * Counts the fields in the record, matching the length of line.split(",").
+     * 
+     * @return The number of fields
+     */
+    public int fieldCount() {
+        if (end == 0) return line.length() == 0 ? 1 : 0;
+        int count = 1;
+        for (int i = 0; i < end; i++)
+            if (line.charAt(i) == ',') count++;
+        return count;
+    }
+
+    /**
+     * Reads the next field as a String.
+     * 
+     * @return The field text
+     */
+    public String nextString() {
+        int start = pos;
+        int stop = fieldEnd();
+        return line.subSequence(start, stop).toString();
+    }
+
+    /**
+     * Reads the next field as an int, parsing it in place.
+     * 
+     * @return The field value
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int nextInt() {
+        int start = pos;
+        int stop = fieldEnd();
+        int i = start;
+        boolean negative = false;
+        if (i < stop && (line.charAt(i) == '-' || line.charAt(i) == '+')) negative = line.charAt(i++) == '-';
+        if (i == stop) throw invalid(start, stop);
+        long value = 0;
+        for (; i < stop; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw invalid(start, stop);
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) throw invalid(start, stop);
+        }
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) throw invalid(start, stop);
+        return (int) value;
+    }
+
+    /**
+     * Reads the next field as a long (e.g. a timestamp), parsing it in place.
+     * 
+     * @return The field value
+     * @throws NumberFormatException if the field is not a valid long
+     */
+    public long nextLong() {
+        int start = pos;
+        int stop = fieldEnd();
+        int i = start;
+        boolean negative = false;
+        if (i < stop && (line.charAt(i) == '-' || line.charAt(i) == '+')) negative = line.charAt(i++) == '-';
+        if (i == stop) throw invalid(start, stop);
+        long value = 0;
+        for (; i < stop; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) throw invalid(start, stop);
+            if (value > (Long.MAX_VALUE - digit) / 10) throw invalid(start, stop);
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next field as a double.
+     * Plain decimals such as "60.0" or "149.95" are parsed in place with
+     * exact rounding; anything else (exponents, very long mantissas)
+     * falls back to Double.parseDouble.
+     * 
+     * @return The field value
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public double nextDouble() {
+        int start = pos;
+        int stop = fieldEnd();
+        int i = start;
+        boolean negative = false;
+        if (i < stop && (line.charAt(i) == '-' || line.charAt(i) == '+')) negative = line.charAt(i++) == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+        for (; i < stop; i++) {
+            char c = line.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) fractionDigits++;
+                if (mantissa >= MAX_EXACT_MANTISSA) break; // Too precise for the fast path
+            } else {
+                break; // Exponent or other syntax: let the JDK decide
+            }
+        }
+        if (i < stop || digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(line.subSequence(start, stop).toString());
+        }
+        // Both operands are exact doubles, so one division gives the correctly rounded result
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Finds the end of the current field and moves past its separator.
+     * 
+     * @return The index just past the field's last character
+     */
+    private int fieldEnd() {
+        int i = pos;
+        while (i < end && line.charAt(i) != ',') i++;
+        pos = i + 1;
+        return i;
+    }
+
+    /**
+     * Builds the exception thrown for a malformed numeric field.
+     */
+    private NumberFormatException invalid(int start, int stop) {
+        return new NumberFormatException("For input string: \"" + line.subSequence(start, stop) + "\"");
+    }
+}
@@ -1,18 +1,41 @@
 package utils;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * FileHandler utility class - Provides file I/O operations for the Comic Book Store System.
  * 
  * This class contains static methods for reading from and writing to text files.
  * It handles file creation, directory creation, and basic error handling for file operations.
+ * Every text file of the store (data files, journals, deltas and ledgers)
+ * is read and written in CHARSET, whatever the platform's default charset.
+ * Reads and writes are timed and their bytes and failures counted in Metrics.
  * 
  * @author Comic Book Store System
  * @version 1.0
  */
 public class FileHandler {
+    // Charset of every text file of the store, fixed so files read back the same on any platform
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    // Durations, volumes and failures of whole-file reads and writes, exported by Metrics
+    private static final LatencyHistogram READ_TIME = Metrics.histogram("cbs_file_operation_seconds",
+            "Duration of whole-file reads and writes", "op", "read");
+    private static final LatencyHistogram WRITE_TIME = Metrics.histogram("cbs_file_operation_seconds",
+            "Duration of whole-file reads and writes", "op", "write");
+    private static final Metrics.Counter READ_BYTES = Metrics.counter("cbs_file_bytes_total",
+            "Bytes read and written as whole files", "op", "read");
+    private static final Metrics.Counter WRITE_BYTES = Metrics.counter("cbs_file_bytes_total",
+            "Bytes read and written as whole files", "op", "write");
+    private static final Metrics.Counter READ_ERRORS = Metrics.counter("cbs_file_errors_total",
+            "Whole-file reads and writes that failed", "op", "read");
+    private static final Metrics.Counter WRITE_ERRORS = Metrics.counter("cbs_file_errors_total",
+            "Whole-file reads and writes that failed", "op", "write");
+
     /**
      * Reads all lines from a text file and returns them as a list of strings.
      * Creates the file and necessary directories if they don't exist.
@@ -22,43 +45,126 @@ public class FileHandler {
      */
     public static List<String> readFile(String filename) {
         List<String> lines = new ArrayList<>();
+        readLines(filename, lines::add);
+        return lines;
+    }
+
+    /**
+     * Streams the lines of a text file to a consumer one at a time.
+     * Unlike readFile, the file is never held in memory as a whole, so large
+     * files can be parsed with only one line alive at a time.
+     * Creates the file and necessary directories if they don't exist.
+     * 
+     * @param filename The path to the file to read
+     * @param sink Receives each trimmed line in file order
+     */
+    public static void readLines(String filename, Consumer<String> sink) {
+        long start = Metrics.startTime();
         File file = new File(filename);
         try {
-            // Ensure parent directories exist
-            file.getParentFile().mkdirs();
-            // Create the file if it doesn't exist
-            if (!file.exists()) file.createNewFile();
+            ensureFile(file);
 
-            // Read all lines from the file
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String line;
-            while ((line = br.readLine()) != null)
-                lines.add(line.trim()); // Trim whitespace and add to list
-            br.close();
+            // Hand each line to the sink as soon as it is read
+            try (BufferedReader br = new BufferedReader(new FileReader(file, CHARSET), 1 << 16)) {
+                String line;
+                while ((line = br.readLine()) != null)
+                    sink.accept(line.trim()); // Trim whitespace before handing over
+            }
+            READ_BYTES.add(file.length());
+            READ_TIME.recordSince(start);
         } catch (IOException e) {
             // Handle file reading errors gracefully
+            READ_ERRORS.increment();
             System.out.println("Error reading file: " + filename);
         }
-        return lines;
+    }
+
+    /**
+     * Creates a file and its parent directories if they don't exist.
+     * 
+     * @param filename The path to the file
+     */
+    public static void ensureFile(String filename) {
+        try {
+            ensureFile(new File(filename));
+        } catch (IOException e) {
+            System.out.println("Error creating file: " + filename);
+        }
+    }
+
+    /**
+     * Creates a file and its parent directories if they don't exist.
+     * 
+     * @param file The file to create
+     * @throws IOException if the file cannot be created
+     */
+    private static void ensureFile(File file) throws IOException {
+        // Ensure parent directories exist
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        // Create the file if it doesn't exist
+        if (!file.exists()) file.createNewFile();
     }
 
     /**
      * Writes a list of strings to a text file, overwriting any existing content.
-     * Uses try-with-resources to ensure the file is properly closed.
+     * The file is replaced atomically (see AtomicFile), so a crash mid-write
+     * never leaves a partial file behind.
      * 
      * @param filename The path to the file to write
      * @param data List of strings to write to the file
      */
     public static void writeFile(String filename, List<String> data) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
-            // Write each string as a separate line in the file
-            for (String line : data) {
-                bw.write(line);
-                bw.newLine(); // Add line separator after each line
-            }
+        try {
+            writeLines(filename, data, 0);
         } catch (IOException e) {
             // Handle file writing errors gracefully
             System.out.println("Error writing file: " + filename);
         }
     }
+
+    /**
+     * Atomically replaces a text file with the given lines, optionally
+     * keeping the previous versions as numbered backups.
+     * 
+     * @param filename The path to the file to write
+     * @param data The lines to write
+     * @param backups The number of previous versions to keep (0 for none)
+     * @throws IOException if the file cannot be written; the old content is then left in place
+     */
+    public static void writeLines(String filename, Iterable<String> data, int backups) throws IOException {
+        writeLines(filename, data, backups, null);
+    }
+
+    /**
+     * Atomically replaces a text file with the given lines, running an
+     * action once they are durable and before they replace the file (see
+     * AtomicFile.write).
+     * 
+     * @param filename The path to the file to write
+     * @param data The lines to write
+     * @param backups The number of previous versions to keep (0 for none)
+     * @param beforeReplace Runs between staging and replacing (null for none)
+     * @throws IOException if the file cannot be written; the old content is then left in place
+     */
+    public static void writeLines(String filename, Iterable<String> data, int backups, Runnable beforeReplace)
+            throws IOException {
+        long start = Metrics.startTime();
+        try {
+            AtomicFile.write(filename, backups, out -> {
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, CHARSET), 1 << 16);
+                // Write each string as a separate line in the file
+                for (String line : data) {
+                    bw.write(line);
+                    bw.newLine(); // Add line separator after each line
+                }
+                bw.flush();
+            }, beforeReplace);
+        } catch (IOException e) {
+            WRITE_ERRORS.increment();
+            throw e;
+        }
+        WRITE_BYTES.add(new File(filename).length());
+        WRITE_TIME.recordSince(start);
+    }
 }
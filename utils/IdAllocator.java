@@ -0,0 +1,40 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IdAllocator utility class - Hands out unique, increasing integer IDs.
+ * 
+ * Keeps a high-water mark (the largest ID ever issued or seen) in an
+ * AtomicInteger, so allocation is O(1), lock-free and safe when several
+ * threads add entities at the same time. IDs are never reused, even after
+ * the entity holding the largest ID is deleted.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class IdAllocator {
+    // Largest ID issued or observed so far
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * Allocates the next unused ID.
+     * 
+     * @return A new ID, greater than every ID seen before
+     */
+    public int next() { return highWaterMark.incrementAndGet(); }
+
+    /**
+     * Records an ID that already exists (e.g. read from a file), so it is never handed out.
+     * 
+     * @param id The existing ID
+     */
+    public void observe(int id) { highWaterMark.accumulateAndGet(id, Math::max); }
+
+    /**
+     * Gets the current high-water mark.
+     * 
+     * @return The largest ID issued or observed so far
+     */
+    public int current() { return highWaterMark.get(); }
+}
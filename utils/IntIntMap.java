@@ -0,0 +1,188 @@
+package utils;
+
+/**
+ * IntIntMap utility class - Hash map from primitive int keys to primitive int values.
+ * 
+ * Uses open addressing with linear probing over two parallel int arrays, so
+ * lookups, inserts and removals are O(1) on average and never box keys into
+ * Integer objects. Removal uses backward-shift deletion, which keeps probe
+ * sequences short without tombstones. Not thread-safe.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class IntIntMap {
+    // Key value marking an empty slot; a real 0 key is stored separately
+    private static final int FREE = 0;
+
+    // Maximum fill ratio before the table doubles
+    private static final double LOAD_FACTOR = 0.5;
+
+    // Slot keys and values (parallel arrays, length is a power of two)
+    private int[] keys;
+    private int[] values;
+
+    // Number of keys stored in the arrays (excluding the 0 key)
+    private int size;
+
+    // Separate storage for the key 0, which collides with FREE
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * Constructor for creating an empty IntIntMap.
+     */
+    public IntIntMap() { this(16); }
+
+    /**
+     * Constructor for creating an IntIntMap sized for an expected number of keys.
+     * 
+     * @param expectedSize The number of keys expected to be stored
+     */
+    public IntIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1);
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Gets the value stored for a key.
+     * 
+     * @param key The key to look up
+     * @param missing The value to return when the key is absent
+     * @return The stored value, or missing if the key is absent
+     */
+    public int get(int key, int missing) {
+        if (key == FREE) return hasZeroKey ? zeroValue : missing;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == FREE) return missing;
+        }
+    }
+
+    /**
+     * Checks whether a key is present.
+     * 
+     * @param key The key to look for
+     * @return true if the key is present
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE) return hasZeroKey;
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return true;
+            if (k == FREE) return false;
+        }
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value.
+     * 
+     * @param key The key
+     * @param value The value to store
+     */
+    public void put(int key, int value) {
+        if (key == FREE) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) rehash(keys.length * 2);
+    }
+
+    /**
+     * Removes a key and its value.
+     * 
+     * @param key The key to remove
+     * @return true if the key was present
+     */
+    public boolean remove(int key) {
+        if (key == FREE) {
+            boolean had = hasZeroKey;
+            hasZeroKey = false;
+            return had;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == FREE) return false;
+            i = (i + 1) & mask;
+        }
+        // Backward-shift deletion: pull later entries of the probe chain into the hole
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            // Move entry j into the hole unless its home slot lies cyclically in (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Gets the number of keys in the map.
+     * 
+     * @return The key count
+     */
+    public int size() { return hasZeroKey ? size + 1 : size; }
+
+    /**
+     * Removes all keys from the map.
+     */
+    public void clear() {
+        java.util.Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Grows the table and reinserts every key.
+     * 
+     * @param capacity The new table length (a power of two)
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int k = oldKeys[j];
+            if (k == FREE) continue;
+            int i = mix(k) & mask;
+            while (keys[i] != FREE) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = oldValues[j];
+        }
+    }
+
+    /**
+     * Scrambles key bits so sequential IDs spread across the table.
+     * 
+     * @param key The key to hash
+     * @return The mixed hash
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing
+        return h ^ (h >>> 16);
+    }
+}
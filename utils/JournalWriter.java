@@ -0,0 +1,337 @@
+package utils;
+
+import java.io.*;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * JournalWriter utility class - Append-only writer for write-ahead log files.
+ * 
+ * Each call to append() writes one line to the end of the log and flushes it,
+ * so a mutation costs a single small write instead of a full file rewrite.
+ * The underlying file is opened lazily and kept open between appends.
+ * All methods are synchronized so appends from several threads never interleave.
+ * 
+ * Before a snapshot is written the log is rotated: the current file is
+ * renamed to &lt;log&gt;.old and new records start a fresh log, so appends never
+ * wait for the snapshot. Once the snapshot is on disk, and before it
+ * replaces the data file, the rotated file is discarded. After a crash,
+ * readers replay &lt;log&gt;.old before &lt;log&gt;.
+ * 
+ * Records that must survive a power failure are forced to disk with sync().
+ * Syncs use group commit: one thread forces the file while others wait, and
+ * a single fsync covers every record written before it started, so many
+ * concurrent committers share one fsync instead of queueing for their own.
+ * 
+ * A failed append or sync throws UncheckedIOException, so the caller can
+ * undo the change it was logging. A failed append is cut off the file
+ * (as far as the file system allows) and the file is reopened by the next
+ * append; a failed sync does not count as covering any record.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class JournalWriter implements Closeable {
+    // Length of the line separator written after each record, in bytes
+    private static final int NEWLINE_BYTES = System.lineSeparator().getBytes(FileHandler.CHARSET).length;
+
+    // Path of the log file
+    private final String filename;
+
+    // Open writer, or null until the first append
+    private BufferedWriter writer;
+
+    // Channel of the open file, used to force it to disk
+    private FileChannel channel;
+
+    // Size of the open file, counting every byte handed to it
+    private long length;
+
+    // Number of records currently in the log
+    private int records;
+
+    // Sequence number of the last record written (never reset)
+    private long written;
+
+    // Guards synced and syncing; waiting committers block on it
+    private final Object syncMonitor = new Object();
+
+    // Sequence number up to which records are known to be on disk
+    private long synced;
+
+    // Whether a thread is currently forcing the file
+    private boolean syncing;
+
+    /**
+     * Constructor for creating a JournalWriter instance.
+     * 
+     * @param filename The path to the log file
+     * @param records The number of records already present in the log
+     */
+    public JournalWriter(String filename, int records) {
+        this.filename = filename;
+        this.records = records;
+    }
+
+    /**
+     * Appends a single record to the end of the log.
+     * 
+     * @param record The record to append (must not contain line breaks)
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    public synchronized void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * Appends several records with a single write. The records are written
+     * back to back, so a group written by one call is never interleaved with
+     * records from other threads.
+     * 
+     * @param batch The records to append (none may contain line breaks)
+     * @return The sequence number to pass to sync() to make the records durable
+     * @throws UncheckedIOException if the records cannot be written; none of them then counts as appended
+     */
+    public synchronized long appendAll(List<String> batch) {
+        return appendAll(batch, null);
+    }
+
+    /**
+     * Appends several records with a single write, reporting the byte offset
+     * in the file at which each record starts (used to index a ledger).
+     * 
+     * @param batch The records to append (none may contain line breaks)
+     * @param offsets Receives the start offset of each record, or null
+     * @return The sequence number to pass to sync() to make the records durable
+     * @throws UncheckedIOException if the records cannot be written; none of them then counts as appended
+     */
+    public synchronized long appendAll(List<String> batch, long[] offsets) {
+        long start = -1;
+        try {
+            if (writer == null) {
+                FileOutputStream out = new FileOutputStream(filename, true);
+                channel = out.getChannel();
+                length = channel.size();
+                writer = new BufferedWriter(new OutputStreamWriter(new Counter(out), FileHandler.CHARSET));
+            }
+            start = length; // The writer is flushed after every append
+            if (offsets != null) {
+                long position = start;
+                for (int i = 0; i < batch.size(); i++) {
+                    offsets[i] = position;
+                    position += batch.get(i).getBytes(FileHandler.CHARSET).length + NEWLINE_BYTES;
+                }
+            }
+            for (String record : batch) {
+                writer.write(record);
+                writer.newLine();
+            }
+            writer.flush(); // Hand the records to the OS before returning
+            records += batch.size();
+            written += batch.size();
+        } catch (IOException e) {
+            abandon(start);
+            throw new UncheckedIOException("Error writing journal: " + filename, e);
+        }
+        return written;
+    }
+
+    /**
+     * Drops the open file after a failed append: cuts off whatever part of
+     * the records reached it and closes it without flushing the rest, so
+     * the next append reopens it. If the tail cannot be cut off, replay still
+     * drops a torn last record or an incomplete batch.
+     * 
+     * @param start The size of the file before the append, or -1 if unknown
+     */
+    private void abandon(long start) {
+        if (channel == null) return; // Could not even be opened
+        try {
+            if (start >= 0) channel.truncate(start);
+        } catch (IOException e) {
+            System.out.println("Error truncating journal: " + filename);
+        }
+        try {
+            channel.close(); // Also closes the stream, discarding the writer's buffer
+        } catch (IOException e) {
+            System.out.println("Error closing journal: " + filename);
+        }
+        writer = null;
+        channel = null;
+    }
+
+    /**
+     * Passes bytes through to the open file, adding them to its length, so
+     * appends know where they start without asking the file system.
+     */
+    private final class Counter extends FilterOutputStream {
+        Counter(OutputStream out) { super(out); }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            length += len;
+        }
+    }
+
+    /**
+     * Blocks until every record up to the given sequence number is on disk.
+     * If another thread is already forcing the file, waits for it and then
+     * checks whether its fsync covered this caller's records; otherwise this
+     * thread forces the file on behalf of everyone who is waiting.
+     * 
+     * @param sequence The sequence number returned by appendAll()
+     * @throws UncheckedIOException if the file cannot be forced to disk
+     */
+    public void sync(long sequence) {
+        synchronized (syncMonitor) {
+            while (synced < sequence && syncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (synced >= sequence) return; // Covered by another thread's fsync
+            syncing = true;
+        }
+        long target;
+        FileChannel file;
+        synchronized (this) { // Everything written so far is covered by this fsync
+            target = written;
+            file = channel;
+        }
+        IOException failure = null;
+        try {
+            if (file != null) file.force(false);
+        } catch (ClosedChannelException e) {
+            // Rotated or closed meanwhile; close() forced the file first
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (syncMonitor) {
+            syncing = false;
+            if (failure == null) synced = Math.max(synced, target); // Waiters retry the fsync otherwise
+            syncMonitor.notifyAll();
+        }
+        if (failure != null) throw new UncheckedIOException("Error syncing journal: " + filename, failure);
+    }
+
+    /**
+     * Appends a record that is built while holding the journal's lock.
+     * When several threads log the current value of the same shared state,
+     * the record appended last is then guaranteed to carry the latest value.
+     * 
+     * @param record Builds the record to append
+     * @return The sequence number to pass to sync() to make the record durable
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    public synchronized long append(Supplier<String> record) {
+        return appendAll(List.of(record.get()));
+    }
+
+    /**
+     * Gets the number of records currently in the log.
+     * 
+     * @return The record count
+     */
+    public synchronized int size() { return records; }
+
+    /**
+     * Moves the current log aside to &lt;log&gt;.old and starts an empty one.
+     * Call before writing a snapshot, then discardRotated() once it is durable
+     * and before it replaces the data file.
+     * If an earlier rotated log is still present (its snapshot never finished),
+     * the current log is appended to it instead, so no record is lost.
+     */
+    public synchronized void rotate() {
+        close();
+        Path log = Paths.get(filename);
+        Path rotated = Paths.get(rotatedFile(filename));
+        try {
+            if (Files.exists(log) && Files.exists(rotated)) {
+                Files.write(rotated, Files.readAllBytes(log), StandardOpenOption.APPEND);
+                Files.delete(log);
+            } else if (Files.exists(log)) {
+                Files.move(log, rotated);
+            }
+        } catch (IOException e) {
+            System.out.println("Error rotating journal: " + filename);
+        }
+        records = 0;
+    }
+
+    /**
+     * Deletes the log moved aside by rotate().
+     * Called once a snapshot holding every rotated change is durable, before
+     * it replaces the data file.
+     */
+    public synchronized void discardRotated() {
+        new File(rotatedFile(filename)).delete();
+    }
+
+    /**
+     * Forces and closes the underlying file. The next append reopens it.
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.flush();
+            channel.force(false); // Records written before a rotation stay durable
+            writer.close();
+        } catch (IOException e) {
+            System.out.println("Error closing journal: " + filename);
+        }
+        writer = null;
+        channel = null;
+    }
+
+    /**
+     * Cuts off a last record that was only partly written (no line break),
+     * as left by a crash in the middle of an append. Must be called before
+     * appending to a log that is never rotated away (such as a ledger), or
+     * the next record would be glued onto the torn one.
+     * 
+     * @param filename The path to the log file
+     * @return true if a torn record was removed
+     * @throws IOException if the file cannot be read or truncated
+     */
+    public static boolean truncateTornRecord(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) return false;
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = file.size();
+            java.nio.ByteBuffer one = java.nio.ByteBuffer.allocate(1);
+            long keep = end;
+            while (keep > 0) { // Scan back to the last line break
+                one.clear();
+                file.read(one, keep - 1);
+                if (one.get(0) == '\n') break;
+                keep--;
+            }
+            if (keep == end) return false;
+            file.truncate(keep);
+            file.force(true);
+            return true;
+        }
+    }
+
+    /**
+     * Gets the path a log is moved to by rotate().
+     * 
+     * @param filename The path to the log file
+     * @return The rotated log path
+     */
+    public static String rotatedFile(String filename) { return filename + ".old"; }
+}
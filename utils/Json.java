@@ -0,0 +1,163 @@
+package utils;
+
+import java.util.*;
+
+/**
+ * Json utility class - Minimal JSON support for the HTTP API.
+ * 
+ * Writes string values with the escaping JSON requires and parses request
+ * bodies that are a single flat object: string, number, boolean and null
+ * members only. That is all the API exchanges, so no JSON library is needed.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Json {
+    /**
+     * Quotes a string as a JSON string literal.
+     * 
+     * @param value The string to quote (null gives the literal null)
+     * @return The JSON literal
+     */
+    public static String quote(String value) {
+        if (value == null) return "null";
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' : sb.append("\\\""); break;
+                case '\\' : sb.append("\\\\"); break;
+                case '\n' : sb.append("\\n"); break;
+                case '\r' : sb.append("\\r"); break;
+                case '\t' : sb.append("\\t"); break;
+                default :
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Joins JSON values into a JSON array.
+     * 
+     * @param values The JSON text of each element
+     * @return The JSON array
+     */
+    public static String array(List<String> values) {
+        return "[" + String.join(",", values) + "]";
+    }
+
+    /**
+     * Parses a flat JSON object. Numbers become Doubles, true/false Booleans,
+     * strings Strings and null a null value.
+     * 
+     * @param text The JSON text
+     * @return The members in document order
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, Object> parseObject(String text) {
+        Parser p = new Parser(text);
+        Map<String, Object> members = new LinkedHashMap<>();
+        p.expect('{');
+        if (!p.consume('}')) {
+            do {
+                String name = p.string();
+                p.expect(':');
+                members.put(name, p.value());
+            } while (p.consume(','));
+            p.expect('}');
+        }
+        p.skipWhitespace();
+        if (p.pos < text.length()) throw p.error("Unexpected trailing content");
+        return members;
+    }
+
+    /**
+     * Recursive-descent reader over one JSON text.
+     */
+    private static class Parser {
+        // The text being parsed
+        private final String text;
+
+        // Position of the next unread character
+        private int pos;
+
+        Parser(String text) { this.text = text; }
+
+        Object value() {
+            skipWhitespace();
+            if (pos >= text.length()) throw error("Unexpected end of input");
+            char c = text.charAt(pos);
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw error("Nested objects and arrays are not supported");
+            if (text.startsWith("true", pos)) { pos += 4; return Boolean.TRUE; }
+            if (text.startsWith("false", pos)) { pos += 5; return Boolean.FALSE; }
+            if (text.startsWith("null", pos)) { pos += 4; return null; }
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+            if (start == pos) throw error("Unexpected character '" + c + "'");
+            try {
+                return Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) throw error("Unterminated string");
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) throw error("Unterminated string");
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case '"' : case '\\' : case '/' : sb.append(e); break;
+                    case 'b' : sb.append('\b'); break;
+                    case 'f' : sb.append('\f'); break;
+                    case 'n' : sb.append('\n'); break;
+                    case 'r' : sb.append('\r'); break;
+                    case 't' : sb.append('\t'); break;
+                    case 'u' : {
+                        if (pos + 4 > text.length()) throw error("Invalid escape");
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("Invalid escape");
+                        }
+                        pos += 4;
+                        break;
+                    }
+                    default : throw error("Invalid escape");
+                }
+            }
+        }
+
+        void expect(char c) {
+            if (!consume(c)) throw error("Expected '" + c + "'");
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at position " + pos + ": " + message);
+        }
+    }
+}
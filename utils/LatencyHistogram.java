@@ -0,0 +1,196 @@
+package utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram utility class - Lock-free histogram of durations in nanoseconds.
+ * 
+ * Buckets are laid out like HdrHistogram's with three significant bits:
+ * every power of two is split into 8 equal sub-buckets, so any recorded
+ * value is known to within 12.5% while 1 ns to 18 minutes fits in 312
+ * counters. Recording is one bucket index computation and two atomic
+ * adds (bucket count and sum), and never allocates. Counters are striped by thread (one
+ * stripe per core, up to 8) so threads on different cores rarely contend
+ * for the same cache line.
+ * 
+ * Reading the clock costs more than recording, so a histogram for calls
+ * that take well under a microsecond can be sampled: its startTime() reads
+ * the clock for one call in N, and each sampled duration is counted N
+ * times, so counts and sums are estimates that stay unbiased.
+ * 
+ * Register histograms with Metrics.histogram() to have them exported.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LatencyHistogram {
+    // Bits of precision below the leading one bit (8 sub-buckets per power of two)
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Largest power of two tracked (2^40 ns is about 18 minutes); longer durations land in the last bucket
+    private static final int MAX_EXPONENT = 40;
+
+    // Number of buckets: values below 8 are exact, then 8 sub-buckets per power of two
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    // Striped counters: stripe s holds BUCKETS bucket counts followed by the sum of the values recorded in it
+    private final AtomicLongArray[] stripes;
+
+    // Number of stripes minus one (the count is a power of two)
+    private final int stripeMask;
+
+    // One call in this many is timed by startTime() (1 times every call)
+    private final int sampleEvery;
+
+    /**
+     * Constructor for creating an empty LatencyHistogram that times every call.
+     */
+    public LatencyHistogram() {
+        this(1);
+    }
+
+    /**
+     * Constructor for creating an empty sampled LatencyHistogram.
+     * 
+     * @param sampleEvery Time one call in this many (1 to time every call)
+     * @throws IllegalArgumentException if sampleEvery is less than 1
+     */
+    public LatencyHistogram(int sampleEvery) {
+        if (sampleEvery < 1) throw new IllegalArgumentException("Sample rate must be at least 1");
+        this.sampleEvery = sampleEvery;
+        int n = Integer.highestOneBit(Math.min(8, Runtime.getRuntime().availableProcessors()));
+        stripes = new AtomicLongArray[n];
+        for (int i = 0; i < n; i++) stripes[i] = new AtomicLongArray(BUCKETS + 1);
+        stripeMask = n - 1;
+    }
+
+    /**
+     * Records one duration.
+     * 
+     * @param nanos The duration in nanoseconds (negative values count as 0)
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Gets a start time for recordSince(), honouring the sample rate.
+     * 
+     * @return System.nanoTime(), or 0 if timing is disabled or this call is not sampled
+     */
+    public long startTime() {
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) return 0;
+        return Metrics.startTime();
+    }
+
+    /**
+     * Records the time elapsed since a start time taken with startTime() or
+     * Metrics.startTime(). Does nothing if the start time is 0 (timing was
+     * disabled or the call was not sampled).
+     * 
+     * @param start The start time in System.nanoTime() units, or 0
+     */
+    public void recordSince(long start) {
+        if (start != 0) record(System.nanoTime() - start, sampleEvery);
+    }
+
+    /**
+     * Counts a duration a number of times.
+     * 
+     * @param nanos The duration in nanoseconds (negative values count as 0)
+     * @param weight The number of calls it stands for
+     */
+    private void record(long nanos, int weight) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        stripe.addAndGet(bucket(value), weight);
+        stripe.addAndGet(BUCKETS, value * weight);
+    }
+
+    /**
+     * Gets the number of durations recorded.
+     * 
+     * @return The count
+     */
+    public long count() {
+        long count = 0;
+        for (long c : counts()) count += c;
+        return count;
+    }
+
+    /**
+     * Gets the sum of all durations recorded.
+     * 
+     * @return The sum in nanoseconds
+     */
+    public long sum() {
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) sum += stripe.get(BUCKETS);
+        return sum;
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations. The result is the
+     * largest value of the bucket the percentile falls in, so it is at most
+     * 12.5% above the true value.
+     * 
+     * @param p The percentile as a fraction (e.g. 0.99)
+     * @return The estimated duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double p) {
+        long[] counts = counts();
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return upperBound(i) - 1;
+        }
+        return upperBound(BUCKETS - 1) - 1;
+    }
+
+    /**
+     * Gets the bucket counts summed over all stripes. Each stripe is read
+     * without stopping writers, so a count may miss records made meanwhile.
+     * 
+     * @return The count of every bucket
+     */
+    long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) counts[i] += stripe.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Finds the bucket a value is counted in.
+     * 
+     * @param value A non-negative duration
+     * @return The bucket index
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the smallest value above a bucket.
+     * 
+     * @param bucket The bucket index
+     * @return The exclusive upper bound of the bucket's values
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket + 1;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,151 @@
+package utils;
+
+/**
+ * LongHashSet utility class - Hash set of primitive long values.
+ * 
+ * Uses open addressing with linear probing over a single long array, so a
+ * member costs 11 to 21 bytes and is never boxed into a Long object. Meant
+ * for large sets of fingerprints (e.g. 64-bit hashes of keys) that would not
+ * fit in memory as strings, and for sets of IDs on hot paths, where a
+ * HashSet would box every one. Not thread-safe.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class LongHashSet {
+    // Value marking an empty slot; a real 0 value is stored separately
+    private static final long FREE = 0;
+
+    // Maximum fill ratio before the table doubles (higher than IntIntMap's:
+    // the values are hashes already, so probe chains stay short, and the
+    // sets this holds are large)
+    private static final double LOAD_FACTOR = 0.75;
+
+    // Slot values (length is a power of two)
+    private long[] values;
+
+    // Number of values stored in the array (excluding 0)
+    private int size;
+
+    // Whether the value 0, which collides with FREE, is in the set
+    private boolean hasZero;
+
+    /**
+     * Constructor for creating an empty LongHashSet.
+     */
+    public LongHashSet() { this(16); }
+
+    /**
+     * Constructor for creating a LongHashSet sized for an expected number of values.
+     * 
+     * @param expectedSize The number of values expected to be stored
+     */
+    public LongHashSet(int expectedSize) {
+        values = new long[Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) * 2 - 1)];
+    }
+
+    /**
+     * Adds a value to the set.
+     * 
+     * @param value The value to add
+     * @return true if the value was not already present
+     */
+    public boolean add(long value) {
+        if (value == FREE) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int mask = values.length - 1;
+        int i = mix(value) & mask;
+        while (values[i] != FREE) {
+            if (values[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        values[i] = value;
+        if (++size > values.length * LOAD_FACTOR) rehash(values.length * 2);
+        return true;
+    }
+
+    /**
+     * Checks whether a value is present.
+     * 
+     * @param value The value to look for
+     * @return true if the value is present
+     */
+    public boolean contains(long value) {
+        if (value == FREE) return hasZero;
+        int mask = values.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long v = values[i];
+            if (v == value) return true;
+            if (v == FREE) return false;
+        }
+    }
+
+    /**
+     * Gets the number of values in the set.
+     * 
+     * @return The value count
+     */
+    public int size() { return hasZero ? size + 1 : size; }
+
+    /**
+     * Checks whether the set is empty.
+     * 
+     * @return true if the set holds no values
+     */
+    public boolean isEmpty() { return size() == 0; }
+
+    /**
+     * Copies the values into an array.
+     * 
+     * @return The values, in no particular order
+     */
+    public long[] toArray() {
+        long[] result = new long[size()];
+        int n = 0;
+        if (hasZero) result[n++] = FREE;
+        for (long v : values)
+            if (v != FREE) result[n++] = v;
+        return result;
+    }
+
+    /**
+     * Removes every value and shrinks the table back to its initial size,
+     * so a burst of values does not keep a large table alive.
+     */
+    public void clear() {
+        values = new long[16];
+        size = 0;
+        hasZero = false;
+    }
+
+    /**
+     * Grows the table and reinserts every value.
+     * 
+     * @param capacity The new table length (a power of two)
+     */
+    private void rehash(int capacity) {
+        long[] old = values;
+        values = new long[capacity];
+        int mask = capacity - 1;
+        for (long v : old) {
+            if (v == FREE) continue;
+            int i = mix(v) & mask;
+            while (values[i] != FREE) i = (i + 1) & mask;
+            values[i] = v;
+        }
+    }
+
+    /**
+     * Folds the value's bits together so low table bits depend on all of them.
+     * 
+     * @param value The value to hash
+     * @return The mixed hash
+     */
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L; // Fibonacci hashing
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,131 @@
+package utils;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * MappedLineParser utility class - Parses a large text file in parallel.
+ * 
+ * The file is memory-mapped through NIO and cut into chunks whose
+ * boundaries fall just after a newline, so no line is split between two
+ * chunks. Each chunk is decoded and parsed on a fork-join pool, and the
+ * per-chunk results are returned in file order.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class MappedLineParser {
+    // Smallest chunk worth handing to a separate task
+    private static final long MIN_CHUNK = 1 << 20;
+
+    // Largest chunk mapped at once (must stay below the 2 GB mapping limit)
+    private static final long MAX_CHUNK = 256L << 20;
+
+    /**
+     * Parses every line of a file in parallel.
+     * Lines are trimmed before parsing; lines the parser rejects (returns null for) are skipped.
+     * 
+     * @param filename The path to the file to read
+     * @param parser Converts one trimmed line into an object, or null if invalid
+     * @param pool The fork-join pool that runs the chunk tasks
+     * @param <T> The type of object produced
+     * @return One list of parsed objects per chunk, in file order
+     * @throws IOException if the file cannot be read
+     */
+    public static <T> List<List<T>> parse(String filename, Function<String, T> parser, ForkJoinPool pool)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, pool.getParallelism());
+            List<ForkJoinTask<List<T>>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(pool.submit(() -> parseChunk(channel, start, end, parser)));
+            }
+            List<List<T>> results = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<List<T>> task : tasks) results.add(task.join());
+            return results;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Splits the file into newline-aligned chunks, aiming for a few chunks per worker.
+     * 
+     * @return Chunk boundaries: chunk i covers [bounds[i], bounds[i + 1])
+     */
+    private static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long target = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / (parallelism * 4L)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long pos = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (pos + target < size) {
+            long next = nextLineStart(channel, pos + target, size, probe);
+            if (next >= size) break;
+            bounds.add(next);
+            pos = next;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Finds the first position after a newline at or beyond the given offset.
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (pos < size) {
+            probe.clear();
+            int read = channel.read(probe, pos);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++)
+                if (probe.get(i) == '\n') return pos + i + 1;
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Maps one chunk and parses its lines in order.
+     */
+    private static <T> List<T> parseChunk(FileChannel channel, long start, long end, Function<String, T> parser) {
+        List<T> out = new ArrayList<>();
+        if (start == end) return out;
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] line = new byte[256]; // Reused for every line in the chunk
+        int length = 0;
+        while (buffer.hasRemaining()) {
+            byte b = buffer.get();
+            if (b == '\n') {
+                accept(line, length, parser, out);
+                length = 0;
+            } else {
+                if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                line[length++] = b;
+            }
+        }
+        if (length > 0) accept(line, length, parser, out); // Last line without a newline
+        return out;
+    }
+
+    /**
+     * Decodes one line and adds the parsed object if the parser accepts it.
+     */
+    private static <T> void accept(byte[] line, int length, Function<String, T> parser, List<T> out) {
+        T value = parser.apply(new String(line, 0, length, FileHandler.CHARSET).trim());
+        if (value != null) out.add(value);
+    }
+}
@@ -0,0 +1,286 @@
+package utils;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics utility class - Process-wide registry of counters, gauges and latency histograms.
+ * 
+ * Instruments are registered once under a metric name and a set of label
+ * values and then updated on the hot path without locking: counters are
+ * LongAdders and histograms are LatencyHistograms. Gauges are read only
+ * when the metrics are exported. Registering the same name and labels
+ * again returns the existing counter or histogram.
+ * 
+ * toPrometheus() renders every metric in the Prometheus text exposition
+ * format (served by StoreServer at /metrics), and writeTo() saves the same
+ * text to a file. Histograms are exported with a fixed set of buckets from
+ * 1 microsecond to 10 seconds, in seconds as Prometheus expects.
+ * 
+ * Timing can be switched off with setEnabled(false) or by starting the JVM
+ * with -Dcbs.metrics=false; counters and gauges keep working.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class Metrics {
+    // Upper bounds of the exported histogram buckets, in nanoseconds
+    private static final long[] EXPORT_BOUNDS = {
+        1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000,
+        10_000_000, 50_000_000, 100_000_000, 500_000_000, 1_000_000_000, 5_000_000_000L, 10_000_000_000L
+    };
+
+    // Registered metrics by name
+    private static final Map<String, Family> FAMILIES = new ConcurrentHashMap<>();
+
+    // Whether latencies are being recorded
+    private static volatile boolean enabled = !"false".equals(System.getProperty("cbs.metrics"));
+
+    /**
+     * Monotonic counter of events or amounts (e.g. bytes written).
+     */
+    public static final class Counter {
+        // Running total, striped across threads
+        private final LongAdder total = new LongAdder();
+
+        /**
+         * Adds one to the counter.
+         */
+        public void increment() { total.increment(); }
+
+        /**
+         * Adds an amount to the counter.
+         * 
+         * @param amount The amount to add (not negative)
+         */
+        public void add(long amount) { total.add(amount); }
+
+        /**
+         * Gets the current total.
+         * 
+         * @return The total
+         */
+        public long get() { return total.sum(); }
+    }
+
+    /**
+     * All series of one metric name.
+     */
+    private static final class Family {
+        final String name;                                          // Metric name
+        final String help;                                          // Description for the HELP line
+        final String type;                                          // counter, gauge or histogram
+        final Map<String, Object> series = new ConcurrentHashMap<>(); // Instrument by rendered label set
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Gets or registers a counter.
+     * 
+     * @param name The metric name (should end in _total)
+     * @param help A description of the metric
+     * @param labels Alternating label names and values
+     * @return The counter for the name and labels
+     * @throws IllegalArgumentException if the name is registered with another type
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").series.computeIfAbsent(labels(labels), k -> new Counter());
+    }
+
+    /**
+     * Gets or registers a latency histogram.
+     * 
+     * @param name The metric name (should end in _seconds)
+     * @param help A description of the metric
+     * @param labels Alternating label names and values
+     * @return The histogram for the name and labels
+     * @throws IllegalArgumentException if the name is registered with another type
+     */
+    public static LatencyHistogram histogram(String name, String help, String... labels) {
+        return histogram(name, help, 1, labels);
+    }
+
+    /**
+     * Gets or registers a sampled latency histogram, for calls too fast to
+     * read the clock around every one of them.
+     * 
+     * @param name The metric name (should end in _seconds)
+     * @param help A description of the metric
+     * @param sampleEvery Time one call in this many; only used on registration
+     * @param labels Alternating label names and values
+     * @return The histogram for the name and labels
+     * @throws IllegalArgumentException if the name is registered with another type
+     */
+    public static LatencyHistogram histogram(String name, String help, int sampleEvery, String... labels) {
+        return (LatencyHistogram) family(name, help, "histogram").series
+                .computeIfAbsent(labels(labels), k -> new LatencyHistogram(sampleEvery));
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge with the same name and labels.
+     * 
+     * @param name The metric name
+     * @param help A description of the metric
+     * @param value Reads the current value when the metrics are exported
+     * @param labels Alternating label names and values
+     * @throws IllegalArgumentException if the name is registered with another type
+     */
+    public static void gauge(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, "gauge").series.put(labels(labels), value);
+    }
+
+    /**
+     * Removes a gauge, unless it has been replaced by another one since.
+     * 
+     * @param name The metric name
+     * @param value The value supplier it was registered with
+     * @param labels Alternating label names and values
+     */
+    public static void removeGauge(String name, LongSupplier value, String... labels) {
+        Family family = FAMILIES.get(name);
+        if (family != null) family.series.remove(labels(labels), value);
+    }
+
+    /**
+     * Gets a start time for LatencyHistogram.recordSince().
+     * 
+     * @return System.nanoTime(), or 0 if timing is disabled
+     */
+    public static long startTime() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Checks whether latencies are being recorded.
+     * 
+     * @return true if timing is enabled
+     */
+    public static boolean isEnabled() { return enabled; }
+
+    /**
+     * Switches the recording of latencies on or off.
+     * 
+     * @param on true to record latencies
+     */
+    public static void setEnabled(boolean on) { enabled = on; }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format (version 0.0.4).
+     * 
+     * @return The metrics text, sorted by name and labels
+     */
+    public static String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family family : new TreeMap<>(FAMILIES).values()) {
+            if (family.series.isEmpty()) continue;
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> e : new TreeMap<>(family.series).entrySet()) {
+                Object metric = e.getValue();
+                if (metric instanceof Counter) {
+                    sample(sb, family.name, e.getKey(), null, ((Counter) metric).get());
+                } else if (metric instanceof LongSupplier) {
+                    sample(sb, family.name, e.getKey(), null, ((LongSupplier) metric).getAsLong());
+                } else {
+                    histogram(sb, family.name, e.getKey(), (LatencyHistogram) metric);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Saves the metrics text to a file, replacing it atomically.
+     * 
+     * @param filename The path to the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeTo(String filename) throws IOException {
+        String text = toPrometheus();
+        AtomicFile.write(filename, 0, out -> {
+            Writer writer = new OutputStreamWriter(out, FileHandler.CHARSET);
+            writer.write(text);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Gets a family, registering it on first use.
+     */
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Renders label pairs as the inside of a Prometheus label set (a="x",b="y").
+     */
+    private static String labels(String... labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("Labels must be name/value pairs");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') sb.append('\\').append(c);
+                else if (c == '\n') sb.append("\\n");
+                else sb.append(c);
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the bucket, sum and count lines of a histogram. A fine bucket
+     * is counted under the first exported bound that covers all its values.
+     */
+    private static void histogram(StringBuilder sb, String name, String labels, LatencyHistogram histogram) {
+        long[] counts = histogram.counts();
+        long cumulative = 0;
+        int bucket = 0;
+        for (long bound : EXPORT_BOUNDS) {
+            while (bucket < counts.length && LatencyHistogram.upperBound(bucket) - 1 <= bound) cumulative += counts[bucket++];
+            sample(sb, name + "_bucket", labels, "le=\"" + seconds(bound) + "\"", cumulative);
+        }
+        while (bucket < counts.length) cumulative += counts[bucket++];
+        sample(sb, name + "_bucket", labels, "le=\"+Inf\"", cumulative);
+        sb.append(name).append("_sum");
+        if (!labels.isEmpty()) sb.append('{').append(labels).append('}');
+        sb.append(' ').append(seconds(histogram.sum())).append('\n');
+        sample(sb, name + "_count", labels, null, cumulative);
+    }
+
+    /**
+     * Appends one sample line.
+     */
+    private static void sample(StringBuilder sb, String name, String labels, String extra, long value) {
+        sb.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            sb.append('{').append(labels);
+            if (extra != null) sb.append(labels.isEmpty() ? "" : ",").append(extra);
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Formats nanoseconds as seconds.
+     */
+    private static String seconds(long nanos) {
+        return java.math.BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+}
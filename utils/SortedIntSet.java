@@ -0,0 +1,147 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * SortedIntSet utility class - Set of primitive int values kept in ascending order.
+ * 
+ * The values sit in one sorted int array, so a set costs 4 bytes per value
+ * instead of a tree or hash node plus a boxed Integer (or an object
+ * reference) per value. Lookups are binary searches; adding or removing
+ * moves the values above it, which is cheap for the small sets and the
+ * mostly ascending inserts (new IDs) it is used for. Not thread-safe.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class SortedIntSet {
+    // Values in ascending order; slots from size on are unused
+    private int[] values;
+
+    // Number of values stored
+    private int size;
+
+    /**
+     * Constructor for creating an empty SortedIntSet.
+     */
+    public SortedIntSet() { values = new int[2]; }
+
+    /**
+     * Constructor for creating a set from values that are already sorted and distinct.
+     */
+    private SortedIntSet(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Adds a value to the set.
+     * 
+     * @param value The value to add
+     * @return true if the value was added, false if it was already present
+     */
+    public boolean add(int value) {
+        int at = size == 0 || values[size - 1] < value ? -size - 1 : Arrays.binarySearch(values, 0, size, value);
+        if (at >= 0) return false;
+        at = -at - 1;
+        if (size == values.length) values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        System.arraycopy(values, at, values, at + 1, size - at);
+        values[at] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value from the set. Shrinks the array once it is mostly unused.
+     * 
+     * @param value The value to remove
+     * @return true if the value was removed, false if it was not present
+     */
+    public boolean remove(int value) {
+        int at = Arrays.binarySearch(values, 0, size, value);
+        if (at < 0) return false;
+        System.arraycopy(values, at + 1, values, at, size - at - 1);
+        size--;
+        if (values.length > 8 && size < values.length / 4) values = Arrays.copyOf(values, values.length / 2);
+        return true;
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     * 
+     * @param value The value to look for
+     * @return true if the value is present
+     */
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Finds the rank of the smallest value at or above a given value,
+     * searching forward from a starting rank (galloping, then binary
+     * search). Walking a set with ascending values this way costs little
+     * more than one step per value, however large the set.
+     * 
+     * @param value The value to look for
+     * @param from The rank to search from; every value below it must be smaller than value
+     * @return The rank of the first value that is at least value, or size() if there is none
+     */
+    public int ceilingIndex(int value, int from) {
+        int low = from;
+        int high = from;
+        for (int step = 1; high < size && values[high] < value; step <<= 1) {
+            low = high + 1;
+            high += step;
+        }
+        int at = Arrays.binarySearch(values, low, Math.min(high, size), value);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    /**
+     * Gets a value by its rank.
+     * 
+     * @param index The rank of the value, from 0 (the smallest) to size() - 1
+     * @return The value
+     */
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return values[index];
+    }
+
+    /**
+     * Gets the number of values in the set.
+     * 
+     * @return The number of values
+     */
+    public int size() { return size; }
+
+    /**
+     * Checks whether the set is empty.
+     * 
+     * @return true if the set holds no values
+     */
+    public boolean isEmpty() { return size == 0; }
+
+    /**
+     * Creates the union of several sets.
+     * 
+     * @param sets The sets to combine
+     * @return A new set holding every value of any of them
+     */
+    public static SortedIntSet union(Collection<SortedIntSet> sets) {
+        int total = 0;
+        for (SortedIntSet set : sets) total += set.size;
+        int[] all = new int[total];
+        int n = 0;
+        for (SortedIntSet set : sets) {
+            System.arraycopy(set.values, 0, all, n, set.size);
+            n += set.size;
+        }
+        Arrays.sort(all, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++)
+            if (distinct == 0 || all[i] != all[distinct - 1]) all[distinct++] = all[i];
+        return new SortedIntSet(all, distinct);
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import java.util.*;
+
+/**
+ * StringDictionary utility class - Encodes repeated strings as small int codes.
+ * 
+ * Each distinct string is stored once and given the next code (0, 1, 2, ...).
+ * Columns of low-cardinality values such as genres and authors can then hold
+ * an int per row instead of a String reference per row.
+ * Methods are synchronized so codes can be looked up while others are added.
+ * 
+ * @author Comic Book Store System
+ * @version 1.0
+ */
+public class StringDictionary {
+    // Code of each distinct string
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    // Distinct strings, indexed by code
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Gets the code of a string, adding it to the dictionary if it is new.
+     * 
+     * @param value The string to encode (may be null)
+     * @return The string's code
+     */
+    public synchronized int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        values.add(value);
+        codes.put(value, values.size() - 1);
+        return values.size() - 1;
+    }
+
+    /**
+     * Gets the string for a code.
+     * 
+     * @param code A code returned by encode()
+     * @return The string the code stands for
+     */
+    public synchronized String decode(int code) { return values.get(code); }
+
+    /**
+     * Gets the number of distinct strings in the dictionary.
+     * 
+     * @return The dictionary size
+     */
+    public synchronized int size() { return values.size(); }
+
+    /**
+     * Removes all strings from the dictionary.
+     */
+    public synchronized void clear() {
+        codes.clear();
+        values.clear();
+    }
+}